@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The backing store of an immutable list that successive versions extend.
+ * A version is this array together with a length, and elements below a
+ * version's length never change. Appending to the longest version so far
+ * writes into spare capacity and shares the array, so a run of single
+ * appends costs amortized constant time; appending to an older version
+ * copies first.
+ * <p>
+ * Versions must be created by one thread at a time (e.g. under the lock of
+ * their owner) and handed to readers through a safe publication such as a
+ * volatile field. Readers may then use any version without locking.
+ *
+ * @param <T> the type of element
+ */
+final class AppendOnlyArray<T> {
+    private final Object[] elements;
+    private int used; // length of the longest version; only touched by the thread creating versions
+
+    private AppendOnlyArray(Object[] elements, int used) {
+        this.elements = elements;
+        this.used = used;
+    }
+
+    /**
+     * Wraps an array as the first version, without copying it. The caller
+     * must not change the array afterwards.
+     *
+     * @param elements the elements of the version
+     * @return the backing store, whose first version has length {@code elements.length}
+     */
+    static <T> AppendOnlyArray<T> of(T[] elements) {
+        return new AppendOnlyArray<>(elements, elements.length);
+    }
+
+    /**
+     * @return the element at the given index, which must be below the length of the version being read
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        return (T) elements[index];
+    }
+
+    /**
+     * Creates the version that is one element longer than the given one.
+     *
+     * @param length  the length of the version to extend
+     * @param element the element to add at index {@code length}
+     * @return the backing store of the new version; this one if it had room
+     */
+    AppendOnlyArray<T> append(int length, T element) {
+        if (length == used && length < elements.length) {
+            elements[length] = element;
+            used++;
+            return this;
+        }
+        Object[] grown = new Object[Math.max(length * 2, 8)];
+        System.arraycopy(elements, 0, grown, 0, length);
+        grown[length] = element;
+        return new AppendOnlyArray<>(grown, length + 1);
+    }
+
+    /**
+     * Creates a version of the same length in which one element is
+     * different. Elements of existing versions never change, so this copies
+     * the first {@code length} elements into a new store.
+     *
+     * @param length  the length of the version to change
+     * @param index   the index of the element to replace, below {@code length}
+     * @param element the new element
+     * @return the backing store of the new version
+     */
+    AppendOnlyArray<T> with(int length, int index, T element) {
+        Object[] copy = new Object[Math.max(elements.length, 8)];
+        System.arraycopy(elements, 0, copy, 0, length);
+        copy[index] = element;
+        return new AppendOnlyArray<>(copy, length);
+    }
+
+    /**
+     * @return an unmodifiable list of the first {@code length} elements, backed by this store
+     */
+    @SuppressWarnings("unchecked")
+    List<T> asList(int length) {
+        return Collections.unmodifiableList((List<T>) Arrays.asList(elements).subList(0, length));
+    }
+}
@@ -0,0 +1,333 @@
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Runs many simulated battles between two lineups and reports how often each
+ * side wins. The lineups are copied into flat arrays when the simulator is
+ * created (stats, and each move's damage factor against every opponent), so
+ * a battle only reads arrays and draws random numbers.
+ * <p>
+ * A battle is fought one Pokémon at a time in lineup order. Each turn the
+ * faster of the two active Pokémon attacks first with a random move from its
+ * move set; a Pokémon with no moves attacks without a type. A fainted
+ * Pokémon is replaced by the next one in its lineup, and the side that runs
+ * out first loses. Battles still going after {@link #MAX_TURNS} are draws.
+ * <p>
+ * Battles are split into fixed ranges that are run in parallel, each with
+ * its own random generator seeded from the simulation seed and the range, so
+ * the same seed always gives the same result however many threads are used.
+ */
+public class BattleSimulator {
+    /**
+     * The most turns a battle may last before it is called a draw.
+     */
+    public static final int MAX_TURNS = 1000;
+
+    private static final int MAX_MOVES = 4;
+    private static final int POWER = 50; // Moves have no power of their own, so every hit uses this
+    private static final int LEVEL_FACTOR = 2 * 50 / 5 + 2; // Damage formula term for a level 50 attacker
+    private static final int FACTOR_SCALE = 16; // Damage factors are stored in sixteenths
+    private static final int BATTLES_PER_TASK = 1024;
+
+    private static final int SIDE_A_WINS = 0;
+    private static final int SIDE_B_WINS = 1;
+    private static final int DRAW = 2;
+
+    private final Side sideA;
+    private final Side sideB;
+
+    /**
+     * Creates a simulator for two lineups. Later changes to the Pokémon do not
+     * affect it.
+     *
+     * @param lineupA the first side, in the order its Pokémon are sent out
+     * @param lineupB the second side, in the order its Pokémon are sent out
+     */
+    public BattleSimulator(List<Pokemon> lineupA, List<Pokemon> lineupB) {
+        this.sideA = new Side(lineupA, lineupB);
+        this.sideB = new Side(lineupB, lineupA);
+    }
+
+    /**
+     * Creates a simulator for the current lineups of two trainers.
+     *
+     * @param a the first trainer
+     * @param b the second trainer
+     * @return the simulator
+     */
+    public static BattleSimulator between(Trainer a, Trainer b) {
+        return new BattleSimulator(a.getLineup(), b.getLineup());
+    }
+
+    /**
+     * Runs the given number of battles on the common fork-join pool.
+     *
+     * @param battles the number of battles to run
+     * @param seed    the seed that makes the run repeatable
+     * @return the tally of wins and draws
+     */
+    public Result simulate(long battles, long seed) {
+        return simulate(battles, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Runs the given number of battles on a fork-join pool.
+     *
+     * @param battles the number of battles to run
+     * @param seed    the seed that makes the run repeatable
+     * @param pool    the pool to run them on
+     * @return the tally of wins and draws
+     */
+    public Result simulate(long battles, long seed, ForkJoinPool pool) {
+        if (battles < 0) {
+            throw new IllegalArgumentException("Negative battle count: " + battles);
+        }
+        long[] tally = pool.invoke(new SimulationTask(0, battles, seed));
+        return new Result(tally[SIDE_A_WINS], tally[SIDE_B_WINS], tally[DRAW]);
+    }
+
+    /**
+     * Fights one battle.
+     *
+     * @param hpA    scratch space for side A's remaining HP
+     * @param hpB    scratch space for side B's remaining HP
+     * @param random the random generator of the running task
+     * @return {@link #SIDE_A_WINS}, {@link #SIDE_B_WINS} or {@link #DRAW}
+     */
+    private int battle(int[] hpA, int[] hpB, SplittableRandom random) {
+        System.arraycopy(sideA.hp, 0, hpA, 0, sideA.size);
+        System.arraycopy(sideB.hp, 0, hpB, 0, sideB.size);
+        int activeA = 0;
+        int activeB = 0;
+
+        for (int turn = 0; turn < MAX_TURNS && activeA < sideA.size && activeB < sideB.size; turn++) {
+            int speedA = sideA.speed[activeA];
+            int speedB = sideB.speed[activeB];
+            boolean aFirst = speedA > speedB || (speedA == speedB && random.nextBoolean());
+
+            if (aFirst) {
+                if (hit(sideA, activeA, sideB, activeB, hpB, random)) {
+                    activeB++;
+                } else if (hit(sideB, activeB, sideA, activeA, hpA, random)) {
+                    activeA++;
+                }
+            } else {
+                if (hit(sideB, activeB, sideA, activeA, hpA, random)) {
+                    activeA++;
+                } else if (hit(sideA, activeA, sideB, activeB, hpB, random)) {
+                    activeB++;
+                }
+            }
+        }
+
+        boolean aStanding = activeA < sideA.size;
+        boolean bStanding = activeB < sideB.size;
+        if (aStanding == bStanding) {
+            return DRAW;
+        }
+        return aStanding ? SIDE_A_WINS : SIDE_B_WINS;
+    }
+
+    /**
+     * Lets one active Pokémon attack the other.
+     *
+     * @return {@code true} if the defender fainted
+     */
+    private static boolean hit(Side attacker, int a, Side defender, int d, int[] defenderHp, SplittableRandom random) {
+        int moves = attacker.moveCount[a];
+        int move = moves == 1 ? 0 : random.nextInt(moves);
+        int factor = attacker.factors[(a * MAX_MOVES + move) * defender.size + d];
+        if (factor == 0) {
+            return false;
+        }
+
+        long base = (long) LEVEL_FACTOR * POWER * attacker.attack[a] / defender.defense[d] / 50 + 2;
+        long damage = base * factor * (85 + random.nextInt(16)) / (FACTOR_SCALE * 100);
+        defenderHp[d] -= (int) Math.min(Math.max(damage, 1), Integer.MAX_VALUE);
+        return defenderHp[d] <= 0;
+    }
+
+    /**
+     * Mixes a seed so that neighbouring task seeds give unrelated random streams.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Runs a range of battles, splitting it on boundaries that depend only on
+     * the range so every battle is always run by the same seeded generator.
+     */
+    private class SimulationTask extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final long from;
+        private final long to;
+        private final long seed;
+
+        SimulationTask(long from, long to, long seed) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        }
+
+        @Override
+        protected long[] compute() {
+            long count = to - from;
+            if (count <= BATTLES_PER_TASK) {
+                return runBattles();
+            }
+
+            long middle = from + (count / BATTLES_PER_TASK / 2) * BATTLES_PER_TASK;
+            if (middle == from) {
+                middle += BATTLES_PER_TASK;
+            }
+            SimulationTask left = new SimulationTask(from, middle, seed);
+            SimulationTask right = new SimulationTask(middle, to, seed);
+            left.fork();
+            long[] tally = right.compute();
+            long[] leftTally = left.join();
+            for (int i = 0; i < tally.length; i++) {
+                tally[i] += leftTally[i];
+            }
+            return tally;
+        }
+
+        private long[] runBattles() {
+            SplittableRandom random = new SplittableRandom(mix(seed + (from / BATTLES_PER_TASK) * 0x9E3779B97F4A7C15L));
+            int[] hpA = new int[sideA.size];
+            int[] hpB = new int[sideB.size];
+            long[] tally = new long[3];
+            for (long i = from; i < to; i++) {
+                tally[battle(hpA, hpB, random)]++;
+            }
+            return tally;
+        }
+    }
+
+    /**
+     * One lineup flattened into arrays, with the damage factor of each of its
+     * moves against each Pokémon of the opposing lineup.
+     */
+    private static class Side {
+        final int size;
+        final int[] hp;
+        final int[] attack;
+        final int[] defense;
+        final int[] speed;
+        final int[] moveCount;
+        final int[] factors; // [(member * MAX_MOVES + move) * opponents + opponent], in sixteenths
+
+        Side(List<Pokemon> lineup, List<Pokemon> opponents) {
+            size = lineup.size();
+            hp = new int[size];
+            attack = new int[size];
+            defense = new int[size];
+            speed = new int[size];
+            moveCount = new int[size];
+            factors = new int[size * MAX_MOVES * opponents.size()];
+
+            for (int i = 0; i < size; i++) {
+                Pokemon p = lineup.get(i);
+                hp[i] = Math.max(p.getHP(), 1);
+                attack[i] = Math.max(p.getAttack(), 0);
+                defense[i] = Math.max(p.getDefense(), 1);
+                speed[i] = p.getSpeed();
+
+                List<Move> moves = p.getMoveSetView();
+                moveCount[i] = Math.max(Math.min(moves.size(), MAX_MOVES), 1);
+                for (int m = 0; m < moveCount[i]; m++) {
+                    Move move = m < moves.size() ? moves.get(m) : null;
+                    for (int j = 0; j < opponents.size(); j++) {
+                        factors[(i * MAX_MOVES + m) * opponents.size() + j] = factor(p, move, opponents.get(j));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Gets the type effectiveness of a move, times 1.5 when the attacker
+         * shares one of its types, in sixteenths.
+         */
+        private static int factor(Pokemon attacker, Move move, Pokemon defender) {
+            if (move == null) {
+                return FACTOR_SCALE;
+            }
+            float multiplier = TypeEffectiveness.multiplier(move, defender);
+            if (sharesType(attacker, move.getPrimaryPokemonType()) || sharesType(attacker, move.getSecondaryPokemonType())) {
+                multiplier *= 1.5f;
+            }
+            return Math.round(multiplier * FACTOR_SCALE);
+        }
+
+        private static boolean sharesType(Pokemon p, PokemonType type) {
+            return type != null && (p.getPrimaryPokemonType() == type || p.getSecondaryPokemonType() == type);
+        }
+    }
+
+    /**
+     * The outcome of a simulation run.
+     */
+    public static class Result {
+        private final long sideAWins;
+        private final long sideBWins;
+        private final long draws;
+
+        Result(long sideAWins, long sideBWins, long draws) {
+            this.sideAWins = sideAWins;
+            this.sideBWins = sideBWins;
+            this.draws = draws;
+        }
+
+        public long getSideAWins() {
+            return sideAWins;
+        }
+
+        public long getSideBWins() {
+            return sideBWins;
+        }
+
+        public long getDraws() {
+            return draws;
+        }
+
+        public long getBattles() {
+            return sideAWins + sideBWins + draws;
+        }
+
+        /**
+         * @return the share of battles side A won, from 0 to 1
+         */
+        public double getSideAWinRate() {
+            return rate(sideAWins);
+        }
+
+        /**
+         * @return the share of battles side B won, from 0 to 1
+         */
+        public double getSideBWinRate() {
+            return rate(sideBWins);
+        }
+
+        /**
+         * @return the share of battles that were draws, from 0 to 1
+         */
+        public double getDrawRate() {
+            return rate(draws);
+        }
+
+        private double rate(long count) {
+            long battles = getBattles();
+            return battles == 0 ? 0 : (double) count / battles;
+        }
+
+        @Override
+        public String toString() {
+            return "A wins " + sideAWins + ", B wins " + sideBWins + ", draws " + draws;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A growable big-endian output buffer shared by the binary file formats.
+ * Strings are written as a byte length followed by UTF-8 bytes, with a
+ * length of -1 for null.
+ */
+class BinaryOut {
+    private ByteBuffer buffer;
+
+    public BinaryOut(int initialCapacity) {
+        buffer = ByteBuffer.allocate(initialCapacity);
+    }
+
+    public void putByte(int value) {
+        ensure(1);
+        buffer.put((byte) value);
+    }
+
+    public void putShort(short value) {
+        ensure(2);
+        buffer.putShort(value);
+    }
+
+    public void putInt(int value) {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    public void putLong(long value) {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    public void putString(String value) {
+        if (value == null) {
+            putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensure(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Overwrites four bytes written earlier, e.g. to fill in a length field.
+     *
+     * @param position the offset of the value
+     * @param value    the new value
+     */
+    public void putIntAt(int position, int value) {
+        buffer.putInt(position, value);
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Discards everything written so far, keeping the allocated space.
+     */
+    public void reset() {
+        buffer.clear();
+    }
+
+    /**
+     * Returns a read-only view of the bytes written so far, ready to be
+     * written to a channel. The view is only valid until the next write.
+     *
+     * @return the written bytes
+     */
+    public ByteBuffer written() {
+        ByteBuffer view = buffer.duplicate();
+        view.flip();
+        return view;
+    }
+
+    /**
+     * Reads a string written by {@link #putString(String)}.
+     *
+     * @param in the buffer to read from
+     * @return the string, or null
+     */
+    public static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException(); // checked before allocating, a corrupt length can be huge
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the number of records that follow, checking that that many
+     * records of at least the given size fit in what is left, so a corrupt
+     * count cannot make the reader allocate for records that are not there.
+     *
+     * @param in       the buffer to read from
+     * @param minBytes the smallest size of one record
+     * @return the count
+     * @throws BufferUnderflowException if the count is negative or too large
+     */
+    public static int readCount(ByteBuffer in, int minBytes) {
+        int count = in.getInt();
+        if (count < 0 || (long) count * minBytes > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        return count;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
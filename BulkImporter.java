@@ -0,0 +1,730 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Imports species, moves and shop items from CSV or JSON Lines files.
+ * <p>
+ * A file ending in {@code .jsonl}, {@code .ndjson} or {@code .json} holds one
+ * flat JSON object per line; any other file is CSV with a header row naming
+ * the fields. Field names are matched without regard to case, and blank lines
+ * are skipped. The fields are:
+ * <ul>
+ *     <li>species: {@code dex}, {@code name}, {@code primaryType},
+ *     {@code secondaryType}, {@code baseLevel}, {@code evolvesFrom},
+ *     {@code evolvesTo}, {@code evolutionLevel}, {@code hp}, {@code attack},
+ *     {@code defense}, {@code speed}</li>
+ *     <li>moves: {@code name}, {@code description}, {@code classification}
+ *     (HM or TM), {@code primaryType}, {@code secondaryType}</li>
+ *     <li>items: {@code name}, {@code category} (Vitamin, Feather, Leveling
+ *     Item or Evolution Stone), {@code description}, {@code effect},
+ *     {@code buyingPrice}, {@code sellingPrice}, {@code stock}, and
+ *     {@code stat} for vitamins and feathers or {@code stoneType} for
+ *     stones</li>
+ * </ul>
+ * The secondary type, base level, evolution links and evolution level may be
+ * left out. A price of -1 means the item is not bought or sold.
+ * <p>
+ * The file is read in chunks of lines. The lines of a chunk are parsed and
+ * validated in parallel, then checked for duplicates in file order, so memory
+ * use grows with the records kept rather than the file size. Species
+ * evolution links are checked once the whole file is read, since they may
+ * point forward. Records that fail are reported with their line number and
+ * the rest are added to the manager in one batch.
+ */
+public class BulkImporter {
+    private static final int CHUNK_LINES = 4096;
+
+    /**
+     * Imports species. Besides the field checks, a species is rejected if
+     * its Pokédex number or name is already stored or used on an earlier
+     * line, or if an evolution link points to a species that is neither
+     * stored nor imported or leads back to the species itself.
+     *
+     * @param file    the file to read
+     * @param manager the manager to add the species to
+     * @return the number imported and the errors by line
+     * @throws IOException if the file cannot be read
+     */
+    public static Report importPokemon(Path file, PokemonManager manager) throws IOException {
+        Set<Integer> dexNumbers = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        Map<Integer, Integer> evolvesTo = new HashMap<>();
+        for (Pokemon p : manager.getAllPokemonView()) {
+            dexNumbers.add(p.getPokedexNumber());
+            names.add(key(p.getName()));
+            evolvesTo.putIfAbsent(p.getPokedexNumber(), p.getEvolvesTo());
+        }
+
+        Report report = new Report();
+        List<Line<Pokemon>> lines = read(file, BulkImporter::parsePokemon, p -> {
+            if (dexNumbers.contains(p.getPokedexNumber())) {
+                return "Pokédex number " + p.getPokedexNumber() + " is already taken";
+            }
+            if (!names.add(key(p.getName()))) {
+                return "Name \"" + p.getName() + "\" is already taken";
+            }
+            dexNumbers.add(p.getPokedexNumber());
+            return null;
+        }, report);
+
+        // Drop species with bad links until none are left, since a dropped species can break a link to it
+        for (Line<Pokemon> line : lines) {
+            evolvesTo.put(line.value.getPokedexNumber(), line.value.getEvolvesTo());
+        }
+        List<Line<Pokemon>> remaining = new ArrayList<>(lines);
+        boolean dropped = true;
+        while (dropped) {
+            dropped = false;
+            for (int i = remaining.size() - 1; i >= 0; i--) {
+                Line<Pokemon> line = remaining.get(i);
+                String error = checkEvolutionLinks(line.value, dexNumbers, evolvesTo);
+                if (error != null) {
+                    report.addError(line.number, error);
+                    dexNumbers.remove(line.value.getPokedexNumber());
+                    evolvesTo.remove(line.value.getPokedexNumber());
+                    remaining.remove(i);
+                    dropped = true;
+                }
+            }
+        }
+
+        store(remaining, manager::addAll,
+                p -> "Pokédex number " + p.getPokedexNumber() + " was stored while importing", report);
+        return report;
+    }
+
+    /**
+     * Imports moves. Names and descriptions are formatted and checked as by
+     * {@link MoveManager#addMove}, and a move is rejected if its name is
+     * already stored or used on an earlier line.
+     *
+     * @param file    the file to read
+     * @param manager the manager to add the moves to
+     * @return the number imported and the errors by line
+     * @throws IOException if the file cannot be read
+     */
+    public static Report importMoves(Path file, MoveManager manager) throws IOException {
+        Set<String> names = new HashSet<>();
+        for (Move m : manager.getAllMovesView()) {
+            names.add(key(m.getName()));
+        }
+
+        Report report = new Report();
+        List<Line<Move>> lines = read(file, BulkImporter::parseMove,
+                m -> names.add(key(m.getName())) ? null : "Name \"" + m.getName() + "\" is already taken", report);
+        store(lines, manager::addAll, m -> "Name \"" + m.getName() + "\" was stored while importing", report);
+        return report;
+    }
+
+    /**
+     * Imports shop items. An item is rejected if its name is already stored
+     * or used on an earlier line.
+     *
+     * @param file    the file to read
+     * @param manager the manager to add the items to
+     * @return the number imported and the errors by line
+     * @throws IOException if the file cannot be read
+     */
+    public static Report importItems(Path file, ItemManager manager) throws IOException {
+        Set<String> names = new HashSet<>();
+        for (Item item : manager.getAllItemsView()) {
+            names.add(key(item.getName()));
+        }
+
+        Report report = new Report();
+        List<Line<Item>> lines = read(file, BulkImporter::parseItem,
+                item -> names.add(key(item.getName())) ? null : "Name \"" + item.getName() + "\" is already taken", report);
+        store(lines, manager::addAll, item -> "Name \"" + item.getName() + "\" was stored while importing", report);
+        return report;
+    }
+
+    /**
+     * Adds the values of the kept lines to a manager in one call, and reports
+     * the ones the manager still left out because another writer stored the
+     * same key after the file was checked.
+     *
+     * @param lines       the kept values with their line numbers
+     * @param addAll      adds a batch and returns the values it left out
+     * @param whyRejected the error message for a value that was left out
+     * @param report      receives the count and the errors
+     */
+    private static <T> void store(List<Line<T>> lines, Function<List<T>, List<T>> addAll,
+                                  Function<T, String> whyRejected, Report report) {
+        List<T> batch = new ArrayList<>(lines.size());
+        Map<T, Integer> lineOf = new IdentityHashMap<>();
+        for (Line<T> line : lines) {
+            batch.add(line.value);
+            lineOf.put(line.value, line.number);
+        }
+        List<T> rejected = addAll.apply(batch);
+        for (T value : rejected) {
+            report.addError(lineOf.get(value), whyRejected.apply(value));
+        }
+        report.imported = batch.size() - rejected.size();
+    }
+
+    /**
+     * Reads a file chunk by chunk, parsing the lines of each chunk in
+     * parallel and then running the duplicate check on them in file order.
+     *
+     * @param file   the file to read
+     * @param parser turns one record into a value, or throws IllegalArgumentException
+     * @param check  returns why a parsed value is rejected, or null to keep it
+     * @param report receives the errors
+     * @return the kept values with their line numbers, in file order
+     */
+    private static <T> List<Line<T>> read(Path file, Function<Record, T> parser, Function<T, String> check,
+                                          Report report) throws IOException {
+        boolean json = isJsonLines(file);
+        List<Line<T>> kept = new ArrayList<>();
+        List<String> chunk = new ArrayList<>(CHUNK_LINES);
+        String[] header = null;
+        int lineNumber = 0;
+        int chunkStart = 1;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (lineNumber == 1 && text.startsWith("\uFEFF")) {
+                    text = text.substring(1);
+                }
+                if (!json && header == null) {
+                    if (!text.isBlank()) {
+                        try {
+                            header = parseHeader(text);
+                        } catch (IllegalArgumentException e) {
+                            report.addError(lineNumber, "Bad header: " + e.getMessage());
+                            return kept;
+                        }
+                        chunkStart = lineNumber + 1;
+                    }
+                    continue;
+                }
+
+                chunk.add(text);
+                if (chunk.size() == CHUNK_LINES) {
+                    readChunk(chunk, chunkStart, header, parser, check, report, kept);
+                    chunk.clear();
+                    chunkStart = lineNumber + 1;
+                }
+            }
+        }
+        readChunk(chunk, chunkStart, header, parser, check, report, kept);
+        return kept;
+    }
+
+    private static <T> void readChunk(List<String> chunk, int firstLine, String[] header, Function<Record, T> parser,
+                                      Function<T, String> check, Report report, List<Line<T>> kept) {
+        Object[] parsed = new Object[chunk.size()]; // a value, an error message, or null for a blank line
+        IntStream.range(0, chunk.size()).parallel().forEach(i -> {
+            String text = chunk.get(i);
+            if (text.isBlank()) {
+                return;
+            }
+            try {
+                Map<String, String> fields = header == null ? JsonLine.parse(text) : Csv.record(header, text);
+                parsed[i] = new Line<>(firstLine + i, parser.apply(new Record(fields)));
+            } catch (IllegalArgumentException e) {
+                parsed[i] = e.getMessage();
+            }
+        });
+
+        for (int i = 0; i < parsed.length; i++) {
+            if (parsed[i] instanceof String) {
+                report.addError(firstLine + i, (String) parsed[i]);
+            } else if (parsed[i] != null) {
+                @SuppressWarnings("unchecked")
+                Line<T> line = (Line<T>) parsed[i];
+                String error = check.apply(line.value);
+                if (error != null) {
+                    report.addError(line.number, error);
+                } else {
+                    kept.add(line);
+                }
+            }
+        }
+    }
+
+    private static String[] parseHeader(String text) {
+        String[] header = Csv.split(text).toArray(new String[0]);
+        for (int i = 0; i < header.length; i++) {
+            header[i] = key(header[i].trim());
+        }
+        return header;
+    }
+
+    private static Pokemon parsePokemon(Record r) {
+        int dex = r.number("dex");
+        checkDex(dex, "Pokédex number");
+        String name = r.text("name");
+        PokemonType primaryType = r.type("primaryType");
+        PokemonType secondaryType = r.optionalType("secondaryType");
+        if (secondaryType == primaryType) {
+            throw new IllegalArgumentException("Secondary type is the same as the primary type");
+        }
+
+        int evolvesFrom = r.number("evolvesFrom", 0);
+        int evolvesTo = r.number("evolvesTo", 0);
+        if (evolvesFrom != 0) {
+            checkDex(evolvesFrom, "evolvesFrom");
+        }
+        if (evolvesTo != 0) {
+            checkDex(evolvesTo, "evolvesTo");
+        }
+        if (evolvesFrom == dex || evolvesTo == dex) {
+            throw new IllegalArgumentException("Species cannot evolve from or into itself");
+        }
+
+        return new Pokemon(dex, name, primaryType, secondaryType, r.count("baseLevel", 0), evolvesFrom, evolvesTo,
+                r.count("evolutionLevel", 0), r.count("hp"), r.count("attack"), r.count("defense"), r.count("speed"));
+    }
+
+    private static void checkDex(int dex, String field) {
+        if (dex < 1 || dex > PokemonManager.MAX_DEX) {
+            throw new IllegalArgumentException(field + " " + dex + " is outside 1-" + PokemonManager.MAX_DEX);
+        }
+    }
+
+    /**
+     * @return why a species' evolution links are invalid, or null if they are fine
+     */
+    private static String checkEvolutionLinks(Pokemon p, Set<Integer> dexNumbers, Map<Integer, Integer> evolvesTo) {
+        int from = p.getEvolvesFrom();
+        int to = p.getEvolvesTo();
+        if (from != 0 && !dexNumbers.contains(from)) {
+            return "Evolves from " + from + ", which is not stored and was not imported";
+        }
+        if (to != 0 && !dexNumbers.contains(to)) {
+            return "Evolves to " + to + ", which is not stored and was not imported";
+        }
+        int next = to;
+        for (int steps = 0; next != 0 && steps <= evolvesTo.size(); steps++) {
+            if (next == p.getPokedexNumber()) {
+                return "Evolution links lead back to " + next;
+            }
+            next = evolvesTo.getOrDefault(next, 0);
+        }
+        return null;
+    }
+
+    private static Move parseMove(Record r) {
+        String name = r.text("name");
+        String description = r.text("description");
+        Move.Classification classification;
+        String classificationName = r.text("classification");
+        try {
+            classification = Move.Classification.valueOf(classificationName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Classification \"" + classificationName + "\" is not HM or TM");
+        }
+        PokemonType primaryType = r.type("primaryType");
+        PokemonType secondaryType = r.optionalType("secondaryType");
+        if (secondaryType == primaryType) {
+            throw new IllegalArgumentException("Secondary type is the same as the primary type");
+        }
+
+        Move move = MoveManager.createMove(name, description, classification, primaryType.getDisplayName(),
+                secondaryType != null ? secondaryType.getDisplayName() : null);
+        if (move == null) {
+            throw new IllegalArgumentException("Name or description contains characters that are not allowed");
+        }
+        return move;
+    }
+
+    private static Item parseItem(Record r) {
+        String name = r.text("name");
+        String category = r.text("category");
+        String description = r.text("description");
+        String effect = r.text("effect");
+        int buyingPrice = r.price("buyingPrice");
+        int sellingPrice = r.price("sellingPrice");
+        int stock = r.count("stock");
+
+        switch (key(category)) {
+            case "vitamin":
+                return new Vitamin(name, description, effect, buyingPrice, sellingPrice, stock, r.text("stat"));
+            case "feather":
+                return new Feather(name, description, effect, buyingPrice, sellingPrice, stock, r.text("stat"));
+            case "leveling item":
+                return new RareCandy(name, description, effect, buyingPrice, sellingPrice, stock);
+            case "evolution stone":
+                return new EvolutionStone(name, description, effect, buyingPrice, sellingPrice, stock, r.text("stoneType"));
+            default:
+                throw new IllegalArgumentException("Unknown category \"" + category + "\"");
+        }
+    }
+
+    private static boolean isJsonLines(Path file) {
+        String name = key(file.getFileName().toString());
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json");
+    }
+
+    private static String key(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * A parsed value and the line it came from.
+     */
+    private static class Line<T> {
+        final int number;
+        final T value;
+
+        Line(int number, T value) {
+            this.number = number;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The fields of one record by lower-case name, with typed getters that
+     * throw IllegalArgumentException naming the field when it is missing or
+     * invalid. Blank fields count as missing.
+     */
+    private static class Record {
+        private final Map<String, String> fields;
+
+        Record(Map<String, String> fields) {
+            this.fields = fields;
+        }
+
+        String optionalText(String field) {
+            String value = fields.get(key(field));
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+
+        String text(String field) {
+            String value = optionalText(field);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing " + field);
+            }
+            return value;
+        }
+
+        int number(String field) {
+            String value = text(field);
+            try {
+                return Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(field + " \"" + value + "\" is not a whole number");
+            }
+        }
+
+        int number(String field, int missing) {
+            return optionalText(field) == null ? missing : number(field);
+        }
+
+        /**
+         * @return a number that may not be negative, e.g. a stat or a level
+         */
+        int count(String field) {
+            int value = number(field);
+            if (value < 0) {
+                throw new IllegalArgumentException(field + " " + value + " is negative");
+            }
+            return value;
+        }
+
+        int count(String field, int missing) {
+            return optionalText(field) == null ? missing : count(field);
+        }
+
+        /**
+         * @return a price, which is -1 when the item is not traded
+         */
+        int price(String field) {
+            int value = number(field);
+            if (value < -1) {
+                throw new IllegalArgumentException(field + " " + value + " is below -1");
+            }
+            return value;
+        }
+
+        PokemonType type(String field) {
+            return toType(field, text(field));
+        }
+
+        PokemonType optionalType(String field) {
+            String value = optionalText(field);
+            return value == null ? null : toType(field, value);
+        }
+
+        private static PokemonType toType(String field, String value) {
+            PokemonType type = PokemonType.fromString(value);
+            if (type == null) {
+                throw new IllegalArgumentException(field + " \"" + value + "\" is not a valid type");
+            }
+            return type;
+        }
+    }
+
+    /**
+     * Splits CSV lines. Fields may be quoted, with a doubled quote standing
+     * for a quote inside them; a quoted field cannot span lines.
+     */
+    private static class Csv {
+        static Map<String, String> record(String[] header, String text) {
+            List<String> values = split(text);
+            if (values.size() > header.length) {
+                throw new IllegalArgumentException("Has " + values.size() + " fields but the header names " + header.length);
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(header[i], values.get(i));
+            }
+            return fields;
+        }
+
+        static List<String> split(String text) {
+            List<String> values = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            int i = 0;
+            while (true) {
+                field.setLength(0);
+                if (i < text.length() && text.charAt(i) == '"') {
+                    i++;
+                    while (true) {
+                        if (i >= text.length()) {
+                            throw new IllegalArgumentException("Unclosed quote");
+                        }
+                        char c = text.charAt(i++);
+                        if (c != '"') {
+                            field.append(c);
+                        } else if (i < text.length() && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (i < text.length() && text.charAt(i) != ',') {
+                        throw new IllegalArgumentException("Text after a closing quote at column " + (i + 1));
+                    }
+                } else {
+                    while (i < text.length() && text.charAt(i) != ',') {
+                        field.append(text.charAt(i++));
+                    }
+                }
+                values.add(field.toString());
+                if (i >= text.length()) {
+                    return values;
+                }
+                i++; // the comma
+            }
+        }
+    }
+
+    /**
+     * Parses a line holding one flat JSON object. Strings are unescaped,
+     * numbers and booleans are kept as written and null stands for a missing
+     * field. Nested objects and arrays are rejected.
+     */
+    private static class JsonLine {
+        private final String text;
+        private int pos;
+
+        private JsonLine(String text) {
+            this.text = text;
+        }
+
+        static Map<String, String> parse(String text) {
+            JsonLine json = new JsonLine(text);
+            Map<String, String> fields = new HashMap<>();
+            json.expect('{');
+            if (json.peek() != '}') {
+                do {
+                    String name = json.string();
+                    json.expect(':');
+                    fields.put(key(name), json.value());
+                } while (json.accept(','));
+            }
+            json.expect('}');
+            if (json.peek() != 0) {
+                throw json.error("Text after the object");
+            }
+            return fields;
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw error("Nested objects and arrays are not supported");
+            }
+            int start = pos;
+            while (pos < text.length() && ",}] \t".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            if (literal.isEmpty()) {
+                throw error("Missing value");
+            }
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder sb = new StringBuilder();
+            while (true) {
+                if (pos >= text.length()) {
+                    throw error("Unclosed string");
+                }
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= text.length()) {
+                    throw error("Unclosed string");
+                }
+                char escaped = text.charAt(pos++);
+                switch (escaped) {
+                    case 'b':
+                        sb.append('\b');
+                        break;
+                    case 'f':
+                        sb.append('\f');
+                        break;
+                    case 'n':
+                        sb.append('\n');
+                        break;
+                    case 'r':
+                        sb.append('\r');
+                        break;
+                    case 't':
+                        sb.append('\t');
+                        break;
+                    case 'u':
+                        if (pos + 4 > text.length()) {
+                            throw error("Short \\u escape");
+                        }
+                        try {
+                            sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("Bad \\u escape");
+                        }
+                        pos += 4;
+                        break;
+                    default:
+                        sb.append(escaped); // \" \\ \/
+                }
+            }
+        }
+
+        /**
+         * @return the next character that is not white space, or 0 at the end of the line
+         */
+        private char peek() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos < text.length() ? text.charAt(pos) : 0;
+        }
+
+        private boolean accept(char c) {
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) {
+                throw error("Expected '" + c + "'");
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at column " + (pos + 1));
+        }
+    }
+
+    /**
+     * What an import did: how many records were added, and why each of the
+     * others was rejected.
+     */
+    public static class Report {
+        private final List<LineError> errors = new ArrayList<>();
+        private int imported;
+
+        void addError(int line, String message) {
+            errors.add(new LineError(line, message));
+        }
+
+        /**
+         * @return the number of records added to the manager
+         */
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * @return the rejected records, in line order
+         */
+        public List<LineError> getErrors() {
+            List<LineError> sorted = new ArrayList<>(errors);
+            sorted.sort(Comparator.comparingInt(LineError::getLine));
+            return sorted;
+        }
+
+        public boolean hasErrors() {
+            return !errors.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "Imported " + imported + ", rejected " + errors.size();
+        }
+    }
+
+    /**
+     * A rejected record.
+     */
+    public static class LineError {
+        private final int line;
+        private final String message;
+
+        LineError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * @return the line number in the file, counting from 1
+         */
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for a Pokémon levelling up or trying to evolve.
+ * Disabled unless a recording turns on {@code pokedex.Evolution}.
+ */
+@Name("pokedex.Evolution")
+@Label("Evolution")
+@Category("Pokédex")
+@Description("A rare candy level-up or an evolution attempt")
+@Enabled(false)
+class EvolutionEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Pokédex Number Before")
+    int dexBefore;
+
+    @Label("Pokédex Number After")
+    int dexAfter;
+
+    @Label("Stone Type")
+    @Description("The type of the evolution stone, if one was used")
+    String stoneType;
+
+    @Label("Result")
+    @Description("Whether the Pokémon evolved")
+    boolean evolved;
+
+    /**
+     * Fills in and commits the event if it is being recorded.
+     */
+    void complete(String operation, int dexBefore, Pokemon pokemon, PokemonType stoneType, boolean evolved) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.dexBefore = dexBefore;
+            this.dexAfter = pokemon.getPokedexNumber();
+            this.stoneType = stoneType != null ? stoneType.getDisplayName() : null;
+            this.evolved = evolved;
+            commit();
+        }
+    }
+}
@@ -1,19 +1,29 @@
 public class EvolutionStone extends Item {
     private String stoneType; // e.g., "Fire", "Water", "Thunder", "Leaf", "Moon", etc.
+    private final PokemonType evolutionType; // null for stones that are not named after a type (Moon, Sun)
 
     public EvolutionStone(String name, String description, String effect,
                           int buyingPrice, int sellingPrice, int stock, String stoneType) {
         // MODIFIED: Calling super() with all 7 arguments, ensuring type consistency
         super(name, "Evolution Stone", description, effect, buyingPrice, sellingPrice, stock);
         this.stoneType = stoneType;
+        this.evolutionType = PokemonType.fromString(stoneType);
     }
 
     public String getStoneType() {
         return stoneType;
     }
 
+    /**
+     * @return the type this stone evolves into, or null if the stone is not named after a type
+     */
+    public PokemonType getEvolutionType() {
+        return evolutionType;
+    }
+
     public void use(Pokemon pokemon, PokemonManager manager) {
-        boolean evolved = pokemon.evolveUsingStone(this.stoneType, manager); // Correctly passes the manager
+        boolean evolved = evolutionType != null
+                && pokemon.evolveUsingStone(evolutionType, manager); // Correctly passes the manager
 
         if (evolved) {
             System.out.println(pokemon.getName() + " evolved using " + getName() + "!");
@@ -14,6 +14,9 @@ public class Feather extends Item {
     public void use(Pokemon pokemon, PokemonManager manager) {
         int amount = 1; // Feathers typically increase EVs by 1
         pokemon.increaseStat(statAffected, amount);
+        if (manager != null) {
+            manager.statsChanged(pokemon); // a stored entry moves in the stat total order
+        }
         System.out.println(pokemon.getName() + "'s " + statAffected + " EVs increased by " + amount + " through " + getName() + "!");
         // Decrease stock logic here
     }
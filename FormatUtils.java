@@ -0,0 +1,181 @@
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Appends the fixed-width columns used by the display methods directly into
+ * a {@link StringBuilder}. Each method produces exactly what the matching
+ * {@link String#format(String, Object...)} conversion would in the default
+ * format locale, without parsing a format string or boxing the values.
+ */
+class FormatUtils {
+    /**
+     * The digit and grouping symbols of the locale they were read for. Looking
+     * them up is slow, so they are kept until the default locale changes.
+     */
+    private static volatile Symbols symbols = new Symbols(Locale.US);
+
+    /**
+     * Pads what was appended since {@code start} with spaces up to the given
+     * width, like the {@code %-Ns} conversion. Longer text is left as is.
+     *
+     * @param sb    the builder
+     * @param start the length of the builder before the column was appended
+     * @param width the column width
+     */
+    static void padRight(StringBuilder sb, int start, int width) {
+        for (int i = sb.length() - start; i < width; i++) {
+            sb.append(' ');
+        }
+    }
+
+    /**
+     * Appends a string left-aligned in a column, like {@code %-Ns}.
+     *
+     * @param sb    the builder
+     * @param s     the string; null is written as "null"
+     * @param width the column width
+     */
+    static void appendLeft(StringBuilder sb, String s, int width) {
+        int start = sb.length();
+        sb.append(s);
+        padRight(sb, start, width);
+    }
+
+    /**
+     * Appends a number left-aligned in a column, like {@code %-Nd}.
+     *
+     * @param sb    the builder
+     * @param value the number
+     * @param width the column width
+     */
+    static void appendLeft(StringBuilder sb, int value, int width) {
+        int start = sb.length();
+        appendInt(sb, value);
+        padRight(sb, start, width);
+    }
+
+    /**
+     * Appends a number padded with leading zeros, like {@code %0Nd}. The
+     * minus sign of a negative number counts towards the width, so -5 with
+     * width 4 is written as "-005".
+     *
+     * @param sb    the builder
+     * @param value the number
+     * @param width the minimum number of characters to write
+     */
+    static void appendZeroPadded(StringBuilder sb, int value, int width) {
+        char zero = currentSymbols().zero;
+        if (value < 0) {
+            sb.append('-');
+            width--;
+        }
+        long magnitude = Math.abs((long) value);
+        for (int i = digitCount(magnitude); i < width; i++) {
+            sb.append(zero);
+        }
+        appendDigits(sb, magnitude, zero);
+    }
+
+    /**
+     * Appends a number with grouping separators, like {@code %,d}.
+     *
+     * @param sb    the builder
+     * @param value the number
+     */
+    static void appendGrouped(StringBuilder sb, int value) {
+        Symbols s = currentSymbols();
+        if (value < 0) {
+            sb.append('-');
+        }
+        long magnitude = Math.abs((long) value);
+        int start = sb.length();
+        appendDigits(sb, magnitude, s.zero);
+
+        if (s.groupingSeparator != '\0') {
+            for (int i = sb.length() - s.groupingSize; i > start; i -= s.groupingSize) {
+                sb.insert(i, s.groupingSeparator);
+            }
+        }
+    }
+
+    /**
+     * Appends a number like {@code %d}.
+     *
+     * @param sb    the builder
+     * @param value the number
+     */
+    static void appendInt(StringBuilder sb, int value) {
+        char zero = currentSymbols().zero;
+        if (zero == '0') {
+            sb.append(value);
+            return;
+        }
+        if (value < 0) {
+            sb.append('-');
+        }
+        appendDigits(sb, Math.abs((long) value), zero);
+    }
+
+    private static void appendDigits(StringBuilder sb, long magnitude, char zero) {
+        int start = sb.length();
+        sb.append(magnitude);
+        if (zero != '0') {
+            for (int i = start; i < sb.length(); i++) {
+                sb.setCharAt(i, (char) (sb.charAt(i) - '0' + zero));
+            }
+        }
+    }
+
+    private static int digitCount(long magnitude) {
+        int digits = 1;
+        while (magnitude >= 10) {
+            magnitude /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static Symbols currentSymbols() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        Symbols s = symbols;
+        if (!s.locale.equals(locale)) {
+            s = new Symbols(locale);
+            symbols = s;
+        }
+        return s;
+    }
+
+    private static class Symbols {
+        final Locale locale;
+        final char zero;
+        final char groupingSeparator; // '\0' when the locale does not group digits
+        final int groupingSize;
+
+        Symbols(Locale locale) {
+            this.locale = locale;
+            if (locale.equals(Locale.US)) {
+                zero = '0';
+                groupingSeparator = ',';
+                groupingSize = 3;
+                return;
+            }
+
+            DecimalFormatSymbols dfs = DecimalFormatSymbols.getInstance(locale);
+            char separator = dfs.getGroupingSeparator();
+            int size = 3;
+            NumberFormat nf = NumberFormat.getNumberInstance(locale);
+            if (nf instanceof DecimalFormat) {
+                DecimalFormat df = (DecimalFormat) nf;
+                size = df.getGroupingSize();
+                if (!df.isGroupingUsed() || size == 0) {
+                    separator = '\0';
+                }
+            }
+            zero = dfs.getZeroDigit();
+            groupingSeparator = separator;
+            groupingSize = size;
+        }
+    }
+}
@@ -1,5 +1,5 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents a single Pokémon item with attributes such as name, category,
@@ -14,7 +14,8 @@ public abstract class Item {
     private final String description;
     private final String effect;
     private final int sellingPrice;
-    private int stock;
+    private final AtomicInteger stock; // Updated with compare-and-set so concurrent buyers cannot oversell
+    private final LongAdder stockRetries = new LongAdder(); // Lost compare-and-set races on stock
 
     /**
      * Constructs an Item with all necessary properties.
@@ -35,7 +36,7 @@ public abstract class Item {
         this.effect = effect;
         this.buyingPrice = buyingPrice;
         this.sellingPrice = sellingPrice;
-        this.stock = stock;
+        this.stock = new AtomicInteger(stock);
     }
 
     // Getters
@@ -86,7 +87,7 @@ public abstract class Item {
      * @return the current stock quantity
      */
     public int getStock() {
-        return stock;
+        return stock.get();
     }
 
     /**
@@ -95,183 +96,78 @@ public abstract class Item {
      * @param stock the new stock quantity
      */
     public void setStock(int stock) {
-        this.stock = stock;
-    }
-
-    public abstract void use(Pokemon pokemon, PokemonManager manager);
-
-    public String displayInfo() {
-        StringBuilder details = new StringBuilder();
-        details.append("Name: ").append(name).append("\n");
-        details.append("Category: ").append(category).append("\n");
-        details.append("Description: ").append(description).append("\n");
-        details.append("Effect: ").append(effect).append("\n");
-        details.append("Buying Price: ");
-        if (buyingPrice == -1) {
-            details.append("N/A (Not for sale)\n");
-        } else {
-            details.append("$").append(buyingPrice).append("\n");
-        }
-        details.append("Selling Price: ");
-        if (sellingPrice == -1) {
-            details.append("N/A (Cannot be sold)\n");
-        } else {
-            details.append("$").append(sellingPrice).append("\n");
-        }
-        details.append("Current Stock: ").append(stock);
-        return details.toString();
-    }
-}
-
-/**
- * Manages a collection of Pokémon items and provides functionality
- * for viewing, searching, and retrieving items.
- */
-class ItemManager {
-
-    private final List<Item> itemList; // List to store all the item objects
-
-
-    public ItemManager() {
-        itemList = new ArrayList<>();
-        populateInitialItems();
-    }
-
-    /**
-     * Populates the item list with predefined sample items.
-     * Includes Vitamins, Feathers, Leveling Items, and Evolution Stones.
-     */
-    public void populateInitialItems() {
-        // Vitamins (boost EVs)
-        itemList.add(new Vitamin("Calcium", "A nutritious drink for Pokémon.", "+10 Special Attack EVs", 10000, 5000, 10, "Special Attack"));
-        itemList.add(new Vitamin("Carbos", "A nutritious drink for Pokémon.", "+10 Speed EVs", 10000, 5000, 10, "Speed"));
-        itemList.add(new Vitamin("HP Up", "A nutritious drink for Pokémon.", "+10 HP EVs", 10000, 5000, 10, "HP"));
-        itemList.add(new Vitamin("Iron", "A nutritious drink for Pokémon.", "+10 Defense EVs", 10000, 5000, 10, "Defense"));
-        itemList.add(new Vitamin("Protein", "A nutritious drink for Pokémon.", "+10 Attack EVs", 10000, 5000, 10, "Attack"));
-        itemList.add(new Vitamin("Zinc", "A nutritious drink for Pokémon.", "+10 Special Defense EVs", 10000, 5000, 10, "Special Defense"));
-
-        // Feathers
-        itemList.add(new Feather("Health Feather", "Slightly increases HP.", "+1 HP EV", 300, 150, 10, "HP"));
-        itemList.add(new Feather("Muscle Feather", "Slightly increases Attack.", "+1 Attack EV", 300, 150, 10, "Attack"));
-        itemList.add(new Feather("Resist Feather", "Slightly increases Defense.", "+1 Defense EV", 300, 150, 10, "Defense"));
-        itemList.add(new Feather("Swift Feather", "Slightly increases Speed.", "+1 Speed EV", 300, 150, 10, "Speed"));
-        itemList.add(new Feather("Genius Feather", "Slightly increases Special Attack.", "+1 Special Attack EV", 300, 150, 10, "Special Attack"));
-        itemList.add(new Feather("Clever Feather", "Slightly increases Special Defense.", "+1 Special Defense EV", 300, 150, 10, "Special Defense"));
-
-        // Others
-        itemList.add(new RareCandy("Rare Candy", "A candy packed with energy.", "Increases level by 1", -1, 2400, 10));
-
-        // Evolution Stones
-        itemList.add(new EvolutionStone("Fire Stone", "Radiates heat.", "Evolves Vulpix, Growlithe, Eevee, etc.", 3000, 1500, 10, "Fire"));
-        itemList.add(new EvolutionStone("Water Stone", "Blue, watery appearance.", "Evolves Poliwhirl, Shellder, Eevee, etc.", 3000, 1500, 10, "Water"));
-        itemList.add(new EvolutionStone("Thunder Stone", "Sparkles with electricity.", "Evolves Pikachu, Eelektrik, Eevee, etc.", 3000, 1500, 10, "Electric"));
-        itemList.add(new EvolutionStone("Leaf Stone", "Leaf pattern.", "Evolves Gloom, Weepinbell, Exeggcute etc.", 3000, 1500, 10, "Grass"));
-        itemList.add(new EvolutionStone("Moon Stone", "Glows faintly.", "Evolves Nidorina, Clefairy, Jigglypuff, etc.", -1, 1500, 10, "Moon"));
-        itemList.add(new EvolutionStone("Sun Stone", "Glows like the sun.", "Evolves Gloom, Sunkern, Cottonee, etc.", 3000, 1500, 10, "Sun"));
-        itemList.add(new EvolutionStone("Shiny Stone", "Sparkles brightly.", "Evolves Togetic, Roselia, Minccino, etc.", 3000, 1500, 10, "Fairy"));
-        itemList.add(new EvolutionStone("Dusk Stone", "Ominous appearance.", "Evolves Murkrow, Misdreavus, Doublade, etc.", 3000, 1500, 10, "Dark"));
-        itemList.add(new EvolutionStone("Dawn Stone", "Sparkles like the morning sky.", "Evolves male Kirlia and female Snorunt.", 3000, 1500, 10, "Psychic"));
-        itemList.add(new EvolutionStone("Ice Stone", "Cold to the touch.", "Evolves Alolan Vulpix, etc.", 3000, 1500, 10, "Ice"));
-    }
-
-
-    public List<Item> getAllItems() {
-        return new ArrayList<>(itemList);
+        this.stock.set(stock);
     }
 
     /**
-     * Searches items by their name or effect using a keyword.
+     * Atomically takes units out of stock if enough are left.
      *
-     * @param keyword the search keyword entered by the user
+     * @param quantity the number of units to take
+     * @return {@code true} if the units were taken, {@code false} if stock is too low
      */
-    public List<Item> searchItemsByNameOrEffect(String keyword) {
-        List<Item> results = new ArrayList<>();
-        String lowerKeyword = keyword.toLowerCase();
-
-        for (Item item : itemList) {
-            if (item.getName().toLowerCase().contains(lowerKeyword) ||
-                    item.getEffect().toLowerCase().contains(lowerKeyword)) {
-                results.add(item);
+    boolean tryTakeStock(int quantity) {
+        while (true) {
+            int current = stock.get();
+            if (current < quantity) {
+                return false;
+            }
+            if (stock.compareAndSet(current, current - quantity)) {
+                return true;
             }
+            stockRetries.increment();
         }
-        return results;
     }
 
     /**
-     * Searches items by category (e.g., Vitamin, Feather).
+     * Atomically puts units back into stock.
      *
-     * @param category the category name to search
+     * @param quantity the number of units to add
      */
-    public List<Item> searchByCategory(String category) {
-        List<Item> results = new ArrayList<>();
-        for (Item item : itemList) {
-            if (item.getCategory().equalsIgnoreCase(category)) {
-                results.add(item);
-            }
-        }
-        return results;
+    void returnStock(int quantity) {
+        stock.addAndGet(quantity);
     }
 
     /**
-     * Finds and returns an item by its name (case-insensitive).
+     * Counts only lost compare-and-set races in {@link #tryTakeStock(int)},
+     * not lock waits or purchases refused for lack of stock.
      *
-     * @param heldItem the name of the item to find
-     * @return the Item if found, or null otherwise
+     * @return how many times a stock update had to be retried because another
+     *         buyer changed the stock first
      */
-    public Item findItem(String heldItem) {
-        for (Item item : itemList) {
-            if (item.getName().equalsIgnoreCase(heldItem)) {
-                return item;
-            }
-        }
-        return null;
-    }
-
-    public boolean itemExists(String item) {
-        return findItem(item) != null;
+    public long getStockContention() {
+        return stockRetries.sum();
     }
 
-    public int buyItem(String itemName, int quantity) {
-        Item item = findItem(itemName);
-
-        if (item == null) {      // Item not found
-            return -1;
-        }
-
-        if (quantity <= 0) {        // Invalid quantity
-            return -1;
-        }
-
-        if (item.getBuyingPrice() == -1) {      // There's no negative na price
-            return -1;
-        }
+    public abstract void use(Pokemon pokemon, PokemonManager manager);
 
-        if (item.getStock() >= quantity) {
-            item.setStock(item.getStock() - quantity);
-            return item.getBuyingPrice() * quantity;
-        } else {
-            return -1;
-        }
+    public String displayInfo() {
+        return appendInfo(new StringBuilder(200)).toString();
     }
 
-    public int sellItem(String itemName, int quantity) {
-        Item item = findItem(itemName);
-
-        if (item == null) {      // Item not found
-            return -1;
-        }
-
-        if (quantity <= 0) {        // Invalid quantity
-            return -1;
+    /**
+     * Appends the same text as {@link #displayInfo()} to a builder.
+     *
+     * @param details the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendInfo(StringBuilder details) {
+        details.append("Name: ").append(name).append("\n");
+        details.append("Category: ").append(category).append("\n");
+        details.append("Description: ").append(description).append("\n");
+        details.append("Effect: ").append(effect).append("\n");
+        details.append("Buying Price: ");
+        if (buyingPrice == -1) {
+            details.append("N/A (Not for sale)\n");
+        } else {
+            details.append("$").append(buyingPrice).append("\n");
         }
-
-        if (item.getSellingPrice() == -1) {      // There's no negative na price
-            return -1;
+        details.append("Selling Price: ");
+        if (sellingPrice == -1) {
+            details.append("N/A (Cannot be sold)\n");
+        } else {
+            details.append("$").append(sellingPrice).append("\n");
         }
-
-        item.setStock(item.getStock() + quantity);
-        return item.getSellingPrice() * quantity;
+        details.append("Current Stock: ").append(stock.get());
+        return details;
     }
-
-
-}
\ No newline at end of file
+}
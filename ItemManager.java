@@ -0,0 +1,461 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Manages a collection of Pokémon items and provides functionality
+ * for viewing, searching, and retrieving items.
+ */
+class ItemManager {
+
+    // Call counts and latencies, see Metrics
+    private static final Metrics.Timer SEARCH_TEXT_TIMER = Metrics.timer("items.searchItemsByNameOrEffect");
+    private static final Metrics.Timer SEARCH_CATEGORY_TIMER = Metrics.timer("items.searchByCategory");
+    private static final Metrics.Timer FIND_TIMER = Metrics.timer("items.findItem");
+    private static final Metrics.Timer BUY_TIMER = Metrics.timer("items.buyItem");
+    private static final Metrics.Timer BUY_CART_TIMER = Metrics.timer("items.buyCart");
+    private static final Metrics.Timer PURCHASE_TIMER = Metrics.timer("items.purchase");
+    private static final Metrics.Timer SALE_TIMER = Metrics.timer("items.sale");
+    private static final Metrics.Timer SELL_TIMER = Metrics.timer("items.sellItem");
+    private static final Metrics.Timer ALL_TIMER = Metrics.timer("items.getAllItems");
+    private static final Metrics.Timer EXISTS_TIMER = Metrics.timer("items.itemExists");
+
+    // The stored items and their search index; replaced as a whole by the synchronized writers
+    private volatile ItemState state = ItemState.EMPTY;
+    private volatile TrainerJournal journal; // null when stock changes are not journaled
+    private volatile long stockSnapshotSequence; // see getStockSnapshotSequence
+
+    public ItemManager() {
+        populateInitialItems();
+    }
+
+    /**
+     * Populates the item list with predefined sample items.
+     * Includes Vitamins, Feathers, Leveling Items, and Evolution Stones.
+     */
+    public synchronized void populateInitialItems() {
+        List<Item> itemList = new ArrayList<>();
+
+        // Vitamins (boost EVs)
+        itemList.add(new Vitamin("Calcium", "A nutritious drink for Pokémon.", "+10 Special Attack EVs", 10000, 5000, 10, "Special Attack"));
+        itemList.add(new Vitamin("Carbos", "A nutritious drink for Pokémon.", "+10 Speed EVs", 10000, 5000, 10, "Speed"));
+        itemList.add(new Vitamin("HP Up", "A nutritious drink for Pokémon.", "+10 HP EVs", 10000, 5000, 10, "HP"));
+        itemList.add(new Vitamin("Iron", "A nutritious drink for Pokémon.", "+10 Defense EVs", 10000, 5000, 10, "Defense"));
+        itemList.add(new Vitamin("Protein", "A nutritious drink for Pokémon.", "+10 Attack EVs", 10000, 5000, 10, "Attack"));
+        itemList.add(new Vitamin("Zinc", "A nutritious drink for Pokémon.", "+10 Special Defense EVs", 10000, 5000, 10, "Special Defense"));
+
+        // Feathers
+        itemList.add(new Feather("Health Feather", "Slightly increases HP.", "+1 HP EV", 300, 150, 10, "HP"));
+        itemList.add(new Feather("Muscle Feather", "Slightly increases Attack.", "+1 Attack EV", 300, 150, 10, "Attack"));
+        itemList.add(new Feather("Resist Feather", "Slightly increases Defense.", "+1 Defense EV", 300, 150, 10, "Defense"));
+        itemList.add(new Feather("Swift Feather", "Slightly increases Speed.", "+1 Speed EV", 300, 150, 10, "Speed"));
+        itemList.add(new Feather("Genius Feather", "Slightly increases Special Attack.", "+1 Special Attack EV", 300, 150, 10, "Special Attack"));
+        itemList.add(new Feather("Clever Feather", "Slightly increases Special Defense.", "+1 Special Defense EV", 300, 150, 10, "Special Defense"));
+
+        // Others
+        itemList.add(new RareCandy("Rare Candy", "A candy packed with energy.", "Increases level by 1", -1, 2400, 10));
+
+        // Evolution Stones
+        itemList.add(new EvolutionStone("Fire Stone", "Radiates heat.", "Evolves Vulpix, Growlithe, Eevee, etc.", 3000, 1500, 10, "Fire"));
+        itemList.add(new EvolutionStone("Water Stone", "Blue, watery appearance.", "Evolves Poliwhirl, Shellder, Eevee, etc.", 3000, 1500, 10, "Water"));
+        itemList.add(new EvolutionStone("Thunder Stone", "Sparkles with electricity.", "Evolves Pikachu, Eelektrik, Eevee, etc.", 3000, 1500, 10, "Electric"));
+        itemList.add(new EvolutionStone("Leaf Stone", "Leaf pattern.", "Evolves Gloom, Weepinbell, Exeggcute etc.", 3000, 1500, 10, "Grass"));
+        itemList.add(new EvolutionStone("Moon Stone", "Glows faintly.", "Evolves Nidorina, Clefairy, Jigglypuff, etc.", -1, 1500, 10, "Moon"));
+        itemList.add(new EvolutionStone("Sun Stone", "Glows like the sun.", "Evolves Gloom, Sunkern, Cottonee, etc.", 3000, 1500, 10, "Sun"));
+        itemList.add(new EvolutionStone("Shiny Stone", "Sparkles brightly.", "Evolves Togetic, Roselia, Minccino, etc.", 3000, 1500, 10, "Fairy"));
+        itemList.add(new EvolutionStone("Dusk Stone", "Ominous appearance.", "Evolves Murkrow, Misdreavus, Doublade, etc.", 3000, 1500, 10, "Dark"));
+        itemList.add(new EvolutionStone("Dawn Stone", "Sparkles like the morning sky.", "Evolves male Kirlia and female Snorunt.", 3000, 1500, 10, "Psychic"));
+        itemList.add(new EvolutionStone("Ice Stone", "Cold to the touch.", "Evolves Alolan Vulpix, etc.", 3000, 1500, 10, "Ice"));
+
+        addAll(itemList);
+    }
+
+    /**
+     * Replaces every stored item, e.g. when loading a snapshot.
+     *
+     * @param loaded the items to store
+     */
+    synchronized void restore(List<Item> loaded) {
+        restore(loaded, 0);
+    }
+
+    /**
+     * Replaces every stored item with ones loaded from a snapshot.
+     *
+     * @param loaded         the items to store
+     * @param stockSequence  the last journal entry the loaded stock includes
+     */
+    synchronized void restore(List<Item> loaded, long stockSequence) {
+        state = new ItemState(new ArrayList<>(loaded));
+        stockSnapshotSequence = stockSequence;
+    }
+
+    /**
+     * Adds items that were already validated, e.g. by {@link BulkImporter},
+     * copying the item list and rebuilding the search index once for all of
+     * them. Items whose name is already stored, or taken by an earlier one in
+     * the batch, are left out.
+     *
+     * @param items the items to add, in order
+     * @return the items that were left out
+     */
+    synchronized List<Item> addAll(List<Item> items) {
+        List<Item> combined = new ArrayList<>(state.items);
+        Set<String> names = new HashSet<>();
+        for (Item item : combined) {
+            names.add(item.getName().toLowerCase(Locale.ROOT));
+        }
+        List<Item> rejected = new ArrayList<>();
+        for (Item item : items) {
+            if (names.add(item.getName().toLowerCase(Locale.ROOT))) {
+                combined.add(item);
+            } else {
+                rejected.add(item);
+            }
+        }
+        state = new ItemState(combined);
+        return rejected;
+    }
+
+
+    /**
+     * Gets the sequence number of the last journal entry whose stock change
+     * the loaded snapshot already includes.
+     *
+     * @return the sequence number, or 0 if the stock was not loaded from a snapshot
+     */
+    long getStockSnapshotSequence() {
+        return stockSnapshotSequence;
+    }
+
+    /**
+     * Sets the journal that stock changes are recorded in. Changes made as
+     * part of a trainer's purchase or sale are recorded with the trainer's
+     * entry; this covers {@link #buyItem}, {@link #sellItem} and
+     * {@link #buyCart}. The journal makes each change together with its
+     * entry.
+     *
+     * @param journal the journal, or null to stop recording
+     */
+    public void attachJournal(TrainerJournal journal) {
+        this.journal = journal;
+    }
+
+    public List<Item> getAllItems() {
+        long startNanos = ALL_TIMER.start();
+        try {
+            return new ArrayList<>(state.items);
+        } finally {
+            ALL_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets every item without copying on each call. The same unmodifiable
+     * list is returned until the items are restored.
+     *
+     * @return an unmodifiable list of all items
+     */
+    public List<Item> getAllItemsView() {
+        return state.items;
+    }
+
+    /**
+     * Searches items by the words in their name or effect. Every word of the
+     * keyword must appear in a word of the item, e.g. "sp att" finds Calcium.
+     *
+     * @param keyword the search keyword entered by the user
+     */
+    public List<Item> searchItemsByNameOrEffect(String keyword) {
+        long startNanos = SEARCH_TEXT_TIMER.start();
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        try {
+            List<Item> matches = state.textIndex.search(keyword);
+            event.complete("items.searchByNameOrEffect", keyword, matches.size());
+            return matches;
+        } finally {
+            SEARCH_TEXT_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Searches items by category (e.g., Vitamin, Feather).
+     *
+     * @param category the category name to search
+     */
+    public List<Item> searchByCategory(String category) {
+        long startNanos = SEARCH_CATEGORY_TIMER.start();
+        try {
+            List<Item> results = new ArrayList<>();
+            for (Item item : state.items) {
+                if (item.getCategory().equalsIgnoreCase(category)) {
+                    results.add(item);
+                }
+            }
+            return results;
+        } finally {
+            SEARCH_CATEGORY_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Finds and returns an item by its name (case-insensitive).
+     *
+     * @param heldItem the name of the item to find
+     * @return the Item if found, or null otherwise
+     */
+    public Item findItem(String heldItem) {
+        long startNanos = FIND_TIMER.start();
+        try {
+            return findByName(heldItem);
+        } finally {
+            FIND_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Looks up an item like {@link #findItem(String)} without timing the
+     * call, for use inside other operations.
+     */
+    private Item findByName(String heldItem) {
+        for (Item item : state.items) {
+            if (item.getName().equalsIgnoreCase(heldItem)) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    public boolean itemExists(String item) {
+        long startNanos = EXISTS_TIMER.start();
+        try {
+            return findByName(item) != null;
+        } finally {
+            EXISTS_TIMER.stop(startNanos);
+        }
+    }
+
+    public int buyItem(String itemName, int quantity) {
+        long startNanos = BUY_TIMER.start();
+        ShopEvent event = new ShopEvent();
+        event.begin();
+        int total = -1;
+        try {
+            total = takeStock(itemName, quantity);
+            return total;
+        } finally {
+            BUY_TIMER.stop(startNanos);
+            event.complete("buyItem", 0, itemName, quantity, 0, total >= 0);
+        }
+    }
+
+    private int takeStock(String itemName, int quantity) {
+        Item item = findByName(itemName);
+
+        if (item == null) {      // Item not found
+            return -1;
+        }
+
+        if (quantity <= 0) {        // Invalid quantity
+            return -1;
+        }
+
+        if (item.getBuyingPrice() == -1) {      // There's no negative na price
+            return -1;
+        }
+
+        TrainerJournal log = journal;
+        boolean taken = log != null ? log.logStock(item, -quantity) : item.tryTakeStock(quantity);
+        return taken ? item.getBuyingPrice() * quantity : -1;
+    }
+
+    /**
+     * Buys several items at once. Either every line of the cart is taken from
+     * stock or none is.
+     *
+     * @param cart item names mapped to the quantity wanted
+     * @return the total price, or -1 if any item is unknown, not for sale,
+     *         has an invalid quantity or is out of stock
+     */
+    public int buyCart(Map<String, Integer> cart) {
+        long startNanos = BUY_CART_TIMER.start();
+        try {
+            // Resolve every line first, merging lines that name the same item
+            Map<Item, Integer> lines = new IdentityHashMap<>();
+            for (Map.Entry<String, Integer> line : cart.entrySet()) {
+                Item item = findByName(line.getKey());
+                Integer quantity = line.getValue();
+                if (item == null || quantity == null || quantity <= 0 || item.getBuyingPrice() == -1) {
+                    return -1;
+                }
+                lines.merge(item, quantity, Integer::sum);
+            }
+
+            int total = 0;
+            for (Map.Entry<Item, Integer> line : lines.entrySet()) {
+                total += line.getKey().getBuyingPrice() * line.getValue();
+            }
+
+            TrainerJournal log = journal;
+            boolean taken = log != null ? log.logStockTaken(lines) : tryTakeAll(lines);
+            return taken ? total : -1;
+        } finally {
+            BUY_CART_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Takes every line from stock, or puts back what was taken and returns
+     * {@code false} as soon as one line is short.
+     */
+    static boolean tryTakeAll(Map<Item, Integer> lines) {
+        List<Map.Entry<Item, Integer>> reserved = new ArrayList<>();
+        for (Map.Entry<Item, Integer> line : lines.entrySet()) {
+            if (!line.getKey().tryTakeStock(line.getValue())) {
+                for (Map.Entry<Item, Integer> undo : reserved) {
+                    undo.getKey().returnStock(undo.getValue());
+                }
+                return false;
+            }
+            reserved.add(line);
+        }
+        return true;
+    }
+
+    /**
+     * Buys items for a trainer as one transaction: the trainer's money and bag
+     * limits are checked, stock is taken, money is paid and the items go into
+     * the bag, or nothing changes at all. Only the trainer being served is
+     * locked; the stock is taken with compare-and-set (inside the journal's
+     * lock, with its entry, when journaled), so many trainers can buy at the
+     * same time.
+     *
+     * @param trainer  the buyer
+     * @param itemName the name of the item
+     * @param quantity the number of units
+     * @return the total price paid, or -1 if the purchase was refused
+     */
+    public int purchase(Trainer trainer, String itemName, int quantity) {
+        long startNanos = PURCHASE_TIMER.start();
+        try {
+            Item item = findByName(itemName);
+            if (item == null || quantity <= 0 || item.getBuyingPrice() == -1) {
+                return -1;
+            }
+
+            if (!trainer.processPurchase(item, quantity, true)) {
+                return -1; // refused by the trainer, or out of stock
+            }
+            return item.getBuyingPrice() * quantity;
+        } finally {
+            PURCHASE_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Sells items from a trainer's bag back to the shop as one transaction:
+     * the items leave the bag, the trainer is paid and the stock goes up, or
+     * nothing changes at all.
+     *
+     * @param trainer  the seller
+     * @param itemName the name of the item
+     * @param quantity the number of units
+     * @return the total amount paid to the trainer, or -1 if the sale was refused
+     */
+    public int sale(Trainer trainer, String itemName, int quantity) {
+        long startNanos = SALE_TIMER.start();
+        try {
+            Item item = findByName(itemName);
+            if (item == null || quantity <= 0 || item.getSellingPrice() == -1) {
+                return -1;
+            }
+
+            if (!trainer.processSale(item, quantity, true)) {
+                return -1;
+            }
+            return item.getSellingPrice() * quantity;
+        } finally {
+            SALE_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Reports how contended each item's stock has been, as the number of
+     * compare-and-set retries: a buyer that lost the race and tried again is
+     * counted, but time spent waiting on a trainer's lock or failed purchases
+     * for lack of stock are not.
+     *
+     * @return item names mapped to the number of retried stock updates
+     */
+    public Map<String, Long> getStockContention() {
+        Map<String, Long> contention = new LinkedHashMap<>();
+        for (Item item : state.items) {
+            contention.put(item.getName(), item.getStockContention());
+        }
+        return contention;
+    }
+
+    public int sellItem(String itemName, int quantity) {
+        long startNanos = SELL_TIMER.start();
+        ShopEvent event = new ShopEvent();
+        event.begin();
+        int total = -1;
+        try {
+            total = giveStock(itemName, quantity);
+            return total;
+        } finally {
+            SELL_TIMER.stop(startNanos);
+            event.complete("sellItem", 0, itemName, quantity, 0, total >= 0);
+        }
+    }
+
+    private int giveStock(String itemName, int quantity) {
+        Item item = findByName(itemName);
+
+        if (item == null) {      // Item not found
+            return -1;
+        }
+
+        if (quantity <= 0) {        // Invalid quantity
+            return -1;
+        }
+
+        if (item.getSellingPrice() == -1) {      // There's no negative na price
+            return -1;
+        }
+
+        TrainerJournal log = journal;
+        if (log != null) {
+            log.logStock(item, quantity);
+        } else {
+            item.returnStock(quantity);
+        }
+        return item.getSellingPrice() * quantity;
+    }
+
+    /**
+     * The stored items together with their search index. A state is never
+     * changed once published, so readers need no locking; writers build a
+     * new state off to the side and publish it with one volatile write.
+     */
+    private static final class ItemState {
+        static final ItemState EMPTY = new ItemState(new ArrayList<>());
+
+        final List<Item> items; // unmodifiable, also handed out by getAllItemsView
+        final TextIndex<Item> textIndex = new TextIndex<>(); // name and effect words
+
+        ItemState(List<Item> items) {
+            this.items = Collections.unmodifiableList(items);
+            for (Item item : items) {
+                textIndex.add(item, item.getName(), item.getEffect());
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,271 @@
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts and times the public operations of the managers. Each operation has
+ * a {@link Timer} that records how often it ran and how long it took into a
+ * log-bucketed latency histogram. Recording only updates adders and atomic
+ * array slots, so it never blocks.
+ * <p>
+ * Recording is off unless the {@code pokedex.metrics} system property is
+ * {@code true} or {@link #setEnabled(boolean)} turns it on: timing a lookup
+ * that takes a few nanoseconds costs many times the lookup itself. View
+ * getters and streams are not timed, since they return in constant time and
+ * a stream does its work only when it is consumed.
+ */
+public class Metrics {
+    private static final Map<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = Boolean.getBoolean("pokedex.metrics");
+
+    /**
+     * Returned by {@link Timer#start()} while metrics are disabled.
+     */
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    /**
+     * Gets the timer for an operation, creating it on first use.
+     *
+     * @param operation the operation name, e.g. "pokemon.searchByName"
+     * @return the timer
+     */
+    public static Timer timer(String operation) {
+        return TIMERS.computeIfAbsent(operation, Timer::new);
+    }
+
+    /**
+     * Turns recording on or off. Timers keep what they have recorded so far.
+     *
+     * @param on {@code true} to record operations
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Takes a snapshot of every timer.
+     *
+     * @return the snapshots by operation name, sorted by name
+     */
+    public static Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        for (Timer timer : TIMERS.values()) {
+            snapshots.put(timer.operation, timer.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * Writes every timer in the Prometheus text format: a call count, the
+     * total time and the 50th, 90th, 99th and 100th latency percentiles of
+     * each operation, in seconds.
+     *
+     * @return the exported text
+     */
+    public static String exportText() {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE pokedex_operation_seconds summary\n");
+        for (Snapshot s : snapshot().values()) {
+            String label = "{operation=\"" + s.getOperation() + "\"";
+            appendQuantile(out, label, "0.5", s.getPercentileNanos(50));
+            appendQuantile(out, label, "0.9", s.getPercentileNanos(90));
+            appendQuantile(out, label, "0.99", s.getPercentileNanos(99));
+            appendQuantile(out, label, "1", s.getMaxNanos());
+            out.append("pokedex_operation_seconds_sum").append(label).append("} ").append(s.getTotalNanos() / 1e9).append('\n');
+            out.append("pokedex_operation_seconds_count").append(label).append("} ").append(s.getCount()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void appendQuantile(StringBuilder out, String label, String quantile, long nanos) {
+        out.append("pokedex_operation_seconds").append(label).append(",quantile=\"").append(quantile).append("\"} ")
+                .append(nanos / 1e9).append('\n');
+    }
+
+    /**
+     * Records the calls of one operation.
+     * <p>
+     * Latencies go into a histogram with {@value #SUB_BUCKETS} buckets per
+     * power of two, so a recorded value is known to within 12.5%. Values below
+     * {@value #SUB_BUCKETS} nanoseconds get a bucket each. Like a
+     * {@link LongAdder}, the histogram is split into stripes that threads pick
+     * by identity, so threads timing the same operation rarely update the same
+     * counters; a stripe is allocated when a thread first lands on it.
+     */
+    public static class Timer {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+        private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+        private static final int STRIPES =
+                Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1), 64);
+
+        private final String operation;
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+        Timer(String operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * Marks the start of a call. Pass the result to {@link #stop(long)}
+         * when the call ends, normally in a {@code finally} block.
+         *
+         * @return the start time
+         */
+        public long start() {
+            return enabled ? System.nanoTime() : NOT_TIMED;
+        }
+
+        /**
+         * Records a call that started at the given time.
+         *
+         * @param startNanos the value returned by {@link #start()}
+         */
+        public void stop(long startNanos) {
+            if (startNanos != NOT_TIMED) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * Records a call that took the given time.
+         *
+         * @param nanos the duration in nanoseconds; negative values count as 0
+         */
+        public void record(long nanos) {
+            long value = Math.max(nanos, 0);
+            totalNanos.add(value);
+            maxNanos.accumulate(value);
+            stripe().incrementAndGet(bucketOf(value));
+        }
+
+        private AtomicLongArray stripe() {
+            int h = System.identityHashCode(Thread.currentThread());
+            int index = (h ^ (h >>> 16)) & (STRIPES - 1);
+            AtomicLongArray stripe = stripes.get(index);
+            if (stripe == null) {
+                stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS));
+                stripe = stripes.get(index);
+            }
+            return stripe;
+        }
+
+        /**
+         * Copies the current counts. Calls recorded while the copy is made may
+         * be only partly included.
+         *
+         * @return the snapshot
+         */
+        public Snapshot snapshot() {
+            long[] copy = new long[BUCKETS];
+            long count = 0;
+            for (int s = 0; s < STRIPES; s++) {
+                AtomicLongArray stripe = stripes.get(s);
+                if (stripe == null) {
+                    continue;
+                }
+                for (int i = 0; i < BUCKETS; i++) {
+                    long c = stripe.get(i);
+                    copy[i] += c;
+                    count += c;
+                }
+            }
+            return new Snapshot(operation, count, totalNanos.sum(), maxNanos.get(), copy);
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * @return the largest value that falls into the given bucket
+         */
+        static long highestValueIn(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+            long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            long lowest = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+            return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+
+    /**
+     * The counts of one operation at one point in time.
+     */
+    public static class Snapshot {
+        private final String operation;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] buckets;
+
+        Snapshot(String operation, long count, long totalNanos, long maxNanos, long[] buckets) {
+            this.operation = operation;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getMeanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+
+        /**
+         * Gets a latency percentile, e.g. 99 for the time that 99% of calls
+         * stayed within. The result is the top of the histogram bucket the
+         * percentile falls in, capped at the largest recorded value.
+         *
+         * @param percentile from 0 to 100
+         * @return the latency in nanoseconds, or 0 if nothing was recorded
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            for (long c : buckets) {
+                total += c;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = Math.max((long) Math.ceil(total * percentile / 100), 1);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(Timer.highestValueIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
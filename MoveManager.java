@@ -0,0 +1,337 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Manages a collection of Pokémon moves, including adding, viewing, and
+ * searching.
+ * <p>
+ * The methods that add moves are synchronized, so a bulk import and a move
+ * added by hand cannot both take the same name. Reads are not locked and
+ * must not run while a move is being added.
+ */
+class MoveManager {
+
+    // Call counts and latencies, see Metrics
+    private static final Metrics.Timer ADD_TIMER = Metrics.timer("moves.addMove");
+    private static final Metrics.Timer ALL_INFO_TIMER = Metrics.timer("moves.getAllMoveInfoStrings");
+    private static final Metrics.Timer SEARCH_TEXT_TIMER = Metrics.timer("moves.searchByNameOrEffect");
+    private static final Metrics.Timer SEARCH_TYPES_TIMER = Metrics.timer("moves.searchByTypes");
+    private static final Metrics.Timer SEARCH_CLASS_TIMER = Metrics.timer("moves.searchByClassification");
+    private static final Metrics.Timer FIND_TIMER = Metrics.timer("moves.findMove");
+    private static final Metrics.Timer NAME_TAKEN_TIMER = Metrics.timer("moves.isMoveNameTaken");
+    private static final Metrics.Timer ALL_TIMER = Metrics.timer("moves.getAllMoves");
+    private static final Metrics.Timer INFO_PAGE_TIMER = Metrics.timer("moves.getMoveInfoPage");
+
+    private final List<Move> moveList;
+    private final TypeIndex typeIndex = new TypeIndex(); // keyed by position in moveList
+    private final TextIndex<Move> textIndex = new TextIndex<>(); // name and description words
+    private volatile List<Move> movesView; // shared copy handed out by getAllMovesView, dropped on change
+
+    public MoveManager() {
+        moveList = new ArrayList<>();
+        loadDefaultMoves();
+    }
+
+    /**
+     * Prompts the user to input a new move and adds it to the list if valid.
+     */
+    public synchronized boolean addMove(String name, String description, Move.Classification classification, String primaryType, String secondaryType) {
+        long startNanos = ADD_TIMER.start();
+        try {
+            Move newMove = createMove(name, description, classification, primaryType, secondaryType);
+            if (newMove == null || nameTaken(newMove.getName())) {
+                return false; // Invalid, or the name already exists
+            }
+            storeMove(newMove);
+            return true;
+        } finally {
+            ADD_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Validates the fields of a new move and builds it, capitalizing the name
+     * and description and ending the description with a period. Does not
+     * check whether the name is taken.
+     *
+     * @return the move, or null if a field is missing or invalid
+     */
+    static Move createMove(String name, String description, Move.Classification classification, String primaryType,
+                           String secondaryType) {
+        if (name == null || name.trim().isEmpty() || description == null || description.trim().isEmpty() ||
+                primaryType == null || primaryType.trim().isEmpty() || classification == null) {
+            return null;
+        }
+
+        String formattedName = name.substring(0, 1).toUpperCase() + name.substring(1);
+        String formattedDescription = description.substring(0, 1).toUpperCase() + description.substring(1);
+        if (!formattedDescription.endsWith(".")) {
+            formattedDescription += "."; // Ensure consistency
+        }
+
+
+        if (!formattedName.matches("[A-Za-z0-9.\\-\\s'()]+")) {
+            return null;
+        }
+        if (!formattedDescription.matches("[A-Za-z0-9.,'\\-()/\\%\\s]+")) {
+            return null;
+        }
+        PokemonType parsedPrimaryType = TypeUtils.parseType(primaryType);
+        if (parsedPrimaryType == null) {
+            return null;
+        }
+        PokemonType parsedSecondaryType = null;
+        if (secondaryType != null && !secondaryType.isEmpty()) {
+            parsedSecondaryType = TypeUtils.parseType(secondaryType);
+            if (parsedSecondaryType == null) {
+                return null;
+            }
+        }
+        if (parsedSecondaryType == parsedPrimaryType) {
+            return null;
+        }
+
+        return new Move(formattedName, formattedDescription, classification, parsedPrimaryType, parsedSecondaryType);
+    }
+
+    /**
+     * Checks if a move name already exists in the list.
+     *
+     * @param name the move name to check
+     * @return true if name is taken, false otherwise
+     */
+    public boolean isMoveNameTaken(String name) {
+        long startNanos = NAME_TAKEN_TIMER.start();
+        try {
+            return nameTaken(name);
+        } finally {
+            NAME_TAKEN_TIMER.stop(startNanos);
+        }
+    }
+
+    private boolean nameTaken(String name) {
+        for (Move m : moveList) {
+            if (m.getName().equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<Move> getAllMoves() {
+        long startNanos = ALL_TIMER.start();
+        try {
+            return new ArrayList<>(moveList);
+        } finally {
+            ALL_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets every move without copying on each call. The same unmodifiable
+     * list is returned until a move is added or the moves are restored.
+     *
+     * @return an unmodifiable list of all moves
+     */
+    public List<Move> getAllMovesView() {
+        List<Move> view = movesView;
+        if (view == null) {
+            view = Collections.unmodifiableList(new ArrayList<>(moveList));
+            movesView = view;
+        }
+        return view;
+    }
+
+    public List<String> getAllMoveInfoStrings() {
+        long startNanos = ALL_INFO_TIMER.start();
+        try {
+            List<String> output = new ArrayList<>(moveList.size());
+            StringBuilder info = new StringBuilder(160);
+
+            for (Move m : moveList) {
+                info.setLength(0);
+                output.add(m.appendInfo(info).toString());
+            }
+            return output;
+        } finally {
+            ALL_INFO_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets one page of {@link #getAllMoveInfoStrings()}, formatting only the
+     * moves on that page.
+     *
+     * @param cursor   0 for the first page, otherwise the previous page's next cursor
+     * @param pageSize the most moves to return
+     * @return the page of formatted lines, in the order the moves were added
+     */
+    public Page<String> getMoveInfoPage(int cursor, int pageSize) {
+        long startNanos = INFO_PAGE_TIMER.start();
+        try {
+            return Page.of(getAllMovesView(), cursor, pageSize).map(Move::displayInfo);
+        } finally {
+            INFO_PAGE_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Streams the formatted line of every move, formatting each one only
+     * when the stream reaches it.
+     *
+     * @return a stream of formatted lines, in the order the moves were added
+     */
+    public Stream<String> streamMoveInfo() {
+        return getAllMovesView().stream().map(Move::displayInfo);
+    }
+
+    /**
+     * Searches moves by the words in their name or description. Every word of
+     * the keyword must appear in a word of the move, e.g. "rais def" finds Defend
+     * and "ckle" finds Tackle.
+     *
+     * @param keyword one or more words to search for
+     * @return the matching moves in list order
+     */
+    public List<Move> searchByNameOrEffect(String keyword) {
+        long startNanos = SEARCH_TEXT_TIMER.start();
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        try {
+            List<Move> matches = textIndex.search(keyword);
+            event.complete("moves.searchByNameOrEffect", keyword, matches.size());
+            return matches;
+        } finally {
+            SEARCH_TEXT_TIMER.stop(startNanos);
+        }
+    }
+
+    public List<Move> searchByType(String typeName) {
+        return searchByTypes(typeName);
+    }
+
+    /**
+     * Searches for moves that have all of the given types.
+     *
+     * @param typeNames the type names to search for
+     * @return the matching moves in list order
+     */
+    public List<Move> searchByTypes(String... typeNames) {
+        long startNanos = SEARCH_TYPES_TIMER.start();
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        try {
+            BitSet hits = typeIndex.matchingAll(typeNames);
+            List<Move> results = new ArrayList<>(hits.cardinality());
+            for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+                results.add(moveList.get(i));
+            }
+            event.complete("moves.searchByTypes", typeNames, results.size());
+            return results;
+        } finally {
+            SEARCH_TYPES_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Searches for moves by classification (HM or TM).
+     *
+     * @param classification The classification to search (HM or TM).
+     * @return A List of Move objects that match the search criteria.
+     */
+    public List<Move> searchByClassification(Move.Classification classification) {
+        long startNanos = SEARCH_CLASS_TIMER.start();
+        try {
+            List<Move> results = new ArrayList<>();
+            for (Move m : moveList) {
+                if (m.getClassification() == classification) {
+                    results.add(m);
+                }
+            }
+            return results;
+        } finally {
+            SEARCH_CLASS_TIMER.stop(startNanos);
+        }
+    }
+
+
+    /**
+     * Loads two default sample moves when the program starts.
+     */
+    public void loadDefaultMoves() {
+        Move tackle = new Move("Tackle",
+                "Tackle is one of the most common and basic moves a Pokémon learns. It deals damage with no additional effects.",
+                Move.Classification.TM, PokemonType.NORMAL, null);
+        Move defend = new Move("Defend", "Raises user's defense stat temporarily.",
+                Move.Classification.TM, PokemonType.NORMAL, null);
+
+        storeMove(tackle);
+        storeMove(defend);
+    }
+
+    /**
+     * Replaces every stored move, e.g. when loading a snapshot.
+     *
+     * @param loaded the moves to store
+     */
+    synchronized void restore(List<Move> loaded) {
+        moveList.clear();
+        typeIndex.clear();
+        textIndex.clear();
+        for (Move m : loaded) {
+            storeMove(m);
+        }
+    }
+
+    /**
+     * Adds moves that were already validated, e.g. by {@link BulkImporter},
+     * checking their names against one set of the stored names instead of
+     * searching the list for each. Moves whose name is already stored, or
+     * taken by an earlier one in the batch, are left out.
+     *
+     * @param moves the moves to add, in order
+     * @return the moves that were left out
+     */
+    synchronized List<Move> addAll(List<Move> moves) {
+        Set<String> names = new HashSet<>();
+        for (Move m : moveList) {
+            names.add(m.getName().toLowerCase(Locale.ROOT));
+        }
+        List<Move> rejected = new ArrayList<>();
+        for (Move m : moves) {
+            if (names.add(m.getName().toLowerCase(Locale.ROOT))) {
+                storeMove(m);
+            } else {
+                rejected.add(m);
+            }
+        }
+        return rejected;
+    }
+
+    private void storeMove(Move move) {
+        typeIndex.add(moveList.size(), move.getPrimaryPokemonType(), move.getSecondaryPokemonType());
+        textIndex.add(move, move.getName(), move.getDescription());
+        moveList.add(move);
+        movesView = null;
+    }
+
+    public Move findMove(String moveName) {
+        long startNanos = FIND_TIMER.start();
+        try {
+            for (Move m : moveList) {
+                if (m.getName().equalsIgnoreCase(moveName)) {
+                    return m;
+                }
+            }
+            return null;
+        } finally {
+            FIND_TIMER.stop(startNanos);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A substring index over record names, keyed by the position of each record
+ * in its owning list like {@link TypeIndex}. Names are lower-cased once when
+ * they are added and broken into grams of one to three characters, so a query
+ * only folds itself and then checks the records that share its rarest
+ * trigram, or that contain it outright if it is shorter than three characters.
+ * Results are ranked with prefix matches first, each group in position order.
+ * <p>
+ * The index is immutable. {@link #withAdded} and {@link #withName} return a
+ * new version that shares the gram table with this one: records added or
+ * renamed since the table was built are kept in a pending list that queries
+ * check directly, and the table is rebuilt once that list outgrows a quarter
+ * of the records. A run of single changes therefore costs amortized constant
+ * time each. Versions must be created by one thread at a time, as with
+ * {@link AppendOnlyArray}.
+ */
+class NameIndex {
+    private static final int MIN_PENDING = 32;
+    private static final int GRAM = 3; // the longest gram in the table
+    private static final int[] NO_POSITIONS = new int[0];
+
+    static final NameIndex EMPTY = of(new String[0]); // after NO_POSITIONS, which it uses
+
+    private final AppendOnlyArray<String> folded; // folded names by position, as indexed or added
+    private final int size;
+    private final Map<String, int[]> grams; // positions below `indexed` by 1-, 2- and 3-character gram, ascending
+    private final int indexed;
+    private final int[] renamed; // positions renamed since the table was built, ascending
+    private final String[] renamedNames; // their folded names, in the same order
+
+    private NameIndex(AppendOnlyArray<String> folded, int size, Map<String, int[]> grams, int indexed,
+                      int[] renamed, String[] renamedNames) {
+        this.folded = folded;
+        this.size = size;
+        this.grams = grams;
+        this.indexed = indexed;
+        this.renamed = renamed;
+        this.renamedNames = renamedNames;
+    }
+
+    /**
+     * Indexes the given names.
+     *
+     * @param names the name of the record at each position
+     * @return the index
+     */
+    static NameIndex of(String[] names) {
+        String[] foldedNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            foldedNames[i] = fold(names[i]);
+        }
+        AppendOnlyArray<String> store = AppendOnlyArray.of(foldedNames);
+        return new NameIndex(store, names.length, buildGrams(store, names.length), names.length,
+                NO_POSITIONS, new String[0]);
+    }
+
+    /**
+     * Adds a record at the next position.
+     *
+     * @param name the name of the new record
+     * @return the new version of the index
+     */
+    NameIndex withAdded(String name) {
+        return settled(folded.append(size, fold(name)), size + 1, renamed, renamedNames);
+    }
+
+    /**
+     * Changes the name of the record at the given position.
+     *
+     * @param position the position of the record
+     * @param name     its new name
+     * @return the new version of the index, or this one if the name did not change
+     */
+    NameIndex withName(int position, String name) {
+        String f = fold(name);
+        if (f.equals(nameAt(position))) {
+            return this;
+        }
+
+        int i = Arrays.binarySearch(renamed, position);
+        int[] positions;
+        String[] names;
+        if (i >= 0) {
+            positions = renamed;
+            names = renamedNames.clone();
+            names[i] = f;
+        } else {
+            int at = -i - 1;
+            positions = new int[renamed.length + 1];
+            names = new String[renamed.length + 1];
+            System.arraycopy(renamed, 0, positions, 0, at);
+            System.arraycopy(renamedNames, 0, names, 0, at);
+            positions[at] = position;
+            names[at] = f;
+            System.arraycopy(renamed, at, positions, at + 1, renamed.length - at);
+            System.arraycopy(renamedNames, at, names, at + 1, renamed.length - at);
+        }
+        return settled(folded, size, positions, names);
+    }
+
+    /**
+     * Finds the records whose name contains the query (case-insensitive).
+     *
+     * @param query the name or part of a name to look for
+     * @return the positions of the matches, names starting with the query first
+     */
+    int[] search(String query) {
+        String q = fold(query);
+        Matches matches = new Matches(q);
+
+        if (q.isEmpty()) {
+            for (int pos = 0; pos < size; pos++) {
+                matches.check(pos, nameAt(pos));
+            }
+            return matches.positions();
+        }
+
+        // A short query is a gram itself, so its posting holds exactly the indexed names containing it
+        int gram = Math.min(q.length(), GRAM);
+        int[] rarest = null;
+        for (int i = 0; i + gram <= q.length(); i++) {
+            int[] posting = grams.getOrDefault(q.substring(i, i + gram), NO_POSITIONS);
+            if (rarest == null || posting.length < rarest.length) {
+                rarest = posting;
+            }
+        }
+
+        // The rarest posting and the renamed positions, merged in position order, then everything added since
+        int a = 0;
+        int b = 0;
+        while (true) {
+            int fromTable = a < rarest.length ? rarest[a] : Integer.MAX_VALUE;
+            int fromRenamed = b < renamed.length && renamed[b] < indexed ? renamed[b] : Integer.MAX_VALUE;
+            int pos = Math.min(fromTable, fromRenamed);
+            if (pos == Integer.MAX_VALUE) {
+                break;
+            }
+            matches.check(pos, nameAt(pos));
+            a += fromTable == pos ? 1 : 0;
+            b += fromRenamed == pos ? 1 : 0;
+        }
+        for (int pos = indexed; pos < size; pos++) {
+            matches.check(pos, nameAt(pos));
+        }
+        return matches.positions();
+    }
+
+    private String nameAt(int position) {
+        if (renamed.length > 0) {
+            int i = Arrays.binarySearch(renamed, position);
+            if (i >= 0) {
+                return renamedNames[i];
+            }
+        }
+        return folded.get(position);
+    }
+
+    /**
+     * Creates a version with the given names and pending changes, rebuilding
+     * the gram table if too many changes are pending.
+     */
+    private NameIndex settled(AppendOnlyArray<String> names, int count, int[] positions, String[] newNames) {
+        int pending = positions.length + count - indexed;
+        if (pending <= Math.max(MIN_PENDING, count / 4)) {
+            return new NameIndex(names, count, grams, indexed, positions, newNames);
+        }
+
+        AppendOnlyArray<String> store = names;
+        if (positions.length > 0) {
+            String[] current = new String[count];
+            for (int i = 0; i < count; i++) {
+                current[i] = names.get(i);
+            }
+            for (int i = 0; i < positions.length; i++) {
+                current[positions[i]] = newNames[i];
+            }
+            store = AppendOnlyArray.of(current);
+        }
+        return new NameIndex(store, count, buildGrams(store, count), count, NO_POSITIONS, new String[0]);
+    }
+
+    private static Map<String, int[]> buildGrams(AppendOnlyArray<String> names, int count) {
+        Map<String, Posting> postings = new HashMap<>();
+        for (int pos = 0; pos < count; pos++) {
+            String name = names.get(pos);
+            for (int i = 0; i < name.length(); i++) {
+                for (int end = i + 1; end <= Math.min(i + GRAM, name.length()); end++) {
+                    postings.computeIfAbsent(name.substring(i, end), k -> new Posting()).add(pos);
+                }
+            }
+        }
+
+        Map<String, int[]> table = new HashMap<>(postings.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Posting> e : postings.entrySet()) {
+            table.put(e.getKey(), Arrays.copyOf(e.getValue().positions, e.getValue().count));
+        }
+        return table;
+    }
+
+    private static String fold(String s) {
+        return s.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The positions under one gram while the table is being built.
+     */
+    private static final class Posting {
+        int[] positions = new int[4];
+        int count;
+
+        void add(int pos) {
+            if (count > 0 && positions[count - 1] == pos) {
+                return; // the gram occurs twice in one name
+            }
+            if (count == positions.length) {
+                positions = Arrays.copyOf(positions, count * 2);
+            }
+            positions[count++] = pos;
+        }
+    }
+
+    /**
+     * Collects the matching positions of one query in two ranks.
+     */
+    private static final class Matches {
+        private final String query;
+        private int[] prefix = new int[8];
+        private int prefixCount;
+        private int[] other = new int[8];
+        private int otherCount;
+
+        Matches(String query) {
+            this.query = query;
+        }
+
+        void check(int pos, String name) {
+            if (name.startsWith(query)) {
+                if (prefixCount == prefix.length) {
+                    prefix = Arrays.copyOf(prefix, prefixCount * 2);
+                }
+                prefix[prefixCount++] = pos;
+            } else if (name.contains(query)) {
+                if (otherCount == other.length) {
+                    other = Arrays.copyOf(other, otherCount * 2);
+                }
+                other[otherCount++] = pos;
+            }
+        }
+
+        int[] positions() {
+            int[] result = Arrays.copyOf(prefix, prefixCount + otherCount);
+            System.arraycopy(other, 0, result, prefixCount, otherCount);
+            return result;
+        }
+    }
+}
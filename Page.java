@@ -0,0 +1,74 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing together with the cursor for the page after it.
+ * A cursor is the position of the next record in the listing's order, so
+ * the first page is requested with cursor 0.
+ *
+ * @param <T> the type of the listed records
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final int nextCursor;
+
+    private Page(List<T> items, int nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Cuts one page out of an ordered listing without copying it.
+     *
+     * @param all      the full listing, in order; should not change while the page is in use
+     * @param cursor   the position of the first record on the page
+     * @param pageSize the most records the page may hold
+     * @return the page; empty if the cursor is past the end
+     * @throws IllegalArgumentException if the cursor is negative or the page size is not positive
+     */
+    static <T> Page<T> of(List<T> all, int cursor, int pageSize) {
+        if (cursor < 0 || pageSize <= 0) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor + " or page size " + pageSize);
+        }
+        int from = Math.min(cursor, all.size());
+        int to = (int) Math.min((long) from + pageSize, all.size());
+        return new Page<>(Collections.unmodifiableList(all.subList(from, to)), to < all.size() ? to : -1);
+    }
+
+    /**
+     * Converts the records on this page only, e.g. to format them for display.
+     *
+     * @param mapper the conversion to apply to each record
+     * @return a page of the converted records with the same cursor
+     */
+    public <R> Page<R> map(Function<? super T, ? extends R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        for (T item : items) {
+            mapped.add(mapper.apply(item));
+        }
+        return new Page<>(Collections.unmodifiableList(mapped), nextCursor);
+    }
+
+    /**
+     * @return the records on this page, in listing order
+     */
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the cursor of the next page, or -1 if this is the last page
+     */
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * @return {@code true} if another page follows this one
+     */
+    public boolean hasNext() {
+        return nextCursor >= 0;
+    }
+}
@@ -1,5 +1,7 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Scanner;
 
 /**
@@ -10,16 +12,24 @@ import java.util.Scanner;
 public class Pokemon {
     private int pokedexNumber;
     private String name;
-    private String primaryType;
-    private String secondaryType;
+    private PokemonType primaryType;
+    private PokemonType secondaryType;
+    // Type names as given to a String constructor, returned unchanged by the getters; null otherwise
+    private String primaryTypeName;
+    private String secondaryTypeName;
     private int baseLevel;
     private int evolvesFrom;
     private int evolvesTo;
     private int evolutionLevel;
     private List<Move> moveSet;
+    private List<Move> moveSetView; // shared result of getMoveSetView, dropped when the move set changes
     private Item heldItem = null;
     private final PokemonBaseStats baseStats;
 
+    // Bumped whenever the name, types, number or stats change; the cached table row is kept only while it matches
+    private int modCount;
+    private RenderedInfo renderedInfo;
+
     /**
      * Constructs a dual-type Pokémon with specified information.
      *
@@ -36,9 +46,9 @@ public class Pokemon {
      * @param defense        the base Defense stat
      * @param speed          the base Speed stat
      */
-    public Pokemon(int pokedexNumber, String name, String primaryType, String secondaryType, int baseLevel,
-            int evolvesFrom,
-            int evolvesTo, int evolutionLevel, int hp, int attack, int defense, int speed) {
+    public Pokemon(int pokedexNumber, String name, PokemonType primaryType, PokemonType secondaryType,
+            int baseLevel, int evolvesFrom, int evolvesTo, int evolutionLevel, int hp, int attack, int defense,
+            int speed) {
         this.pokedexNumber = pokedexNumber;
         this.name = name;
         this.primaryType = primaryType;
@@ -54,7 +64,36 @@ public class Pokemon {
     }
 
     /**
-     * Constructs a single-type Pokémon (no secondary type).
+     * Constructs a dual-type Pokémon from type names. Any name is accepted and
+     * returned as given by {@link #getPrimaryType()} and
+     * {@link #getSecondaryType()}; a name that is not a valid type has no
+     * {@link PokemonType} and matches no move or stone.
+     *
+     * @param pokedexNumber  the Pokédex number of the Pokémon
+     * @param name           the name of the Pokémon
+     * @param primaryType    the primary type of the Pokémon
+     * @param secondaryType  the secondary type of the Pokémon, or null if none
+     * @param baseLevel      the base level of the Pokémon
+     * @param evolvesFrom    the Pokédex number it evolves from
+     * @param evolvesTo      the Pokédex number it evolves to
+     * @param evolutionLevel the level at which it evolves
+     * @param hp             the base HP stat
+     * @param attack         the base Attack stat
+     * @param defense        the base Defense stat
+     * @param speed          the base Speed stat
+     */
+    public Pokemon(int pokedexNumber, String name, String primaryType, String secondaryType, int baseLevel,
+            int evolvesFrom,
+            int evolvesTo, int evolutionLevel, int hp, int attack, int defense, int speed) {
+        this(pokedexNumber, name, TypeUtils.toType(primaryType), TypeUtils.toType(secondaryType), baseLevel, evolvesFrom, evolvesTo,
+                evolutionLevel, hp, attack, defense, speed);
+        this.primaryTypeName = primaryType;
+        this.secondaryTypeName = secondaryType;
+    }
+
+    /**
+     * Constructs a single-type Pokémon (no secondary type). The type name is
+     * accepted as by the dual-type String constructor.
      *
      * @param pokedexNumber  the Pokédex number of the Pokémon
      * @param name           the name of the Pokémon
@@ -70,8 +109,31 @@ public class Pokemon {
      */
     public Pokemon(int pokedexNumber, String name, String primaryType, int baseLevel, int evolvesFrom, int evolvesTo,
             int evolutionLevel, int hp, int attack, int defense, int speed) {
-        this(pokedexNumber, name, primaryType, null, baseLevel, evolvesFrom, evolvesTo, evolutionLevel,
+        this(pokedexNumber, name, TypeUtils.toType(primaryType), null, baseLevel, evolvesFrom, evolvesTo, evolutionLevel,
                 hp, attack, defense, speed);
+        this.primaryTypeName = primaryType;
+    }
+
+    /**
+     * Copies another Pokémon, with its own stats and move set.
+     *
+     * @param source the Pokémon to copy
+     */
+    private Pokemon(Pokemon source) {
+        this.pokedexNumber = source.pokedexNumber;
+        this.name = source.name;
+        this.primaryType = source.primaryType;
+        this.secondaryType = source.secondaryType;
+        this.primaryTypeName = source.primaryTypeName;
+        this.secondaryTypeName = source.secondaryTypeName;
+        this.baseLevel = source.baseLevel;
+        this.evolvesFrom = source.evolvesFrom;
+        this.evolvesTo = source.evolvesTo;
+        this.evolutionLevel = source.evolutionLevel;
+        this.baseStats = new PokemonBaseStats(source.getHP(), source.getAttack(), source.getDefense(),
+                source.getSpeed());
+        this.moveSet = new ArrayList<>(source.moveSet);
+        this.heldItem = source.heldItem;
     }
 
     /**
@@ -101,12 +163,37 @@ public class Pokemon {
         return baseLevel;
     }
 
+    /**
+     * Gets the name of the primary type of the Pokémon.
+     *
+     * @return the primary type name, as given if the Pokémon was built from type names
+     */
+    public String getPrimaryType() {
+        if (primaryTypeName != null) {
+            return primaryTypeName;
+        }
+        return primaryType == null ? null : primaryType.getDisplayName();
+    }
+
+    /**
+     * Gets the name of the secondary type of the Pokémon.
+     *
+     * @return the secondary type name, as given if the Pokémon was built from
+     *         type names, or null if none
+     */
+    public String getSecondaryType() {
+        if (secondaryTypeName != null) {
+            return secondaryTypeName;
+        }
+        return secondaryType == null ? null : secondaryType.getDisplayName();
+    }
+
     /**
      * Gets the primary type of the Pokémon.
      *
      * @return the primary type
      */
-    public String getPrimaryType() {
+    public PokemonType getPrimaryPokemonType() {
         return primaryType;
     }
 
@@ -115,7 +202,7 @@ public class Pokemon {
      *
      * @return the secondary type, or null if none
      */
-    public String getSecondaryType() {
+    public PokemonType getSecondaryPokemonType() {
         return secondaryType;
     }
 
@@ -182,6 +269,15 @@ public class Pokemon {
         return baseStats.getSpeed();
     }
 
+    /**
+     * Gets the total of the base stats.
+     *
+     * @return the stat total
+     */
+    public int getStatTotal() {
+        return baseStats.getTotal();
+    }
+
     /**
      * Gets the move set of the Pokémon.
      *
@@ -191,6 +287,18 @@ public class Pokemon {
         return new ArrayList<>(moveSet);
     }
 
+    /**
+     * Gets the move set without copying on each call.
+     *
+     * @return an unmodifiable list that stays the same until the move set changes
+     */
+    public List<Move> getMoveSetView() {
+        if (moveSetView == null) {
+            moveSetView = Collections.unmodifiableList(new ArrayList<>(moveSet));
+        }
+        return moveSetView;
+    }
+
     /**
      * Gets the held item of the Pokémon.
      *
@@ -214,20 +322,20 @@ public class Pokemon {
         if (name.toLowerCase().contains("chu")) {
             sound = " squeaks: Pika Pika~!";
         } else if (primaryType != null) {
-            switch (primaryType.toLowerCase()) {
-                case "fire":
+            switch (primaryType) {
+                case FIRE:
                     sound = " roars: Fwooosh 🔥!";
                     break;
-                case "water":
+                case WATER:
                     sound = " splashes: Bloo bloop 💧!";
                     break;
-                case "electric":
+                case ELECTRIC:
                     sound = " zaps: Bzzzt ⚡!";
                     break;
-                case "grass":
+                case GRASS:
                     sound = " rustles: Shwaa 🌿!";
                     break;
-                case "ghost":
+                case GHOST:
                     sound = " wails: Woooo 👻...";
                     break;
                 default:
@@ -252,12 +360,24 @@ public class Pokemon {
         // Check if adding a new move will exceed the limit
         if (this.moveSet.size() < 4) {
             this.moveSet.add(move);
+            this.moveSetView = null;
             return true; // For GUI: Display "name learned move successfully"
         } else {
             return false; // For GUI: Display "name alr knows 4 moves. Do you want to forget bla bla"
         }
     }
 
+    /**
+     * Puts a move back into the move set without the learning checks, e.g.
+     * when loading a snapshot.
+     *
+     * @param move the move to restore
+     */
+    void restoreMove(Move move) {
+        this.moveSet.add(move);
+        this.moveSetView = null;
+    }
+
     public void forgetMove(Move move) {
         if (!moveSet.contains(move)) {
             return; // GUI: name doesnt know move
@@ -265,11 +385,13 @@ public class Pokemon {
 
         if (move.getClassification() != Move.Classification.HM) {
             moveSet.remove(move); // success message
+            moveSetView = null;
         } // otherwise, "move is an HM and cannot be forgotten"
     }
 
     // add display messages sa GUI na lang
     public void increaseStat(String statName, int amount) {
+        modCount++;
         switch (statName.toLowerCase()) {
             case "hp":
                 baseStats.setHP(amount);
@@ -287,7 +409,21 @@ public class Pokemon {
     }
 
     public boolean levelUpWithRareCandy(PokemonManager manager) {
+        EvolutionEvent event = new EvolutionEvent();
+        event.begin();
+        int dexBefore = this.pokedexNumber;
+        boolean evolved = false;
+        try {
+            evolved = levelUp(manager);
+            return evolved;
+        } finally {
+            event.complete("levelUpWithRareCandy", dexBefore, this, null, evolved);
+        }
+    }
+
+    private boolean levelUp(PokemonManager manager) {
         this.baseLevel++;
+        modCount++;
 
         int newHP = (int) (baseStats.getHP() * 0.10);
         int newAttack = (int) (baseStats.getAttack() * 0.10);
@@ -299,9 +435,10 @@ public class Pokemon {
         baseStats.addDefense(newDefense);
         baseStats.addSpeed(newSpeed);
 
-        if (this.baseLevel >= this.evolutionLevel && this.evolvesTo != 0) {
-            return evolve(manager);
+        if (this.baseLevel >= this.evolutionLevel && this.evolvesTo != 0 && evolve(manager)) {
+            return true;
         }
+        manager.statsChanged(this);
         return false;
     }
 
@@ -310,33 +447,64 @@ public class Pokemon {
      * formatted line.
      */
     public String displayInfo() {
-        String types = primaryType;
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        RenderedInfo rendered = renderedInfo;
+        if (rendered == null || rendered.modCount != modCount || !rendered.locale.equals(locale)) {
+            rendered = new RenderedInfo(formatInfo(new StringBuilder(80)).toString(), modCount, locale);
+            renderedInfo = rendered;
+        }
+        return rendered.line;
+    }
+
+    /**
+     * Appends the same line as {@link #displayInfo()} to a builder, e.g. one
+     * reused while rendering a whole table.
+     *
+     * @param sb the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendInfo(StringBuilder sb) {
+        return sb.append(displayInfo());
+    }
+
+    private StringBuilder formatInfo(StringBuilder sb) {
+        FormatUtils.appendZeroPadded(sb, pokedexNumber, 4);
+        sb.append(' ');
+        FormatUtils.appendLeft(sb, name, 12);
+        sb.append(' ');
 
-        if (secondaryType != null && !secondaryType.isEmpty()) {
-            types += "/" + secondaryType;
+        int typesStart = sb.length();
+        sb.append(getPrimaryType());
+        String secondary = getSecondaryType();
+        if (secondary != null && !secondary.isEmpty()) {
+            sb.append('/').append(secondary);
         }
+        FormatUtils.padRight(sb, typesStart, 15);
+        sb.append(' ');
 
-        return String.format("%04d %-12s %-15s %-7d %-5d %-7d %-8d %-6d\n", pokedexNumber, name, types,
-                baseStats.getTotal(), baseStats.getHP(), baseStats.getAttack(), baseStats.getDefense(),
-                baseStats.getSpeed());
+        FormatUtils.appendLeft(sb, baseStats.getTotal(), 7);
+        sb.append(' ');
+        FormatUtils.appendLeft(sb, baseStats.getHP(), 5);
+        sb.append(' ');
+        FormatUtils.appendLeft(sb, baseStats.getAttack(), 7);
+        sb.append(' ');
+        FormatUtils.appendLeft(sb, baseStats.getDefense(), 8);
+        sb.append(' ');
+        FormatUtils.appendLeft(sb, baseStats.getSpeed(), 6);
+        return sb.append('\n');
     }
 
     private boolean isTypeCompatible(Move move) {
+        PokemonType movePrimary = move.getPrimaryPokemonType();
+        PokemonType moveSecondary = move.getSecondaryPokemonType();
+
         // Check Type 1
-        if (this.primaryType != null && this.primaryType.equalsIgnoreCase(move.getPrimaryType())) {
-            return true;
-        }
-        if (this.primaryType != null && move.getSecondaryType() != null
-                && this.primaryType.equalsIgnoreCase(move.getSecondaryType())) {
+        if (this.primaryType != null && (this.primaryType == movePrimary || this.primaryType == moveSecondary)) {
             return true;
         }
 
         // Check Type 2 (if it exists!)
-        if (this.secondaryType != null && this.secondaryType.equalsIgnoreCase(move.getPrimaryType())) {
-            return true;
-        }
-        if (this.secondaryType != null && move.getSecondaryType() != null
-                && this.secondaryType.equalsIgnoreCase(move.getSecondaryType())) {
+        if (this.secondaryType != null && (this.secondaryType == movePrimary || this.secondaryType == moveSecondary)) {
             return true;
         }
 
@@ -344,18 +512,33 @@ public class Pokemon {
     }
 
     private boolean evolve(PokemonManager manager) {
-        Pokemon evolved = manager.getPokemonByDex(this.evolvesTo);
+        Pokemon evolved = manager.speciesByDex(this.evolvesTo); // only read, so a catalog species is not copied
 
         if (evolved == null) {
             return false; // Error Message
         }
 
+        // A stored entry is read by other threads without locking, so the manager publishes an
+        // evolved copy in its place instead of this object changing field by field under them
+        Pokemon copy = new Pokemon(this);
+        copy.becomeEvolved(evolved);
+        if (!manager.replaceStored(this, copy)) {
+            becomeEvolved(evolved);
+        }
+
+        // Congratulatory message
+        return true;
+    }
+
+    private void becomeEvolved(Pokemon evolved) {
         // name is evolving...!
         this.name = evolved.getName();
         this.evolvesFrom = this.pokedexNumber;
         this.pokedexNumber = evolved.getPokedexNumber();
-        this.primaryType = evolved.getPrimaryType();
-        this.secondaryType = evolved.getSecondaryType();
+        this.primaryType = evolved.getPrimaryPokemonType();
+        this.secondaryType = evolved.getSecondaryPokemonType();
+        this.primaryTypeName = evolved.primaryTypeName;
+        this.secondaryTypeName = evolved.secondaryTypeName;
         this.evolvesTo = evolved.getEvolvesTo();
         this.evolutionLevel = evolved.getEvolutionLevel();
 
@@ -363,29 +546,44 @@ public class Pokemon {
         this.baseStats.setAttack(evolved.getAttack());
         this.baseStats.setDefense(evolved.getDefense());
         this.baseStats.setSpeed(evolved.getSpeed());
-
-        // Congratulatory message
-        return true;
+        modCount++;
     }
 
     public boolean evolveUsingStone(String stoneType, PokemonManager manager) {
-        if (!TypeUtils.isValidType(stoneType)) {
+        PokemonType type = TypeUtils.parseType(stoneType);
+        if (type == null) {
             return false; // error msg
         }
 
+        return evolveUsingStone(type, manager);
+    }
+
+    public boolean evolveUsingStone(PokemonType stoneType, PokemonManager manager) {
+        EvolutionEvent event = new EvolutionEvent();
+        event.begin();
+        int dexBefore = this.pokedexNumber;
+        boolean evolved = false;
+        try {
+            evolved = evolveWithStone(stoneType, manager);
+            return evolved;
+        } finally {
+            event.complete("evolveUsingStone", dexBefore, this, stoneType, evolved);
+        }
+    }
+
+    private boolean evolveWithStone(PokemonType stoneType, PokemonManager manager) {
         if (this.evolvesTo == 0) {
             return false; // informative msg
         }
 
         // Get the evolved Pokémon data
-        Pokemon evolved = manager.getPokemonByDex(this.evolvesTo);
+        Pokemon evolved = manager.speciesByDex(this.evolvesTo);
         if (evolved == null) {
             return false;
         }
 
         // Evolution is allowed only if the evolved Pokémon shares the stone type
-        if (!evolved.getPrimaryType().equalsIgnoreCase(stoneType)
-                && (evolved.getSecondaryType() == null || !evolved.getSecondaryType().equalsIgnoreCase(stoneType))) {
+        if (evolved.getPrimaryPokemonType() != stoneType && evolved.getSecondaryPokemonType() != stoneType) {
             return false;
         }
 
@@ -399,6 +597,21 @@ public class Pokemon {
         } // else display an informative message
     }
 
+    /**
+     * A formatted table row together with the modification count and format
+     * locale it was rendered for. Immutable, so it can be replaced in one write.
+     */
+    private static class RenderedInfo {
+        private final String line;
+        private final int modCount;
+        private final Locale locale;
+
+        RenderedInfo(String line, int modCount, Locale locale) {
+            this.line = line;
+            this.modCount = modCount;
+            this.locale = locale;
+        }
+    }
 }
 
 /**
@@ -411,6 +624,7 @@ class PokemonBaseStats {
     private int attack;
     private int defense;
     private int speed;
+    private int total; // kept up to date by every setter
 
     /**
      * Constructs a PokemonBaseStats object with the given base stat values.
@@ -425,6 +639,7 @@ class PokemonBaseStats {
         this.attack = attack;
         this.defense = defense;
         this.speed = speed;
+        updateTotal();
     }
 
     /**
@@ -465,34 +680,42 @@ class PokemonBaseStats {
 
     public void setHP(int hp) {
         this.hp = hp;
+        updateTotal();
     }
 
     public void setAttack(int attack) {
         this.attack = attack;
+        updateTotal();
     }
 
     public void setDefense(int defense) {
         this.defense = defense;
+        updateTotal();
     }
 
     public void setSpeed(int speed) {
         this.speed = speed;
+        updateTotal();
     }
 
     public void addHP(int amount) {
         this.hp += amount;
+        updateTotal();
     }
 
     public void addAttack(int amount) {
         this.attack += amount;
+        updateTotal();
     }
 
     public void addDefense(int amount) {
         this.defense += amount;
+        updateTotal();
     }
 
     public void addSpeed(int amount) {
         this.speed += amount;
+        updateTotal();
     }
 
     /**
@@ -502,7 +725,11 @@ class PokemonBaseStats {
      *         and Speed
      */
     public int getTotal() {
-        return hp + attack + defense + speed;
+        return total;
+    }
+
+    private void updateTotal() {
+        total = hp + attack + defense + speed;
     }
 
     /**
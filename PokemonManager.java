@@ -1,14 +1,56 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 /**
  * This class manages a list of Pokémon and allows adding, displaying, and
  * searching Pokémon.
+ * <p>
+ * The manager is safe to share between threads. The stored list and all of
+ * its indexes live in one immutable {@link DexState}; changes are serialized
+ * and publish a new state, while lookups and searches read whichever state
+ * is current without taking a lock.
  */
 public class PokemonManager {
+    /**
+     * The highest Pokédex number covered by the dense lookup table.
+     */
+    static final int MAX_DEX = 1010;
+
+    // Call counts and latencies, see Metrics
+    private static final Metrics.Timer ADD_TIMER = Metrics.timer("pokemon.addPokemon");
+    private static final Metrics.Timer GET_BY_DEX_TIMER = Metrics.timer("pokemon.getPokemonByDex");
+    private static final Metrics.Timer ALL_INFO_TIMER = Metrics.timer("pokemon.getAllPokemonInfo");
+    private static final Metrics.Timer SEARCH_NAME_TIMER = Metrics.timer("pokemon.searchByName");
+    private static final Metrics.Timer SEARCH_TYPES_TIMER = Metrics.timer("pokemon.searchByTypes");
+    private static final Metrics.Timer PAGE_TIMER = Metrics.timer("pokemon.getPokemonPage");
+    private static final Metrics.Timer CHAIN_TIMER = Metrics.timer("pokemon.getEvolutionChain");
+    private static final Metrics.Timer REMOVE_TIMER = Metrics.timer("pokemon.removeByDex");
+    private static final Metrics.Timer NAME_BY_DEX_TIMER = Metrics.timer("pokemon.getNameByDex");
+    private static final Metrics.Timer ALL_TIMER = Metrics.timer("pokemon.getAllPokemon");
+    private static final Metrics.Timer INFO_PAGE_TIMER = Metrics.timer("pokemon.getPokemonInfoPage");
+    private static final Metrics.Timer FINAL_FORM_TIMER = Metrics.timer("pokemon.getFinalForm");
+    private static final Metrics.Timer FINAL_FORMS_TIMER = Metrics.timer("pokemon.getFinalForms");
+    private static final Metrics.Timer STONE_TIMER = Metrics.timer("pokemon.findStoneEvolutions");
+    private static final Metrics.Timer DANGLING_TIMER = Metrics.timer("pokemon.findDanglingEvolutionLinks");
+
     private Scanner scan = new Scanner(System.in);
-    private final List<Pokemon> pokemons = new ArrayList<>();
+
+    // The stored Pokémon and their indexes; replaced as a whole by the synchronized writers
+    private volatile DexState state = DexState.EMPTY;
+
+    // Shared read-only species data consulted when a number is not stored on the heap
+    private volatile SpeciesCatalog catalog;
 
     public PokemonManager(final Scanner scanner) {
         this.scan = scanner;
@@ -140,12 +182,21 @@ public class PokemonManager {
         return false;
     }
 
-    public boolean addPokemon(Pokemon pokemon) {
-        if (getPokemonByDex(pokemon.getPokedexNumber()) != null) {
-            return false;
+    public synchronized boolean addPokemon(Pokemon pokemon) {
+        long startNanos = ADD_TIMER.start();
+        try {
+            DexState current = state;
+            if (current.byDex(pokemon.getPokedexNumber()) != null) {
+                return false; // Only stored entries count; catalog species may still be added
+            }
+            if (current.closesEvolutionCycle(pokemon)) {
+                return false;
+            }
+            state = current.withAdded(pokemon);
+            return true;
+        } finally {
+            ADD_TIMER.stop(startNanos);
         }
-        pokemons.add(pokemon);
-        return true;
     }
 
     /**
@@ -154,7 +205,7 @@ public class PokemonManager {
     public void displayAllPokemon() {
 //        System.out.printf("\n--- View All Pokémon ---\n\n");
 
-        if (pokemons.isEmpty()) {
+        if (state.size == 0) {
 //            System.out.println("No Pokémon in the database.");
             return;
         }
@@ -171,50 +222,166 @@ public class PokemonManager {
     }
 
     public Pokemon getPokemonByDex(int pokedexNumber) {
-        for (Pokemon p : pokemons) {
-            if (p.getPokedexNumber() == pokedexNumber) {
-                return p;
+        long startNanos = GET_BY_DEX_TIMER.start();
+        try {
+            Pokemon stored = state.byDex(pokedexNumber);
+            SpeciesCatalog species = catalog;
+            if (stored == null && species != null) {
+                return species.toPokemon(pokedexNumber);
             }
+            return stored;
+        } finally {
+            GET_BY_DEX_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Looks up the species data for a Pokédex number, for callers that only
+     * read it such as evolution. A catalog species comes from the catalog's
+     * per-number cache instead of being built again on every call, so the
+     * result must not be changed.
+     *
+     * @param pokedexNumber the Pokédex number
+     * @return the stored entry or the shared catalog species, or null if neither has the number
+     */
+    Pokemon speciesByDex(int pokedexNumber) {
+        Pokemon stored = state.byDex(pokedexNumber);
+        SpeciesCatalog species = catalog;
+        if (stored == null && species != null) {
+            return species.speciesOf(pokedexNumber);
         }
-        return null;
+        return stored;
+    }
+
+    /**
+     * Uses a memory-mapped species catalog for Pokédex numbers that are not
+     * stored in this manager. Catalog species are read on demand and are not
+     * part of the listing or search methods.
+     *
+     * @param catalog the catalog to consult, or null to stop using one
+     */
+    public void attachCatalog(SpeciesCatalog catalog) {
+        this.catalog = catalog;
     }
 
     public String getNameByDex(int pokedexNumber) {
-        Pokemon p = getPokemonByDex(pokedexNumber);
-        if (p != null) {
-            return p.getName();
+        long startNanos = NAME_BY_DEX_TIMER.start();
+        try {
+            Pokemon p = speciesByDex(pokedexNumber);
+            if (p != null) {
+                return p.getName();
+            }
+            return null;
+        } finally {
+            NAME_BY_DEX_TIMER.stop(startNanos);
         }
-        return null;
     }
 
     public List<String> getAllPokemonInfo() {
-        List<String> output = new ArrayList<>();
-        for (Pokemon p : pokemons) {
-            output.add(p.displayInfo());
+        long startNanos = ALL_INFO_TIMER.start();
+        try {
+            List<Pokemon> entries = state.view;
+            List<String> output = new ArrayList<>(entries.size());
+            for (Pokemon p : entries) {
+                output.add(p.displayInfo());
+            }
+            return output;
+        } finally {
+            ALL_INFO_TIMER.stop(startNanos);
         }
-        return output;
     }
 
     public List<Pokemon> getAllPokemon() {
-        return new ArrayList<>(pokemons);
+        long startNanos = ALL_TIMER.start();
+        try {
+            return new ArrayList<>(state.view);
+        } finally {
+            ALL_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets every stored Pokémon without copying. The view is fixed when it is
+     * returned and is shared by all callers until the next change to this
+     * manager, which publishes a new one.
+     *
+     * @return an unmodifiable list of the stored Pokémon
+     */
+    public List<Pokemon> getAllPokemonView() {
+        return state.view;
+    }
+
+    /**
+     * Gets one page of the stored Pokémon in the given order. Pages are cut
+     * from a shared sorted listing, so later pages cost no more than the
+     * first; a change to the manager between requests may shift entries
+     * across page boundaries.
+     *
+     * @param key      the order to list in
+     * @param cursor   0 for the first page, otherwise the previous page's next cursor
+     * @param pageSize the most entries to return
+     * @return the page of Pokémon
+     */
+    public Page<Pokemon> getPokemonPage(SortKey key, int cursor, int pageSize) {
+        long startNanos = PAGE_TIMER.start();
+        try {
+            return Page.of(state.sortedBy(key), cursor, pageSize);
+        } finally {
+            PAGE_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets one page of {@link #getAllPokemonInfo()} in the given order,
+     * formatting only the entries on that page.
+     *
+     * @param key      the order to list in
+     * @param cursor   0 for the first page, otherwise the previous page's next cursor
+     * @param pageSize the most entries to return
+     * @return the page of formatted lines
+     */
+    public Page<String> getPokemonInfoPage(SortKey key, int cursor, int pageSize) {
+        long startNanos = INFO_PAGE_TIMER.start();
+        try {
+            return Page.of(state.sortedBy(key), cursor, pageSize).map(Pokemon::displayInfo);
+        } finally {
+            INFO_PAGE_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Streams the formatted lines of every stored Pokémon in the given order.
+     * Each line is formatted only when the stream reaches it.
+     *
+     * @param key the order to list in
+     * @return a stream of formatted lines
+     */
+    public Stream<String> streamPokemonInfo(SortKey key) {
+        return state.sortedBy(key).stream().map(Pokemon::displayInfo);
     }
 
     /**
      * Searches the Pokémon list for any Pokémon whose name contains the given
-     * string.
+     * string. Names that start with it are listed first.
      *
      * @param s the name or part of a name to search for
      */
     public List<Pokemon> searchByName(String s) {
-        List<Pokemon> matches = new ArrayList<>();
-
-        for (Pokemon p : pokemons) {
-            if (p.getName().toLowerCase().contains(s.toLowerCase())) {
-                matches.add(p);
+        long startNanos = SEARCH_NAME_TIMER.start();
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        try {
+            DexState current = state;
+            int[] positions = current.nameIndex.search(s);
+            List<Pokemon> matches = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                matches.add(current.entries.get(position));
             }
+            event.complete("pokemon.searchByName", s, matches.size());
+            return matches;
+        } finally {
+            SEARCH_NAME_TIMER.stop(startNanos);
         }
-
-        return matches;
     }
 
     /**
@@ -223,21 +390,35 @@ public class PokemonManager {
      * @param s the type name to search for
      */
     public List<Pokemon> searchByType(String s) {
-        List<Pokemon> matches = new ArrayList<>();
-        String string = s.toLowerCase();
-    
-        for (Pokemon p : pokemons) {
-            String primary = p.getPrimaryType();
-            String secondary = p.getSecondaryType();
-    
-            if ((primary != null && primary.equalsIgnoreCase(string)) ||
-                (secondary != null && secondary.equalsIgnoreCase(string))) {
-                matches.add(p);
-            }
-        }
-    
-        return matches;
-    }    
+        return searchByTypes(s);
+    }
+
+    /**
+     * Searches the Pokémon list for Pokémon that have all of the given types,
+     * e.g. {@code searchByTypes("Fire", "Flying")}.
+     *
+     * @param types the type names to search for
+     * @return the matching Pokémon in list order
+     */
+    public List<Pokemon> searchByTypes(String... types) {
+        long startNanos = SEARCH_TYPES_TIMER.start();
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        try {
+            DexState s = state;
+            BitSet hits = s.typeIndex.matchingAll(types);
+            List<Pokemon> matches = new ArrayList<>(hits.cardinality());
+
+            for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+                matches.add(s.entries.get(i));
+            }
+
+            event.complete("pokemon.searchByTypes", types, matches.size());
+            return matches;
+        } finally {
+            SEARCH_TYPES_TIMER.stop(startNanos);
+        }
+    }
 
     /**
      * Searches the Pokémon list by Pokédex number.
@@ -245,12 +426,142 @@ public class PokemonManager {
      * @param n the Pokédex number to search for (must be 4 digits)
      */
     public Pokemon searchByPokedexNumber(int n) {
-        for (Pokemon p : pokemons) {
-            if (p.getPokedexNumber() == n) {
-                return p;
+        return getPokemonByDex(n);
+    }
+
+    /**
+     * Gets the evolution chain that the given species belongs to, from its
+     * earliest stored form through the species itself to its last form.
+     * Only stored species are followed; the walk stops at a missing link.
+     *
+     * @param pokedexNumber the Pokédex number of any species in the chain
+     * @return the chain in evolution order, or an empty list if the number is not stored
+     */
+    public List<Pokemon> getEvolutionChain(int pokedexNumber) {
+        long startNanos = CHAIN_TIMER.start();
+        try {
+            DexState s = state;
+            Pokemon species = s.byDex(pokedexNumber);
+            List<Pokemon> chain = new ArrayList<>();
+            if (species == null) {
+                return chain;
+            }
+
+            // Earlier forms, collected backwards and then put in order
+            for (int dex = s.previousOf(pokedexNumber); dex != 0 && chain.size() < s.size; dex = s.previousOf(dex)) {
+                chain.add(s.byDex(dex));
+            }
+            Collections.reverse(chain);
+
+            chain.add(species);
+            int limit = chain.size() + s.size;
+            for (Pokemon next = s.nextOf(species); next != null && chain.size() < limit; next = s.nextOf(next)) {
+                chain.add(next);
+            }
+            return chain;
+        } finally {
+            CHAIN_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets the form the given species ends up as once it stops evolving.
+     *
+     * @param pokedexNumber the Pokédex number of the species
+     * @return the last stored form in its chain, or null if the number is not stored
+     */
+    public Pokemon getFinalForm(int pokedexNumber) {
+        long startNanos = FINAL_FORM_TIMER.start();
+        try {
+            DexState s = state;
+            Pokemon form = s.byDex(pokedexNumber);
+            for (int steps = 0; form != null && steps < s.size; steps++) {
+                Pokemon next = s.nextOf(form);
+                if (next == null) {
+                    break;
+                }
+                form = next;
             }
+            return form;
+        } finally {
+            FINAL_FORM_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets every stored species that does not evolve any further.
+     *
+     * @return an unmodifiable list of final forms in list order
+     */
+    public List<Pokemon> getFinalForms() {
+        long startNanos = FINAL_FORMS_TIMER.start();
+        try {
+            return state.finalForms();
+        } finally {
+            FINAL_FORMS_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Finds the Pokémon that an evolution stone of the given type would
+     * evolve, e.g. among a trainer's storage. This is the same check that
+     * {@link Pokemon#evolveUsingStone(PokemonType, PokemonManager)} makes.
+     *
+     * @param stoneType  the type of the stone
+     * @param candidates the Pokémon to check
+     * @return the candidates that can evolve with the stone, in the given order
+     */
+    public List<Pokemon> findStoneEvolutions(PokemonType stoneType, List<Pokemon> candidates) {
+        long startNanos = STONE_TIMER.start();
+        try {
+            List<Pokemon> matches = new ArrayList<>();
+            if (stoneType == null) {
+                return matches;
+            }
+            for (Pokemon p : candidates) {
+                Pokemon evolved = p.getEvolvesTo() != 0 ? speciesByDex(p.getEvolvesTo()) : null;
+                if (evolved != null && (evolved.getPrimaryPokemonType() == stoneType
+                        || evolved.getSecondaryPokemonType() == stoneType)) {
+                    matches.add(p);
+                }
+            }
+            return matches;
+        } finally {
+            STONE_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Finds the Pokémon that the given evolution stone would evolve.
+     *
+     * @param stone      the stone
+     * @param candidates the Pokémon to check
+     * @return the candidates that can evolve with the stone, in the given order
+     */
+    public List<Pokemon> findStoneEvolutions(EvolutionStone stone, List<Pokemon> candidates) {
+        return findStoneEvolutions(stone.getEvolutionType(), candidates);
+    }
+
+    /**
+     * Finds the stored Pokémon whose evolution links point at a Pokédex
+     * number that is neither stored nor in the attached catalog.
+     *
+     * @return the Pokémon with a dangling {@code evolvesFrom} or {@code evolvesTo}, in list order
+     */
+    public List<Pokemon> findDanglingEvolutionLinks() {
+        long startNanos = DANGLING_TIMER.start();
+        try {
+            List<Pokemon> dangling = new ArrayList<>();
+            for (Pokemon p : state.view) {
+                if ((p.getEvolvesTo() != 0 && speciesByDex(p.getEvolvesTo()) == null)
+                        || (p.getEvolvesFrom() != 0 && speciesByDex(p.getEvolvesFrom()) == null)) {
+                    dangling.add(p);
+                }
+            }
+            return dangling;
+        } finally {
+            DANGLING_TIMER.stop(startNanos);
         }
-        return null;
     }
 
     /**
@@ -301,17 +612,11 @@ public class PokemonManager {
      * @return {@code true} if valid; {@code false} otherwise
      */
     private boolean isValidDexNumber(int pokedexNumber) {
-        if (pokedexNumber < 1 || pokedexNumber > 1010) {
+        if (pokedexNumber < 1 || pokedexNumber > MAX_DEX) {
             return false;
         }
-    
-        for (Pokemon p : pokemons) {
-            if (p.getPokedexNumber() == pokedexNumber) {
-                return false;
-            }
-        }
-    
-        return true;
+
+        return state.byDex(pokedexNumber) == null;
     }
 
     /**
@@ -361,17 +666,495 @@ public class PokemonManager {
         throw new UnsupportedOperationException("readValidInt needs a GUI replacement");
     }
 
-    public boolean removeByDex(int dex) {
-        boolean removed = pokemons.removeIf(p -> p.getPokedexNumber() == dex);
-        // if else here
-        return removed;
+    public synchronized boolean removeByDex(int dex) {
+        long startNanos = REMOVE_TIMER.start();
+        try {
+            DexState current = state;
+            List<Pokemon> kept = new ArrayList<>(current.size);
+            for (Pokemon p : current.view) {
+                if (p.getPokedexNumber() != dex) {
+                    kept.add(p);
+                }
+            }
+            if (kept.size() == current.size) {
+                return false;
+            }
+
+            state = new DexState(kept.toArray(new Pokemon[0]), current);
+            return true;
+        } finally {
+            REMOVE_TIMER.stop(startNanos);
+        }
+    }
+
+    public synchronized void populateInitialPokemon() {
+        if (state.size == 0) {
+            addPokemon(new Pokemon(1, "Bulbasaur", "Grass", "Poison", 0, 0, 0, 0, 45, 49, 49, 45));
+            addPokemon(new Pokemon(12, "Butterfree", "Bug", "Flying", 0, 0, 0, 0, 60, 45, 50, 70));
+            addPokemon(new Pokemon(25, "Pikachu", "Electric", null, 0, 0, 0, 0, 35, 55, 40, 90));
+        }
+    }
+
+    /**
+     * Replaces every stored Pokémon, e.g. when loading a snapshot. Entries are
+     * kept in the given order, including ones that share a Pokédex number.
+     *
+     * @param loaded the Pokémon to store
+     */
+    synchronized void restore(List<Pokemon> loaded) {
+        state = new DexState(loaded.toArray(new Pokemon[0]), null);
+    }
+
+    /**
+     * Adds a batch of Pokémon, e.g. from {@link BulkImporter}, and rebuilds
+     * the indexes once for the whole batch. Pokémon whose Pokédex number is
+     * already stored, or taken by an earlier one in the batch, are left out.
+     *
+     * @param batch the Pokémon to add, in order
+     * @return the Pokémon that were left out
+     */
+    synchronized List<Pokemon> addAll(List<Pokemon> batch) {
+        DexState current = state;
+        List<Pokemon> added = new ArrayList<>(current.view);
+        List<Pokemon> rejected = new ArrayList<>();
+        Set<Integer> taken = new HashSet<>();
+        for (Pokemon p : batch) {
+            if (current.byDex(p.getPokedexNumber()) != null || !taken.add(p.getPokedexNumber())) {
+                rejected.add(p);
+            } else {
+                added.add(p);
+            }
+        }
+        if (added.size() > current.size) {
+            state = new DexState(added.toArray(new Pokemon[0]), current);
+        }
+        return rejected;
+    }
+
+    /**
+     * Replaces a stored Pokémon with another object, e.g. its evolved copy,
+     * in one published state. Readers see either the old entry with its old
+     * indexes or the new entry with the new ones, never an entry that is
+     * half changed. An entry that already owns the new Pokédex number keeps
+     * it.
+     *
+     * @param stored      the stored Pokémon
+     * @param replacement the Pokémon to store in its place
+     * @return {@code false} if the Pokémon is not stored here
+     */
+    synchronized boolean replaceStored(Pokemon stored, Pokemon replacement) {
+        DexState current = state;
+        Integer position = current.positions.get(stored);
+        if (position == null) {
+            return false;
+        }
+        state = current.withReplaced(position, replacement);
+        return true;
+    }
+
+    /**
+     * Publishes a new state after the stats of a stored Pokémon changed in
+     * place, so the stat total order is sorted again the next time it is
+     * listed. Items and level-ups report their changes; code that changes
+     * the stats of a stored entry directly calls this itself.
+     *
+     * @param pokemon the Pokémon whose stats changed
+     */
+    synchronized void statsChanged(Pokemon pokemon) {
+        DexState current = state;
+        if (current.positions.containsKey(pokemon)) {
+            state = current.withStatsChanged();
+        }
+    }
+
+    /**
+     * The orders the stored Pokémon can be listed in. Entries that tie keep
+     * the order they were added in.
+     */
+    public enum SortKey {
+        /** Lowest Pokédex number first. */
+        DEX_NUMBER,
+        /** Alphabetical, ignoring case. */
+        NAME,
+        /** Highest base stat total first. */
+        STAT_TOTAL
     }
 
-    public void populateInitialPokemon() {
-        if (pokemons.isEmpty()) {
-            pokemons.add(new Pokemon(1, "Bulbasaur", "Grass", "Poison", 0, 0, 0, 0, 45, 49, 49, 45));
-            pokemons.add(new Pokemon(12, "Butterfree", "Bug", "Flying", 0, 0, 0, 0, 60, 45, 50, 70));
-            pokemons.add(new Pokemon(25, "Pikachu", "Electric", null, 0, 0, 0, 0, 35, 55, 40, 90));
+    /**
+     * An immutable view of the stored Pokémon and every index over them. A
+     * state is fully built before it is published and never changed after,
+     * so readers can use it without locking. The state for one added or
+     * replaced entry shares every structure the change leaves alone with the
+     * state before it, and copies only the postings and slot chunks it
+     * touches.
+     */
+    private static final class DexState {
+        static final DexState EMPTY = new DexState(new Pokemon[0], null);
+
+        final AppendOnlyArray<Pokemon> entries;
+        final int size;
+        final List<Pokemon> view;
+
+        // Primary index by Pokédex number: a slot table for 1..MAX_DEX, and the positions of anything
+        // outside it. The overflow maps are shared along a run of adds, which only put new keys, so a
+        // state counts an overflow entry only if its position is below the state's size.
+        private final SlotTable<Pokemon> dexSlots;
+        private final Map<Integer, Integer> dexOverflow;
+
+        // Position of every entry, shared by successive states; only the synchronized writers use it
+        final Map<Pokemon, Integer> positions;
+        final TypeIndex typeIndex;
+        final NameIndex nameIndex;
+
+        // Evolution graph between the species that own their numbers: for each number, the first
+        // species in list order that evolves into it (a position in the overflow map), or none
+        private final SlotTable<Pokemon> evolvesIntoSlots;
+        private final Map<Integer, Integer> evolvesIntoOverflow;
+
+        // Listings, built on first use
+        private volatile List<Pokemon> finalForms;
+        private volatile List<Pokemon> byDexNumber;
+        private volatile List<Pokemon> byName;
+        private volatile List<Pokemon> byStatTotal;
+
+        /**
+         * Indexes the given entries. When several share a Pokédex number the
+         * one that owned it in {@code previous} keeps it, otherwise the first.
+         *
+         * @param entries  the stored Pokémon in list order; the array is kept, not copied
+         * @param previous the state being replaced, or null
+         */
+        DexState(Pokemon[] entries, DexState previous) {
+            this.entries = AppendOnlyArray.of(entries);
+            this.size = entries.length;
+            this.view = this.entries.asList(size);
+            this.positions = new IdentityHashMap<>();
+            this.typeIndex = new TypeIndex();
+            String[] names = new String[size];
+            for (int i = 0; i < size; i++) {
+                Pokemon p = entries[i];
+                positions.put(p, i);
+                typeIndex.add(i, p.getPrimaryPokemonType(), p.getSecondaryPokemonType());
+                names[i] = p.getName();
+            }
+            this.nameIndex = NameIndex.of(names);
+            this.dexSlots = new SlotTable<>(MAX_DEX + 1);
+            this.dexOverflow = new ConcurrentHashMap<>();
+            this.evolvesIntoSlots = new SlotTable<>(MAX_DEX + 1);
+            this.evolvesIntoOverflow = new ConcurrentHashMap<>();
+            indexNumbers(previous);
+        }
+
+        private DexState(AppendOnlyArray<Pokemon> entries, int size, Map<Pokemon, Integer> positions,
+                         TypeIndex typeIndex, NameIndex nameIndex, SlotTable<Pokemon> dexSlots,
+                         Map<Integer, Integer> dexOverflow, SlotTable<Pokemon> evolvesIntoSlots,
+                         Map<Integer, Integer> evolvesIntoOverflow) {
+            this.entries = entries;
+            this.size = size;
+            this.view = entries.asList(size);
+            this.positions = positions;
+            this.typeIndex = typeIndex;
+            this.nameIndex = nameIndex;
+            this.dexSlots = dexSlots;
+            this.dexOverflow = dexOverflow;
+            this.evolvesIntoSlots = evolvesIntoSlots;
+            this.evolvesIntoOverflow = evolvesIntoOverflow;
+        }
+
+        /**
+         * Creates the state with one more entry at the end of the list. The
+         * caller has checked that its Pokédex number is not stored yet.
+         */
+        DexState withAdded(Pokemon pokemon) {
+            int dex = pokemon.getPokedexNumber();
+            SlotTable<Pokemon> slots = dexSlots;
+            if (inSlots(dex)) {
+                slots = dexSlots.with(dex, pokemon);
+            } else {
+                dexOverflow.put(dex, size);
+            }
+
+            // The new entry comes last, so it only links to a number nothing evolves into yet
+            SlotTable<Pokemon> intoSlots = evolvesIntoSlots;
+            int next = pokemon.getEvolvesTo();
+            if (next != 0 && evolvesInto(next) == 0) {
+                if (inSlots(next)) {
+                    intoSlots = evolvesIntoSlots.with(next, pokemon);
+                } else {
+                    evolvesIntoOverflow.put(next, size);
+                }
+            }
+
+            positions.put(pokemon, size);
+            return new DexState(entries.append(size, pokemon), size + 1, positions,
+                    typeIndex.withTypes(size, pokemon.getPrimaryPokemonType(), pokemon.getSecondaryPokemonType()),
+                    nameIndex.withAdded(pokemon.getName()), slots, dexOverflow, intoSlots, evolvesIntoOverflow);
+        }
+
+        /**
+         * Creates the state in which the entry at the given position is
+         * replaced by another. The name and type postings change for that
+         * position alone, and only the number and evolution slots whose owner
+         * changes are copied; finding a new owner reads the entries once per
+         * changed slot without hashing. A number outside the slot table
+         * indexes every entry again instead.
+         */
+        DexState withReplaced(int position, Pokemon replacement) {
+            Pokemon old = entries.get(position);
+            AppendOnlyArray<Pokemon> replaced = entries.with(size, position, replacement);
+            int oldDex = old.getPokedexNumber();
+            int newDex = replacement.getPokedexNumber();
+            if (!inSlots(oldDex) || !inSlots(newDex) || !inSlots(old.getEvolvesTo())
+                    || !inSlots(replacement.getEvolvesTo())) {
+                return reindexed(replaced);
+            }
+
+            // Numbers: the old entry gives up its number to the next entry that has it, if any
+            SlotTable<Pokemon> slots = dexSlots;
+            Pokemon heir = null;
+            if (dexSlots.get(oldDex) == old) {
+                heir = firstWithNumber(replaced, oldDex);
+                slots = slots.with(oldDex, heir);
+            }
+            boolean ownsNew = slots.get(newDex) == null || slots.get(newDex) == replacement;
+            if (ownsNew) {
+                slots = slots.with(newDex, replacement);
+            }
+            if (heir != null && !inSlots(heir.getEvolvesTo())) {
+                return reindexed(replaced);
+            }
+
+            // Evolution links: only the numbers that the entries gaining or losing a number evolve into
+            SlotTable<Pokemon> intoSlots = evolvesIntoSlots;
+            intoSlots = firstEvolvingInto(replaced, slots, intoSlots, old.getEvolvesTo());
+            intoSlots = firstEvolvingInto(replaced, slots, intoSlots, replacement.getEvolvesTo());
+            if (heir != null) {
+                intoSlots = firstEvolvingInto(replaced, slots, intoSlots, heir.getEvolvesTo());
+            }
+
+            positions.remove(old);
+            positions.put(replacement, position);
+            return new DexState(replaced, size, positions,
+                    typeIndex.withTypes(position, replacement.getPrimaryPokemonType(),
+                            replacement.getSecondaryPokemonType()),
+                    nameIndex.withName(position, replacement.getName()), slots, dexOverflow, intoSlots,
+                    evolvesIntoOverflow);
+        }
+
+        private DexState reindexed(AppendOnlyArray<Pokemon> list) {
+            Pokemon[] all = new Pokemon[size];
+            for (int i = 0; i < size; i++) {
+                all[i] = list.get(i);
+            }
+            return new DexState(all, this);
+        }
+
+        /**
+         * Creates the state for the same entries after some of their stats
+         * changed. Every index and every listing that does not depend on
+         * stats is shared; only the stat total order is dropped.
+         */
+        DexState withStatsChanged() {
+            DexState next = new DexState(entries, size, positions, typeIndex, nameIndex, dexSlots, dexOverflow,
+                    evolvesIntoSlots, evolvesIntoOverflow);
+            next.finalForms = finalForms;
+            next.byDexNumber = byDexNumber;
+            next.byName = byName;
+            return next;
+        }
+
+        private Pokemon firstWithNumber(AppendOnlyArray<Pokemon> list, int dex) {
+            for (int i = 0; i < size; i++) {
+                if (list.get(i).getPokedexNumber() == dex) {
+                    return list.get(i);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Sets the slot of one number in an evolution slot table to the
+         * first entry in list order that owns its number and evolves into it.
+         *
+         * @param list  the entries of the new state
+         * @param slots the number slots of the new state
+         */
+        private SlotTable<Pokemon> firstEvolvingInto(AppendOnlyArray<Pokemon> list, SlotTable<Pokemon> slots,
+                                                     SlotTable<Pokemon> intoSlots, int dex) {
+            if (dex == 0) {
+                return intoSlots;
+            }
+            for (int i = 0; i < size; i++) {
+                Pokemon p = list.get(i);
+                if (p.getEvolvesTo() != dex) {
+                    continue;
+                }
+                int own = p.getPokedexNumber();
+                Integer overflow = inSlots(own) ? null : dexOverflow.get(own);
+                boolean owner = inSlots(own) ? slots.get(own) == p
+                        : overflow != null && overflow < size && list.get(overflow) == p;
+                if (owner) {
+                    return intoSlots.with(dex, p);
+                }
+            }
+            return intoSlots.with(dex, null);
+        }
+
+        /**
+         * Fills in the owner of each Pokédex number and the evolution graph.
+         */
+        private void indexNumbers(DexState previous) {
+            for (int i = 0; i < size; i++) {
+                Pokemon p = entries.get(i);
+                if (previous != null && previous.byDex(p.getPokedexNumber()) == p) {
+                    putDex(p.getPokedexNumber(), p, i);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                Pokemon p = entries.get(i);
+                if (byDex(p.getPokedexNumber()) == null) {
+                    putDex(p.getPokedexNumber(), p, i);
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                Pokemon p = entries.get(i);
+                int next = p.getEvolvesTo();
+                if (byDex(p.getPokedexNumber()) == p && next != 0 && evolvesInto(next) == 0) {
+                    putEvolvesInto(next, i);
+                }
+            }
+        }
+
+        /**
+         * Checks whether storing the given Pokémon would make its evolution
+         * links lead back to its own number.
+         */
+        boolean closesEvolutionCycle(Pokemon pokemon) {
+            int target = pokemon.getEvolvesTo();
+            for (int steps = 0; target != 0 && steps <= size; steps++) {
+                if (target == pokemon.getPokedexNumber()) {
+                    return true;
+                }
+                Pokemon next = byDex(target);
+                if (next == null) {
+                    return false;
+                }
+                target = next.getEvolvesTo();
+            }
+            return false;
+        }
+
+        /**
+         * @return the stored species the given one evolves into, or null
+         */
+        Pokemon nextOf(Pokemon species) {
+            int next = species.getEvolvesTo();
+            return next != 0 ? byDex(next) : null;
+        }
+
+        /**
+         * Gets the number of the stored species the given one evolves from.
+         * A species that another one evolves into comes first; otherwise the
+         * species' own {@code evolvesFrom} link is used if that is stored.
+         *
+         * @return the Pokédex number, or 0
+         */
+        int previousOf(int dex) {
+            int from = evolvesInto(dex);
+            if (from != 0) {
+                return from;
+            }
+            Pokemon species = byDex(dex);
+            int back = species != null ? species.getEvolvesFrom() : 0;
+            return back != 0 && byDex(back) != null ? back : 0;
+        }
+
+        /**
+         * @return the stored species that do not evolve any further, in list order
+         */
+        List<Pokemon> finalForms() {
+            List<Pokemon> forms = finalForms;
+            if (forms == null) {
+                List<Pokemon> finals = new ArrayList<>();
+                for (int i = 0; i < size; i++) {
+                    Pokemon p = entries.get(i);
+                    if (byDex(p.getPokedexNumber()) == p && p.getEvolvesTo() == 0) {
+                        finals.add(p);
+                    }
+                }
+                forms = Collections.unmodifiableList(finals);
+                finalForms = forms;
+            }
+            return forms;
+        }
+
+        private int evolvesInto(int dex) {
+            if (inSlots(dex)) {
+                Pokemon from = evolvesIntoSlots.get(dex);
+                return from != null ? from.getPokedexNumber() : 0;
+            }
+            Integer stored = evolvesIntoOverflow.get(dex);
+            return stored != null && stored < size ? entries.get(stored).getPokedexNumber() : 0;
+        }
+
+        private void putEvolvesInto(int dex, int position) {
+            if (inSlots(dex)) {
+                evolvesIntoSlots.set(dex, entries.get(position));
+            } else {
+                evolvesIntoOverflow.put(dex, position);
+            }
+        }
+
+        /**
+         * Gets the entries in the given order. Each order is sorted once per
+         * state; a stat change publishes a new state (see
+         * {@link PokemonManager#statsChanged}), so the stat total order kept
+         * here matches the stats it was sorted by.
+         */
+        List<Pokemon> sortedBy(SortKey key) {
+            switch (key) {
+                case DEX_NUMBER:
+                    if (byDexNumber == null) {
+                        byDexNumber = sorted(Comparator.comparingInt(Pokemon::getPokedexNumber));
+                    }
+                    return byDexNumber;
+                case NAME:
+                    if (byName == null) {
+                        byName = sorted(Comparator.comparing(Pokemon::getName, String.CASE_INSENSITIVE_ORDER));
+                    }
+                    return byName;
+                default:
+                    if (byStatTotal == null) {
+                        byStatTotal = sorted(Comparator.comparingInt(Pokemon::getStatTotal).reversed());
+                    }
+                    return byStatTotal;
+            }
+        }
+
+        private List<Pokemon> sorted(Comparator<Pokemon> order) {
+            Pokemon[] copy = view.toArray(new Pokemon[0]);
+            Arrays.sort(copy, order); // stable, so ties stay in list order
+            return Collections.unmodifiableList(Arrays.asList(copy));
+        }
+
+        Pokemon byDex(int dex) {
+            if (inSlots(dex)) {
+                return dexSlots.get(dex);
+            }
+            Integer position = dexOverflow.get(dex);
+            return position != null && position < size ? entries.get(position) : null;
+        }
+
+        private void putDex(int dex, Pokemon pokemon, int position) {
+            if (inSlots(dex)) {
+                dexSlots.set(dex, pokemon);
+            } else {
+                dexOverflow.put(dex, position);
+            }
+        }
+
+        private static boolean inSlots(int dex) {
+            return dex >= 0 && dex <= MAX_DEX;
         }
     }
 
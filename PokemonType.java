@@ -0,0 +1,99 @@
+/**
+ * The recognized Pokémon types, in the same order as the type list that
+ * {@link TypeUtils} has always validated against. The ordinal of each type is
+ * used as its index in type-keyed tables.
+ */
+public enum PokemonType {
+    NORMAL("Normal"),
+    FIRE("Fire"),
+    WATER("Water"),
+    ELECTRIC("Electric"),
+    GRASS("Grass"),
+    ICE("Ice"),
+    FIGHTING("Fighting"),
+    POISON("Poison"),
+    GROUND("Ground"),
+    FLYING("Flying"),
+    PSYCHIC("Psychic"),
+    BUG("Bug"),
+    ROCK("Rock"),
+    GHOST("Ghost"),
+    DRAGON("Dragon"),
+    DARK("Dark"),
+    STEEL("Steel"),
+    FAIRY("Fairy");
+
+    private static final PokemonType[] VALUES = values();
+
+    // Types grouped by the letter they start with; no bucket holds more than four types
+    private static final PokemonType[][] BY_INITIAL = new PokemonType[26][];
+
+    static {
+        for (PokemonType type : VALUES) {
+            int slot = Character.toLowerCase(type.displayName.charAt(0)) - 'a';
+            PokemonType[] bucket = BY_INITIAL[slot];
+            if (bucket == null) {
+                bucket = new PokemonType[0];
+            }
+            PokemonType[] grown = new PokemonType[bucket.length + 1];
+            System.arraycopy(bucket, 0, grown, 0, bucket.length);
+            grown[bucket.length] = type;
+            BY_INITIAL[slot] = grown;
+        }
+    }
+
+    private final String displayName;
+
+    PokemonType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return the capitalized name of the type (e.g., "Fire")
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Gets the type with the given ordinal.
+     *
+     * @param ordinal the index of the type
+     * @return the type at that index
+     */
+    public static PokemonType ofOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Looks up a type by name (case-insensitive). The first letter selects a
+     * small bucket and the candidates are compared in place, so parsing does
+     * not allocate.
+     *
+     * @param name the type name, e.g. "fire" or "Fire"
+     * @return the matching type, or null if the name is null, empty or not a type
+     */
+    public static PokemonType fromString(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+
+        int slot = (name.charAt(0) | 0x20) - 'a'; // ASCII case folding
+        if (slot < 0 || slot >= BY_INITIAL.length || BY_INITIAL[slot] == null) {
+            return null;
+        }
+
+        int length = name.length();
+        for (PokemonType type : BY_INITIAL[slot]) {
+            if (type.displayName.length() == length && type.displayName.regionMatches(true, 0, name, 0, length)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -0,0 +1,47 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one manager search. Disabled unless a recording
+ * turns on {@code pokedex.Search}.
+ */
+@Name("pokedex.Search")
+@Label("Search")
+@Category("Pokédex")
+@Description("A Pokémon, move, item or trainer search")
+@Enabled(false)
+class SearchEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Query")
+    String query;
+
+    @Label("Results")
+    int results;
+
+    /**
+     * Fills in and commits the event if it is being recorded.
+     */
+    void complete(String operation, String query, int results) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.query = query;
+            this.results = results;
+            commit();
+        }
+    }
+
+    /**
+     * Fills in and commits the event for a search by several terms.
+     */
+    void complete(String operation, String[] terms, int results) {
+        if (shouldCommit()) {
+            complete(operation, String.join(" ", terms), results);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one shop or bag operation: a trainer buying,
+ * selling or using an item, or the shop handing out or taking back stock.
+ * Disabled unless a recording turns on {@code pokedex.Shop}.
+ */
+@Name("pokedex.Shop")
+@Label("Shop Operation")
+@Category("Pokédex")
+@Description("A purchase, sale or item use")
+@Enabled(false)
+class ShopEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Trainer ID")
+    @Description("0 for shop operations without a trainer")
+    int trainerId;
+
+    @Label("Item")
+    String itemName;
+
+    @Label("Quantity")
+    int quantity;
+
+    @Label("Pokédex Number")
+    @Description("The Pokémon an item was used on, otherwise 0")
+    int dexNumber;
+
+    @Label("Succeeded")
+    boolean succeeded;
+
+    /**
+     * Fills in and commits the event if it is being recorded.
+     */
+    void complete(String operation, int trainerId, String itemName, int quantity, int dexNumber, boolean succeeded) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            this.trainerId = trainerId;
+            this.itemName = itemName;
+            this.quantity = quantity;
+            this.dexNumber = dexNumber;
+            this.succeeded = succeeded;
+            commit();
+        }
+    }
+}
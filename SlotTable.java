@@ -0,0 +1,76 @@
+/**
+ * A fixed-length table of slots, indexed from 0, that successive versions
+ * change one slot at a time. The slots are kept in chunks of 32, so
+ * {@link #with} copies only the short array of chunks and the one chunk that
+ * changes and shares every other chunk with the version it came from. A
+ * chunk with no slot set yet is not allocated.
+ * <p>
+ * {@link #set} fills a table that has not been handed to readers yet; once
+ * it has, only {@link #with} may be used, and readers can use any version
+ * without locking.
+ *
+ * @param <T> the type of element
+ */
+final class SlotTable<T> {
+    private static final int CHUNK_BITS = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Object[][] chunks; // null for a chunk whose slots are all empty
+
+    /**
+     * Creates a table whose slots are all empty.
+     *
+     * @param length the number of slots
+     */
+    SlotTable(int length) {
+        this.chunks = new Object[(length + CHUNK_MASK) >>> CHUNK_BITS][];
+    }
+
+    private SlotTable(Object[][] chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * @return the element in the given slot, or null if it is empty
+     */
+    @SuppressWarnings("unchecked")
+    T get(int index) {
+        Object[] chunk = chunks[index >>> CHUNK_BITS];
+        return chunk == null ? null : (T) chunk[index & CHUNK_MASK];
+    }
+
+    /**
+     * Fills a slot of a table that no reader has seen yet.
+     *
+     * @param index   the slot
+     * @param element the element, or null to empty the slot
+     */
+    void set(int index, T element) {
+        Object[] chunk = chunks[index >>> CHUNK_BITS];
+        if (chunk == null) {
+            chunk = new Object[CHUNK_SIZE];
+            chunks[index >>> CHUNK_BITS] = chunk;
+        }
+        chunk[index & CHUNK_MASK] = element;
+    }
+
+    /**
+     * Creates the version in which one slot holds a different element.
+     *
+     * @param index   the slot
+     * @param element the element, or null to empty the slot
+     * @return the new version, or this one if the slot already holds the element
+     */
+    SlotTable<T> with(int index, T element) {
+        if (get(index) == element) {
+            return this;
+        }
+        Object[][] copy = chunks.clone();
+        Object[] chunk = copy[index >>> CHUNK_BITS];
+        chunk = chunk == null ? new Object[CHUNK_SIZE] : chunk.clone();
+        chunk[index & CHUNK_MASK] = element;
+        copy[index >>> CHUNK_BITS] = chunk;
+        return new SlotTable<>(copy);
+    }
+}
@@ -0,0 +1,596 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Saves and restores the whole Pokédex state (species, moves, shop items with
+ * their stock, and trainers with their lineups, storage and bags) as a single
+ * versioned binary file.
+ *
+ * <p>The file starts with a magic number and format version, followed by a
+ * table of every distinct move, item and Pokémon. The manager contents and the
+ * trainers then refer to table entries by position, so an object shared
+ * between a manager and a trainer (or two trainers) is still shared after
+ * loading. The trainers are followed by the journal sequence number the stock
+ * and each trainer were copied at, since a snapshot taken while trainers are
+ * being changed copies each of them at a different moment. The file ends with
+ * a CRC-32 of everything before it, and every length and count is checked
+ * against the bytes left before anything is allocated for it, so a damaged
+ * file is reported as corrupt.
+ */
+public class SnapshotStore {
+    private static final int MAGIC = 0x50445853; // "PDXS"
+    // 2 added the journal sequence after the header, 3 the CRC trailer, 4 the sequences after the trainers
+    private static final short VERSION = 4;
+
+    // Item kinds, since each Item subclass has its own extra field
+    private static final byte VITAMIN = 0;
+    private static final byte FEATHER = 1;
+    private static final byte RARE_CANDY = 2;
+    private static final byte EVOLUTION_STONE = 3;
+
+    // The smallest encoding of each record, to bound the counts read before them
+    private static final int MIN_MOVE_BYTES = 4 + 4 + 3; // two null strings, classification, two types
+    private static final int MIN_ITEM_BYTES = 1 + 3 * 4 + 3 * 4 + 4; // kind, three strings, prices, stock, extra
+    private static final int MIN_POKEMON_BYTES = 4 + 4 + 2 + 8 * 4 + 1 + 4; // through the held item
+    private static final int MIN_TRAINER_BYTES = 4 + 4 + 8 + 3 * 4 + 4 + 3 * 4; // through the bag count
+
+    /**
+     * Writes the state of all managers to a file. The file is written next to
+     * the target first and then moved over it, so a crash never leaves a
+     * half-written snapshot behind.
+     *
+     * @param file           the snapshot file to write
+     * @param pokemonManager the species to save
+     * @param moveManager    the moves to save
+     * @param itemManager    the shop items to save
+     * @param trainerManager the trainers to save
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Path file, PokemonManager pokemonManager, MoveManager moveManager,
+                            ItemManager itemManager, TrainerManager trainerManager) throws IOException {
+        save(file, pokemonManager, moveManager, itemManager, trainerManager, 0);
+    }
+
+    /**
+     * Writes the state of all managers to a file, recording the sequence
+     * number of the last {@link TrainerJournal} entry the state includes.
+     *
+     * @param file            the snapshot file to write
+     * @param pokemonManager  the species to save
+     * @param moveManager     the moves to save
+     * @param itemManager     the shop items to save
+     * @param trainerManager  the trainers to save
+     * @param journalSequence the last journal entry reflected in the state
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Path file, PokemonManager pokemonManager, MoveManager moveManager,
+                            ItemManager itemManager, TrainerManager trainerManager, long journalSequence)
+            throws IOException {
+        save(file, pokemonManager, moveManager, itemManager, trainerManager, null, journalSequence);
+    }
+
+    /**
+     * Writes the state of all managers while a journal goes on logging. The
+     * stock is copied inside the journal's lock, and each trainer (with the
+     * Pokémon in its roster) inside that trainer's lock, each together with
+     * the sequence number of the last entry the copy includes. No journal
+     * lock is held while a trainer's lock is taken. A Pokémon in two rosters
+     * is copied with the first.
+     *
+     * @param file           the snapshot file to write
+     * @param pokemonManager the species to save
+     * @param moveManager    the moves to save
+     * @param itemManager    the shop items to save
+     * @param trainerManager the trainers to save
+     * @param journal        the journal the stock and trainers log to
+     * @return the last journal entry included in every copy, so that later
+     *         entries are the only ones still needed
+     * @throws IOException if the file cannot be written
+     */
+    static long save(Path file, PokemonManager pokemonManager, MoveManager moveManager,
+                     ItemManager itemManager, TrainerManager trainerManager, TrainerJournal journal)
+            throws IOException {
+        return save(file, pokemonManager, moveManager, itemManager, trainerManager, journal, 0);
+    }
+
+    /**
+     * Copies the state, with sequence numbers from the journal or, without
+     * one, the given sequence for every copy, and writes it.
+     */
+    private static long save(Path file, PokemonManager pokemonManager, MoveManager moveManager,
+                             ItemManager itemManager, TrainerManager trainerManager, TrainerJournal journal,
+                             long journalSequence) throws IOException {
+        List<Pokemon> species = pokemonManager.getAllPokemon();
+        List<Move> shopMoves = moveManager.getAllMoves();
+        List<Item> shopItems = itemManager.getAllItems();
+        List<Trainer> trainers = trainerManager.getAllTrainers();
+
+        int[] stock = new int[shopItems.size()];
+        long stockSequence = journalSequence;
+        if (journal != null) {
+            stockSequence = journal.copyStock(shopItems, stock);
+        } else {
+            for (int i = 0; i < stock.length; i++) {
+                stock[i] = shopItems.get(i).getStock();
+            }
+        }
+        Map<Pokemon, PokemonCopy> pokemonCopies = new IdentityHashMap<>();
+        List<TrainerCopy> trainerCopies = new ArrayList<>(trainers.size());
+        long covered = stockSequence;
+        for (Trainer t : trainers) {
+            TrainerCopy copy = new TrainerCopy(t, journal, journalSequence, pokemonCopies);
+            trainerCopies.add(copy);
+            covered = Math.min(covered, copy.sequence);
+        }
+
+        // Collect every distinct object, starting with the manager contents
+        Table<Pokemon> pokemonTable = new Table<>();
+        pokemonTable.addAll(species);
+        for (TrainerCopy t : trainerCopies) {
+            pokemonTable.addAll(t.lineup);
+            pokemonTable.addAll(t.storage);
+        }
+
+        Table<Move> moveTable = new Table<>();
+        moveTable.addAll(shopMoves);
+        Table<Item> itemTable = new Table<>();
+        itemTable.addAll(shopItems);
+        List<PokemonCopy> pokemonRecords = new ArrayList<>(pokemonTable.entries.size());
+        for (Pokemon p : pokemonTable.entries) {
+            PokemonCopy copy = pokemonCopies.computeIfAbsent(p, PokemonCopy::new); // species outside any roster
+            pokemonRecords.add(copy);
+            moveTable.addAll(copy.moveSet);
+            if (copy.heldItem != null) {
+                itemTable.idOf(copy.heldItem);
+            }
+        }
+        for (TrainerCopy t : trainerCopies) {
+            itemTable.addAll(t.bag);
+        }
+
+        BinaryOut out = new BinaryOut(64 * 1024);
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putLong(covered);
+
+        out.putInt(moveTable.entries.size());
+        for (Move m : moveTable.entries) {
+            writeMove(out, m);
+        }
+        out.putInt(itemTable.entries.size());
+        for (int i = 0; i < itemTable.entries.size(); i++) {
+            Item item = itemTable.entries.get(i);
+            // The shop items come first in the table, in the order their stock was copied
+            writeItem(out, item, i < stock.length ? stock[i] : item.getStock());
+        }
+        out.putInt(pokemonRecords.size());
+        for (PokemonCopy p : pokemonRecords) {
+            writePokemon(out, p, moveTable, itemTable);
+        }
+
+        writeIds(out, species, pokemonTable);
+        writeIds(out, shopMoves, moveTable);
+        writeIds(out, shopItems, itemTable);
+
+        out.putInt(trainerCopies.size());
+        for (TrainerCopy t : trainerCopies) {
+            writeTrainer(out, t, pokemonTable, itemTable);
+        }
+        out.putLong(stockSequence);
+        for (TrainerCopy t : trainerCopies) {
+            out.putLong(t.sequence);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(out.written());
+        out.putInt((int) crc.getValue());
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer buffer = out.written();
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return covered;
+    }
+
+    /**
+     * Replaces the contents of all managers with the state saved in a file.
+     * The managers are only changed once the whole file has been read.
+     *
+     * @param file           the snapshot file to read
+     * @param pokemonManager receives the saved species
+     * @param moveManager    receives the saved moves
+     * @param itemManager    receives the saved shop items
+     * @param trainerManager receives the saved trainers
+     * @return the sequence number of the last journal entry included in the
+     *         whole snapshot, or 0 if none was recorded; pass it to
+     *         {@link TrainerJournal#replay}
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static long load(Path file, PokemonManager pokemonManager, MoveManager moveManager,
+                            ItemManager itemManager, TrainerManager trainerManager) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = ByteBuffer.allocate((int) channel.size());
+            while (in.hasRemaining()) {
+                if (channel.read(in) < 0) {
+                    break;
+                }
+            }
+        }
+        in.flip();
+
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IOException(file + " is not a Pokédex snapshot");
+            }
+            short version = in.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            if (version >= 3) {
+                checkTrailer(file, in);
+            }
+            long journalSequence = version >= 2 ? in.getLong() : 0;
+
+            List<Move> moves = new ArrayList<>();
+            for (int i = BinaryOut.readCount(in, MIN_MOVE_BYTES); i > 0; i--) {
+                moves.add(readMove(in));
+            }
+            List<Item> items = new ArrayList<>();
+            for (int i = BinaryOut.readCount(in, MIN_ITEM_BYTES); i > 0; i--) {
+                items.add(readItem(in));
+            }
+            List<Pokemon> pokemons = new ArrayList<>();
+            for (int i = BinaryOut.readCount(in, MIN_POKEMON_BYTES); i > 0; i--) {
+                pokemons.add(readPokemon(in, moves, items));
+            }
+
+            List<Pokemon> species = readIds(in, pokemons);
+            List<Move> shopMoves = readIds(in, moves);
+            List<Item> shopItems = readIds(in, items);
+
+            List<Trainer> trainers = new ArrayList<>();
+            for (int i = BinaryOut.readCount(in, MIN_TRAINER_BYTES); i > 0; i--) {
+                trainers.add(readTrainer(in, pokemons, items));
+            }
+            long stockSequence = journalSequence;
+            if (version >= 4) {
+                stockSequence = in.getLong();
+                for (Trainer t : trainers) {
+                    t.restoreSnapshotSequence(in.getLong());
+                }
+            } else {
+                for (Trainer t : trainers) {
+                    t.restoreSnapshotSequence(journalSequence);
+                }
+            }
+            if (version >= 3 && in.hasRemaining()) {
+                throw new IOException(file + " has " + in.remaining() + " unexpected bytes before its checksum");
+            }
+
+            pokemonManager.restore(species);
+            moveManager.restore(shopMoves);
+            itemManager.restore(shopItems, stockSequence);
+            trainerManager.restore(trainers);
+            return journalSequence;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException(file + " is truncated or corrupt", e);
+        }
+    }
+
+    /**
+     * Checks the CRC-32 at the end of the file against the bytes before it,
+     * and hides the trailer from the rest of the reader.
+     */
+    private static void checkTrailer(Path file, ByteBuffer in) throws IOException {
+        int end = in.limit() - Integer.BYTES;
+        if (end < in.position()) {
+            throw new IOException(file + " is truncated or corrupt");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(in.duplicate().position(0).limit(end));
+        if ((int) crc.getValue() != in.getInt(end)) {
+            throw new IOException(file + " is truncated or corrupt (checksum mismatch)");
+        }
+        in.limit(end);
+    }
+
+    private static void writeMove(BinaryOut out, Move m) {
+        out.putString(m.getName());
+        out.putString(m.getDescription());
+        out.putByte(m.getClassification().ordinal());
+        out.putByte(typeId(m.getPrimaryPokemonType()));
+        out.putByte(typeId(m.getSecondaryPokemonType()));
+    }
+
+    private static Move readMove(ByteBuffer in) {
+        String name = BinaryOut.readString(in);
+        String description = BinaryOut.readString(in);
+        Move.Classification classification = Move.Classification.values()[in.get()];
+        PokemonType primaryType = type(in.get());
+        PokemonType secondaryType = type(in.get());
+        return new Move(name, description, classification, primaryType, secondaryType);
+    }
+
+    private static void writeItem(BinaryOut out, Item item, int stock) throws IOException {
+        String extra = null;
+        if (item instanceof Vitamin) {
+            out.putByte(VITAMIN);
+            extra = ((Vitamin) item).getStatAffected();
+        } else if (item instanceof Feather) {
+            out.putByte(FEATHER);
+            extra = ((Feather) item).getStatAffected();
+        } else if (item instanceof RareCandy) {
+            out.putByte(RARE_CANDY);
+        } else if (item instanceof EvolutionStone) {
+            out.putByte(EVOLUTION_STONE);
+            extra = ((EvolutionStone) item).getStoneType();
+        } else {
+            throw new IOException("Cannot save item of type " + item.getClass().getName());
+        }
+
+        out.putString(item.getName());
+        out.putString(item.getDescription());
+        out.putString(item.getEffect());
+        out.putInt(item.getBuyingPrice());
+        out.putInt(item.getSellingPrice());
+        out.putInt(stock);
+        out.putString(extra);
+    }
+
+    private static Item readItem(ByteBuffer in) throws IOException {
+        byte kind = in.get();
+        String name = BinaryOut.readString(in);
+        String description = BinaryOut.readString(in);
+        String effect = BinaryOut.readString(in);
+        int buyingPrice = in.getInt();
+        int sellingPrice = in.getInt();
+        int stock = in.getInt();
+        String extra = BinaryOut.readString(in);
+
+        switch (kind) {
+            case VITAMIN:
+                return new Vitamin(name, description, effect, buyingPrice, sellingPrice, stock, extra);
+            case FEATHER:
+                return new Feather(name, description, effect, buyingPrice, sellingPrice, stock, extra);
+            case RARE_CANDY:
+                return new RareCandy(name, description, effect, buyingPrice, sellingPrice, stock);
+            case EVOLUTION_STONE:
+                return new EvolutionStone(name, description, effect, buyingPrice, sellingPrice, stock, extra);
+            default:
+                throw new IOException("Unknown item kind " + kind);
+        }
+    }
+
+    private static void writePokemon(BinaryOut out, PokemonCopy p, Table<Move> moves, Table<Item> items) {
+        out.putInt(p.dex);
+        out.putString(p.name);
+        out.putByte(typeId(p.primaryType));
+        out.putByte(typeId(p.secondaryType));
+        out.putInt(p.baseLevel);
+        out.putInt(p.evolvesFrom);
+        out.putInt(p.evolvesTo);
+        out.putInt(p.evolutionLevel);
+        out.putInt(p.hp);
+        out.putInt(p.attack);
+        out.putInt(p.defense);
+        out.putInt(p.speed);
+
+        out.putByte(p.moveSet.size());
+        for (Move m : p.moveSet) {
+            out.putInt(moves.idOf(m));
+        }
+        out.putInt(p.heldItem == null ? -1 : items.idOf(p.heldItem));
+    }
+
+    private static Pokemon readPokemon(ByteBuffer in, List<Move> moves, List<Item> items) {
+        int dex = in.getInt();
+        String name = BinaryOut.readString(in);
+        PokemonType primaryType = type(in.get());
+        PokemonType secondaryType = type(in.get());
+        int baseLevel = in.getInt();
+        int evolvesFrom = in.getInt();
+        int evolvesTo = in.getInt();
+        int evolutionLevel = in.getInt();
+        int hp = in.getInt();
+        int attack = in.getInt();
+        int defense = in.getInt();
+        int speed = in.getInt();
+
+        Pokemon p = new Pokemon(dex, name, primaryType, secondaryType, baseLevel, evolvesFrom, evolvesTo,
+                evolutionLevel, hp, attack, defense, speed);
+        for (int i = in.get(); i > 0; i--) {
+            p.restoreMove(moves.get(in.getInt()));
+        }
+        int heldItem = in.getInt();
+        if (heldItem >= 0) {
+            p.setHeldItem(items.get(heldItem));
+        }
+        return p;
+    }
+
+    private static void writeTrainer(BinaryOut out, TrainerCopy copy, Table<Pokemon> pokemons, Table<Item> items) {
+        Trainer t = copy.trainer;
+        out.putInt(t.getTrainerID());
+        out.putString(t.getName());
+        out.putLong(t.getBirthdate().toEpochDay());
+        out.putString(t.getSex());
+        out.putString(t.getHometown());
+        out.putString(t.getDescription());
+        out.putInt(copy.money);
+        writeIds(out, copy.lineup, pokemons);
+        writeIds(out, copy.storage, pokemons);
+
+        // Runs of the same item, one per bag slot, so the bag comes back in the same order
+        List<Item> bag = copy.bag;
+        int runs = 0;
+        for (int i = 0; i < bag.size(); i++) {
+            if (i == 0 || bag.get(i) != bag.get(i - 1)) {
+                runs++;
+            }
+        }
+        out.putInt(runs);
+        for (int start = 0; start < bag.size(); ) {
+            int end = start + 1;
+            while (end < bag.size() && bag.get(end) == bag.get(start)) {
+                end++;
+            }
+            out.putInt(items.idOf(bag.get(start)));
+            out.putInt(end - start);
+            start = end;
+        }
+    }
+
+    private static Trainer readTrainer(ByteBuffer in, List<Pokemon> pokemons, List<Item> items) {
+        int id = in.getInt();
+        String name = BinaryOut.readString(in);
+        LocalDate birthdate = LocalDate.ofEpochDay(in.getLong());
+        String sex = BinaryOut.readString(in);
+        String hometown = BinaryOut.readString(in);
+        String description = BinaryOut.readString(in);
+
+        Trainer t = new Trainer(id, name, birthdate, sex, hometown, description);
+        t.restoreMoney(in.getInt());
+        t.getLineup().addAll(readIds(in, pokemons));
+        t.getStorage().addAll(readIds(in, pokemons));
+        for (int i = BinaryOut.readCount(in, 8); i > 0; i--) {
+            Item item = items.get(in.getInt());
+            t.addItemToBag(item, in.getInt());
+        }
+        return t;
+    }
+
+    private static <T> void writeIds(BinaryOut out, List<T> list, Table<T> table) {
+        out.putInt(list.size());
+        for (T entry : list) {
+            out.putInt(table.idOf(entry));
+        }
+    }
+
+    private static <T> List<T> readIds(ByteBuffer in, List<T> table) {
+        int count = BinaryOut.readCount(in, Integer.BYTES);
+        List<T> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(table.get(in.getInt()));
+        }
+        return list;
+    }
+
+    private static int typeId(PokemonType type) {
+        return type == null ? -1 : type.ordinal();
+    }
+
+    private static PokemonType type(byte id) {
+        return id < 0 ? null : PokemonType.ofOrdinal(id);
+    }
+
+    /**
+     * The saved fields of a Pokémon, copied while no trainer can change them.
+     */
+    private static final class PokemonCopy {
+        final int dex;
+        final String name;
+        final PokemonType primaryType;
+        final PokemonType secondaryType;
+        final int baseLevel;
+        final int evolvesFrom;
+        final int evolvesTo;
+        final int evolutionLevel;
+        final int hp;
+        final int attack;
+        final int defense;
+        final int speed;
+        final List<Move> moveSet;
+        final Item heldItem;
+
+        PokemonCopy(Pokemon p) {
+            dex = p.getPokedexNumber();
+            name = p.getName();
+            primaryType = p.getPrimaryPokemonType();
+            secondaryType = p.getSecondaryPokemonType();
+            baseLevel = p.getBaseLevel();
+            evolvesFrom = p.getEvolvesFrom();
+            evolvesTo = p.getEvolvesTo();
+            evolutionLevel = p.getEvolutionLevel();
+            hp = p.getHP();
+            attack = p.getAttack();
+            defense = p.getDefense();
+            speed = p.getSpeed();
+            moveSet = p.getMoveSet();
+            heldItem = p.getHeldItem();
+        }
+    }
+
+    /**
+     * The saved state of a trainer, copied inside the trainer's lock with the
+     * journal sequence number it includes.
+     */
+    private static final class TrainerCopy {
+        final Trainer trainer;
+        final int money;
+        final List<Pokemon> lineup;
+        final List<Pokemon> storage;
+        final List<Item> bag;
+        final long sequence;
+
+        TrainerCopy(Trainer t, TrainerJournal journal, long journalSequence, Map<Pokemon, PokemonCopy> pokemonCopies) {
+            trainer = t;
+            synchronized (t) {
+                money = t.getMoney();
+                lineup = new ArrayList<>(t.getLineup());
+                storage = new ArrayList<>(t.getStorage());
+                bag = t.getItemBag();
+                for (Pokemon p : lineup) {
+                    pokemonCopies.computeIfAbsent(p, PokemonCopy::new);
+                }
+                for (Pokemon p : storage) {
+                    pokemonCopies.computeIfAbsent(p, PokemonCopy::new);
+                }
+                // The trainer's entries are logged inside its lock, so none can come between the copy and this
+                sequence = journal != null ? journal.getLastSequence() : journalSequence;
+            }
+        }
+    }
+
+    /**
+     * Numbers distinct objects (by identity) in the order they are first seen.
+     */
+    private static class Table<T> {
+        private final Map<T, Integer> ids = new IdentityHashMap<>();
+        private final List<T> entries = new ArrayList<>();
+
+        int idOf(T entry) {
+            Integer id = ids.get(entry);
+            if (id == null) {
+                id = entries.size();
+                ids.put(entry, id);
+                entries.add(entry);
+            }
+            return id;
+        }
+
+        void addAll(List<? extends T> list) {
+            for (T entry : list) {
+                idOf(entry);
+            }
+        }
+    }
+}
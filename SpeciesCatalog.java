@@ -0,0 +1,287 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A read-only species catalog kept in a memory-mapped file. Each Pokédex
+ * number from 1 up to the highest one in the catalog owns a fixed-width record
+ * (types, evolution links, base stats and the position of its name), so a
+ * species is found by arithmetic and its fields are read straight from the
+ * mapping. Processes that open the same file share it through the page cache
+ * instead of each holding the species on the heap.
+ *
+ * <p>Record layout (big-endian, 48 bytes): dex number (0 for an empty slot),
+ * primary and secondary type ordinals (-1 for none), two bytes of padding,
+ * base level, evolves from, evolves to, evolution level, HP, Attack, Defense,
+ * Speed, name offset and name length in bytes.
+ */
+public class SpeciesCatalog {
+    private static final int MAGIC = 0x50445843; // "PDXC"
+    private static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 48;
+
+    // Field offsets within a record
+    private static final int DEX = 0;
+    private static final int PRIMARY_TYPE = 4;
+    private static final int SECONDARY_TYPE = 5;
+    private static final int BASE_LEVEL = 8;
+    private static final int EVOLVES_FROM = 12;
+    private static final int EVOLVES_TO = 16;
+    private static final int EVOLUTION_LEVEL = 20;
+    private static final int HP = 24;
+    private static final int ATTACK = 28;
+    private static final int DEFENSE = 32;
+    private static final int SPEED = 36;
+    private static final int NAME_OFFSET = 40;
+    private static final int NAME_LENGTH = 44;
+
+    private final ByteBuffer data;
+    private final int maxDex;
+    private final AtomicReferenceArray<Pokemon> species; // built by speciesOf on first use, by dex number
+
+    private SpeciesCatalog(ByteBuffer data, int maxDex) {
+        this.data = data;
+        this.maxDex = maxDex;
+        this.species = new AtomicReferenceArray<>(maxDex + 1);
+    }
+
+    /**
+     * Writes a catalog file for the given species. Species with a Pokédex
+     * number outside 1-{@value PokemonManager#MAX_DEX} are skipped; if two
+     * share a number, the first one wins.
+     *
+     * @param file    the catalog file to write
+     * @param species the species to include
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, List<Pokemon> species) throws IOException {
+        int maxDex = 0;
+        int nameBytes = 0;
+        for (Pokemon p : species) {
+            if (inRange(p.getPokedexNumber())) {
+                maxDex = Math.max(maxDex, p.getPokedexNumber());
+                nameBytes += p.getName().getBytes(StandardCharsets.UTF_8).length;
+            }
+        }
+
+        int namesStart = HEADER_SIZE + maxDex * RECORD_SIZE;
+        ByteBuffer out = ByteBuffer.allocate(namesStart + nameBytes);
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        out.putShort((short) 0);
+        out.putInt(maxDex);
+        out.putInt(namesStart);
+
+        int nameOffset = namesStart;
+        for (Pokemon p : species) {
+            int dex = p.getPokedexNumber();
+            if (!inRange(dex) || out.getInt(recordOffset(dex) + DEX) != 0) {
+                continue;
+            }
+            int record = recordOffset(dex);
+
+            byte[] name = p.getName().getBytes(StandardCharsets.UTF_8);
+            out.putInt(record + DEX, dex);
+            out.put(record + PRIMARY_TYPE, typeId(p.getPrimaryPokemonType()));
+            out.put(record + SECONDARY_TYPE, typeId(p.getSecondaryPokemonType()));
+            out.putInt(record + BASE_LEVEL, p.getBaseLevel());
+            out.putInt(record + EVOLVES_FROM, p.getEvolvesFrom());
+            out.putInt(record + EVOLVES_TO, p.getEvolvesTo());
+            out.putInt(record + EVOLUTION_LEVEL, p.getEvolutionLevel());
+            out.putInt(record + HP, p.getHP());
+            out.putInt(record + ATTACK, p.getAttack());
+            out.putInt(record + DEFENSE, p.getDefense());
+            out.putInt(record + SPEED, p.getSpeed());
+            out.putInt(record + NAME_OFFSET, nameOffset);
+            out.putInt(record + NAME_LENGTH, name.length);
+            out.put(nameOffset, name);
+            nameOffset += name.length;
+        }
+        out.position(0);
+        out.limit(nameOffset);
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps a catalog file read-only.
+     *
+     * @param file the catalog file written by {@link #write(Path, List)}
+     * @return the opened catalog
+     * @throws IOException if the file cannot be mapped, is not a catalog, or
+     *                     has a record that points outside the file
+     */
+    public static SpeciesCatalog open(Path file) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException(file + " is not a species catalog");
+        }
+        if (data.getShort(4) != VERSION) {
+            throw new IOException("Unsupported catalog version " + data.getShort(4));
+        }
+        int maxDex = data.getInt(8);
+        int namesStart = data.getInt(12);
+        if (maxDex < 0 || maxDex > PokemonManager.MAX_DEX || namesStart != HEADER_SIZE + maxDex * RECORD_SIZE
+                || namesStart > data.capacity()) {
+            throw new IOException(file + " is truncated or corrupt");
+        }
+
+        // Check every record once here, so the accessors can trust the offsets they read
+        for (int dex = 1; dex <= maxDex; dex++) {
+            int record = recordOffset(dex);
+            int storedDex = data.getInt(record + DEX);
+            if (storedDex == 0) {
+                continue;
+            }
+            long nameOffset = data.getInt(record + NAME_OFFSET);
+            long nameLength = data.getInt(record + NAME_LENGTH);
+            if (storedDex != dex || !validType(data.get(record + PRIMARY_TYPE))
+                    || !validType(data.get(record + SECONDARY_TYPE)) || nameOffset < namesStart || nameLength < 0
+                    || nameOffset + nameLength > data.capacity()) {
+                throw new IOException(file + " has a corrupt record for Pokédex number " + dex);
+            }
+        }
+        return new SpeciesCatalog(data, maxDex);
+    }
+
+    /**
+     * @return the highest Pokédex number the catalog has room for
+     */
+    public int getMaxDex() {
+        return maxDex;
+    }
+
+    /**
+     * Checks whether the catalog has a species with the given number.
+     *
+     * @param dex the Pokédex number
+     * @return {@code true} if the species is in the catalog
+     */
+    public boolean contains(int dex) {
+        return dex >= 1 && dex <= maxDex && data.getInt(recordOffset(dex) + DEX) != 0;
+    }
+
+    public String getName(int dex) {
+        int record = recordOffset(dex);
+        byte[] name = new byte[data.getInt(record + NAME_LENGTH)];
+        data.get(data.getInt(record + NAME_OFFSET), name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    public PokemonType getPrimaryType(int dex) {
+        return type(data.get(recordOffset(dex) + PRIMARY_TYPE));
+    }
+
+    public PokemonType getSecondaryType(int dex) {
+        return type(data.get(recordOffset(dex) + SECONDARY_TYPE));
+    }
+
+    public int getBaseLevel(int dex) {
+        return data.getInt(recordOffset(dex) + BASE_LEVEL);
+    }
+
+    public int getEvolvesFrom(int dex) {
+        return data.getInt(recordOffset(dex) + EVOLVES_FROM);
+    }
+
+    public int getEvolvesTo(int dex) {
+        return data.getInt(recordOffset(dex) + EVOLVES_TO);
+    }
+
+    public int getEvolutionLevel(int dex) {
+        return data.getInt(recordOffset(dex) + EVOLUTION_LEVEL);
+    }
+
+    public int getHP(int dex) {
+        return data.getInt(recordOffset(dex) + HP);
+    }
+
+    public int getAttack(int dex) {
+        return data.getInt(recordOffset(dex) + ATTACK);
+    }
+
+    public int getDefense(int dex) {
+        return data.getInt(recordOffset(dex) + DEFENSE);
+    }
+
+    public int getSpeed(int dex) {
+        return data.getInt(recordOffset(dex) + SPEED);
+    }
+
+    /**
+     * Builds a Pokémon object from a catalog record.
+     *
+     * @param dex the Pokédex number
+     * @return a new Pokémon with the species data, or null if the species is not in the catalog
+     */
+    public Pokemon toPokemon(int dex) {
+        if (!contains(dex)) {
+            return null;
+        }
+        return new Pokemon(dex, getName(dex), getPrimaryType(dex), getSecondaryType(dex), getBaseLevel(dex),
+                getEvolvesFrom(dex), getEvolvesTo(dex), getEvolutionLevel(dex), getHP(dex), getAttack(dex),
+                getDefense(dex), getSpeed(dex));
+    }
+
+    /**
+     * Gets the species for a record as one Pokémon that is built on first use
+     * and returned on every later call, so looking up the same species again
+     * allocates nothing. The object is shared, so callers must only read it;
+     * use {@link #toPokemon(int)} for one that can be changed.
+     *
+     * @param dex the Pokédex number
+     * @return the shared Pokémon, or null if the species is not in the catalog
+     */
+    Pokemon speciesOf(int dex) {
+        if (!contains(dex)) {
+            return null;
+        }
+        Pokemon p = species.get(dex);
+        if (p == null) {
+            species.compareAndSet(dex, null, toPokemon(dex));
+            p = species.get(dex);
+        }
+        return p;
+    }
+
+    private static boolean inRange(int dex) {
+        return dex >= 1 && dex <= PokemonManager.MAX_DEX;
+    }
+
+    private static boolean validType(byte id) {
+        return id >= -1 && id < PokemonType.values().length;
+    }
+
+    private static int recordOffset(int dex) {
+        return HEADER_SIZE + (dex - 1) * RECORD_SIZE;
+    }
+
+    private static byte typeId(PokemonType type) {
+        return (byte) (type == null ? -1 : type.ordinal());
+    }
+
+    private static PokemonType type(byte id) {
+        return id < 0 ? null : PokemonType.ofOrdinal(id);
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * A keyword index over free text such as names, descriptions and effects.
+ * Text is split into lower-case words when a record is added, and each word
+ * maps to the records that contain it. A query matches the records that have,
+ * for every query word, some word containing it, as the plain substring search
+ * this replaced did: "sp att" finds "+10 Special Attack EVs" and "ckle" finds
+ * "Tackle". Query words are matched within one word of the text, so a query
+ * word never spans the space between two words.
+ * <p>
+ * Every suffix of every indexed word is kept in a sorted map, so the words
+ * containing a query word are the range of suffixes starting with it. The
+ * work done depends on the number of matching words and the size of their
+ * postings, not on the number of records.
+ *
+ * @param <T> the type of record being indexed
+ */
+class TextIndex<T> {
+    private final Map<String, Set<T>> terms = new HashMap<>();
+    private final TreeMap<String, Set<String>> suffixes = new TreeMap<>(); // suffix -> the words ending with it
+    private final Map<T, Integer> sequence = new HashMap<>();
+    private final Map<T, Set<String>> termsOf = new HashMap<>();
+    private int nextSequence;
+
+    /**
+     * Adds a record with the text it should be found by.
+     *
+     * @param item  the record
+     * @param texts the pieces of text to index (null pieces are skipped)
+     */
+    public void add(T item, String... texts) {
+        sequence.put(item, nextSequence++);
+        Set<String> words = new HashSet<>();
+        for (String text : texts) {
+            if (text != null) {
+                words.addAll(tokenize(text));
+            }
+        }
+        for (String word : words) {
+            Set<T> posting = terms.get(word);
+            if (posting == null) {
+                posting = new LinkedHashSet<>();
+                terms.put(word, posting);
+                for (int i = 0; i < word.length(); i++) {
+                    suffixes.computeIfAbsent(word.substring(i), k -> new HashSet<>()).add(word);
+                }
+            }
+            posting.add(item);
+        }
+        termsOf.put(item, words);
+    }
+
+    /**
+     * Removes a record from the index.
+     *
+     * @param item the record to remove
+     */
+    public void remove(T item) {
+        Set<String> words = termsOf.remove(item);
+        if (words == null) {
+            return;
+        }
+        sequence.remove(item);
+        for (String word : words) {
+            Set<T> posting = terms.get(word);
+            posting.remove(item);
+            if (posting.isEmpty()) {
+                terms.remove(word);
+                for (int i = 0; i < word.length(); i++) {
+                    Set<String> ending = suffixes.get(word.substring(i));
+                    ending.remove(word);
+                    if (ending.isEmpty()) {
+                        suffixes.remove(word.substring(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the records that have, for every word of the query, a word
+     * containing it.
+     *
+     * @param query one or more words, e.g. "raises def"
+     * @return the matching records in the order they were added; every record
+     *         if the query is blank, and none if it has characters but no
+     *         words (e.g. "!!")
+     */
+    public List<T> search(String query) {
+        List<String> queryWords = tokenize(query);
+        if (queryWords.isEmpty()) {
+            return query.isBlank() ? inOrder(sequence.keySet()) : new ArrayList<>();
+        }
+
+        List<Set<T>> perWord = new ArrayList<>(queryWords.size());
+        for (String word : queryWords) {
+            Set<T> hits = new HashSet<>();
+            for (Set<String> containing : suffixes.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                for (String term : containing) {
+                    hits.addAll(terms.get(term));
+                }
+            }
+            if (hits.isEmpty()) {
+                return new ArrayList<>();
+            }
+            perWord.add(hits);
+        }
+
+        Set<T> smallest = perWord.get(0);
+        for (Set<T> hits : perWord) {
+            if (hits.size() < smallest.size()) {
+                smallest = hits;
+            }
+        }
+
+        List<T> matches = new ArrayList<>();
+        for (T item : smallest) {
+            boolean inAll = true;
+            for (Set<T> hits : perWord) {
+                if (hits != smallest && !hits.contains(item)) {
+                    inAll = false;
+                    break;
+                }
+            }
+            if (inAll) {
+                matches.add(item);
+            }
+        }
+        return inOrder(matches);
+    }
+
+    /**
+     * Removes every record.
+     */
+    public void clear() {
+        terms.clear();
+        suffixes.clear();
+        sequence.clear();
+        termsOf.clear();
+        nextSequence = 0;
+    }
+
+    /**
+     * Checks whether text contains a word, i.e. a letter or digit, without
+     * splitting it.
+     *
+     * @param text the text to check
+     * @return {@code true} if {@link #tokenize(String)} would find a word
+     */
+    static boolean hasWords(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.isLetterOrDigit(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits text into lower-case words made of letters and digits.
+     *
+     * @param text the text to split
+     * @return the words in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private List<T> inOrder(Collection<T> items) {
+        List<T> ordered = new ArrayList<>(items);
+        ordered.sort((a, b) -> Integer.compare(sequence.get(a), sequence.get(b)));
+        return ordered;
+    }
+}
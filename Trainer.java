@@ -1,6 +1,11 @@
 import java.time.LocalDate;
+import java.util.AbstractList;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
 
 public class Trainer {
     // Attributes
@@ -14,10 +19,20 @@ public class Trainer {
 
     private List<Pokemon> lineup; // Up to 6
     private List<Pokemon> storage; // Storage for additional pokemon
-    private List<Item> itemBag; // Up to 50 (max 10 unique)
+    private Map<String, BagSlot> itemBag; // Lower-case item name -> slot; up to 50 units (max 10 unique), in the order first added
+    private int totalItems; // Units across all slots
+    private List<Item> itemBagView; // shared result of getItemBagView, dropped when the bag changes
     private final int MAX_BAG_SIZE = 50;
     private final int MAX_UNIQUE_TYPES = 10;
 
+    // Call counts and latencies, see Metrics
+    private static final Metrics.Timer PURCHASE_TIMER = Metrics.timer("trainer.processPurchase");
+    private static final Metrics.Timer SALE_TIMER = Metrics.timer("trainer.processSale");
+    private static final Metrics.Timer USE_ITEM_TIMER = Metrics.timer("trainer.useItem");
+
+    private TrainerJournal journal; // Records money, bag and roster changes; null when not journaled
+    private long snapshotSequence; // Last journal entry already in the state loaded from a snapshot
+
     // Constructor
     public Trainer(int trainerId, String name, LocalDate birthdate, String sex, String hometown, String description) {
         this.trainerID = trainerId;
@@ -30,7 +45,7 @@ public class Trainer {
 
         this.lineup = new ArrayList<>();
         this.storage = new ArrayList<>();
-        this.itemBag = new ArrayList<>();
+        this.itemBag = new LinkedHashMap<>();
     }
 
     // Getters
@@ -58,7 +73,7 @@ public class Trainer {
         return description;
     }
 
-    public int getMoney() {
+    public synchronized int getMoney() {
         return money;
     }
 
@@ -70,18 +85,77 @@ public class Trainer {
         return storage;
     }
 
-    public List<Item> getItemBag() {
-        return new ArrayList<>(itemBag);
+    /**
+     * Gets the contents of the item bag, one entry per unit held. The list
+     * copies only the slots and works out which item a position holds when
+     * asked, so it does not grow with the number of units.
+     *
+     * @return an unmodifiable list of the units, grouped by item in the order
+     *         each item was first added
+     */
+    public synchronized List<Item> getItemBag() {
+        return new BagView(itemBag.values());
+    }
+
+    /**
+     * Gets the contents of the item bag like {@link #getItemBag()}, but
+     * returns the same list until the bag next changes.
+     *
+     * @return an unmodifiable list of the units, grouped by item
+     */
+    public synchronized List<Item> getItemBagView() {
+        if (itemBagView == null) {
+            itemBagView = getItemBag();
+        }
+        return itemBagView;
+    }
+
+    /**
+     * Sets the journal that money, bag and roster changes are recorded in.
+     *
+     * @param journal the journal, or null to stop recording
+     */
+    void setJournal(TrainerJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Gets the sequence number of the last journal entry whose change to this
+     * trainer the loaded snapshot already includes.
+     *
+     * @return the sequence number, or 0 if the trainer was not loaded from a snapshot
+     */
+    long getSnapshotSequence() {
+        return snapshotSequence;
+    }
+
+    /**
+     * Sets the journal sequence the state of this trainer was saved at, when
+     * loading a snapshot.
+     *
+     * @param sequence the last journal entry included in the state
+     */
+    void restoreSnapshotSequence(long sequence) {
+        this.snapshotSequence = sequence;
     }
 
     // Setter for money
-    public void addMoney(int amount) {
+    public synchronized void addMoney(int amount) {
         if (amount > 0) {
             this.money += amount;
         }
     }
 
-    public boolean subtractMoney(int amount) {
+    /**
+     * Sets the money directly, e.g. when loading a snapshot.
+     *
+     * @param money the amount of money held
+     */
+    synchronized void restoreMoney(int money) {
+        this.money = money;
+    }
+
+    public synchronized boolean subtractMoney(int amount) {
         if (amount > 0 && this.money >= amount) {
             this.money -= amount;
             return true;
@@ -91,32 +165,20 @@ public class Trainer {
 
     // Methods
 
-    public int getItemQuantity(String itemName) {
-        int ctr = 0;
-        for (Item item : itemBag) {
-            if (item.getName().equalsIgnoreCase(itemName)) {
-                ctr++;
-            }
-        }
-        return ctr;
+    public synchronized int getItemQuantity(String itemName) {
+        BagSlot slot = itemBag.get(fold(itemName));
+        return slot == null ? 0 : slot.quantity;
     }
 
-    public int getTotalItemCount() {
-        return itemBag.size();
+    public synchronized int getTotalItemCount() {
+        return totalItems;
     }
 
-    public int getUniqueItemTypeCount() {
-        List<String> uniqueNames = new ArrayList<>();
-
-        for (Item item : itemBag) {
-            if (!uniqueNames.contains(item.getName())) {
-                uniqueNames.add(item.getName());
-            }
-        }
-        return uniqueNames.size();
+    public synchronized int getUniqueItemTypeCount() {
+        return itemBag.size();
     }
 
-    public boolean addItemToBag(Item item, int quantity) {
+    public synchronized boolean addItemToBag(Item item, int quantity) {
         if (quantity <= 0) {
             return false;
         }
@@ -129,30 +191,49 @@ public class Trainer {
             return false;
         }
 
-        for (int i = 0; i < quantity; i++) {
-            itemBag.add(item);
-        }
+        putInBag(item, quantity);
         return true;
     }
 
-    public boolean removeItemFromBag(String itemName, int quantity) {
+    public synchronized boolean removeItemFromBag(String itemName, int quantity) {
         if (quantity <= 0) return false;
 
         if (getItemQuantity(itemName) < quantity) {
             return false; // Not enough items to remove
         }
 
-        int removedCount = 0;
-        for (int i = itemBag.size() - 1; i >= 0 && removedCount < quantity; i--) {
-            if (itemBag.get(i).getName().equalsIgnoreCase(itemName)) {
-                itemBag.remove(i);
-                removedCount++;
-            }
+        String key = fold(itemName);
+        BagSlot slot = itemBag.get(key);
+        slot.quantity -= quantity;
+        if (slot.quantity == 0) {
+            itemBag.remove(key);
         }
-        return removedCount == quantity;
+        totalItems -= quantity;
+        itemBagView = null;
+        return true;
+    }
+
+    private void putInBag(Item item, int quantity) {
+        BagSlot slot = itemBag.computeIfAbsent(fold(item.getName()), key -> new BagSlot(item));
+        slot.quantity += quantity;
+        totalItems += quantity;
+        itemBagView = null;
     }
 
-    public boolean processPurchase(Item shopItem, int quantity) {
+    // Bag slots match names like equalsIgnoreCase
+    private static String fold(String itemName) {
+        return itemName.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks whether this trainer can pay for and carry a purchase, i.e. has
+     * enough money and stays within the bag limits.
+     *
+     * @param shopItem the item to buy
+     * @param quantity the number of units
+     * @return {@code true} if {@link #processPurchase(Item, int)} would succeed
+     */
+    synchronized boolean canPurchase(Item shopItem, int quantity) {
         int totalCost = shopItem.getBuyingPrice() * quantity;
         if (totalCost == -1 || totalCost > money) {
             return false; // Item not for sale or not enough money
@@ -165,31 +246,112 @@ public class Trainer {
         if (getTotalItemCount() + quantity > MAX_BAG_SIZE) {
             return false; // GUI handles message and discard prompt
         }
+        return true;
+    }
+
+    public synchronized boolean processPurchase(Item shopItem, int quantity) {
+        return processPurchase(shopItem, quantity, false);
+    }
+
+    /**
+     * Buys items like {@link #processPurchase(Item, int)}.
+     *
+     * @param fromStock {@code true} to take the units from the shop's stock,
+     *                  refusing the purchase if too few are left
+     */
+    synchronized boolean processPurchase(Item shopItem, int quantity, boolean fromStock) {
+        long startNanos = PURCHASE_TIMER.start();
+        ShopEvent event = new ShopEvent();
+        event.begin();
+        boolean purchased = false;
+        try {
+            purchased = buy(shopItem, quantity, fromStock);
+            return purchased;
+        } finally {
+            PURCHASE_TIMER.stop(startNanos);
+            event.complete("processPurchase", trainerID, shopItem.getName(), quantity, 0, purchased);
+        }
+    }
+
+    public synchronized boolean processSale(Item shopItem, int quantity) {
+        return processSale(shopItem, quantity, false);
+    }
 
-        if (subtractMoney(totalCost)) {
-            for (int i = 0; i < quantity; i++) {
-                itemBag.add(shopItem);
+    /**
+     * Sells items like {@link #processSale(Item, int)}.
+     *
+     * @param toStock {@code true} to put the units back into the shop's
+     *                stock
+     */
+    synchronized boolean processSale(Item shopItem, int quantity, boolean toStock) {
+        long startNanos = SALE_TIMER.start();
+        ShopEvent event = new ShopEvent();
+        event.begin();
+        boolean sold = false;
+        try {
+            sold = sell(shopItem, quantity, toStock);
+            return sold;
+        } finally {
+            SALE_TIMER.stop(startNanos);
+            event.complete("processSale", trainerID, shopItem.getName(), quantity, 0, sold);
+        }
+    }
+
+    public synchronized boolean useItem(Item item, Pokemon pokemon, PokemonManager pokemonManager) {
+        long startNanos = USE_ITEM_TIMER.start();
+        ShopEvent event = new ShopEvent();
+        event.begin();
+        boolean used = false;
+        try {
+            used = use(item, pokemon, pokemonManager);
+            return used;
+        } finally {
+            USE_ITEM_TIMER.stop(startNanos);
+            event.complete("useItem", trainerID, item != null ? item.getName() : null, 1,
+                    pokemon != null ? pokemon.getPokedexNumber() : 0, used);
+        }
+    }
+
+    // Changes are journaled once the checks have passed and before they are
+    // made, so a journal that cannot take the entry leaves the trainer as it was.
+    // Shop stock is moved by the journal together with the entry.
+
+    private boolean buy(Item shopItem, int quantity, boolean fromStock) {
+        int totalCost = shopItem.getBuyingPrice() * quantity;
+        if (quantity <= 0 || totalCost <= 0 || !canPurchase(shopItem, quantity)) {
+            return false;
+        }
+
+        if (journal != null) {
+            if (!journal.logPurchase(trainerID, shopItem, quantity, fromStock)) {
+                return false; // out of stock
             }
-            return true;
+        } else if (fromStock && !shopItem.tryTakeStock(quantity)) {
+            return false;
         }
-        return false;
+        subtractMoney(totalCost);
+        putInBag(shopItem, quantity);
+        return true;
     }
 
-    public boolean processSale(Item shopItem, int quantity) {
+    private boolean sell(Item shopItem, int quantity, boolean toStock) {
         int totalProceeds = shopItem.getSellingPrice() * quantity;
 
-        if (totalProceeds == -1 || getItemQuantity(shopItem.getName()) < quantity) {
+        if (quantity <= 0 || totalProceeds == -1 || getItemQuantity(shopItem.getName()) < quantity) {
             return false;
         }
 
-        if (removeItemFromBag(shopItem.getName(), quantity)) {
-            addMoney(totalProceeds);
-            return true;
+        if (journal != null) {
+            journal.logSale(trainerID, shopItem, quantity, toStock);
+        } else if (toStock) {
+            shopItem.returnStock(quantity);
         }
-        return false;
+        removeItemFromBag(shopItem.getName(), quantity);
+        addMoney(totalProceeds);
+        return true;
     }
 
-    public boolean useItem(Item item, Pokemon pokemon, PokemonManager pokemonManager) {
+    private boolean use(Item item, Pokemon pokemon, PokemonManager pokemonManager) {
         if (item == null || pokemon == null || pokemonManager == null) {
             return false;
         }
@@ -198,6 +360,16 @@ public class Trainer {
             return false;
         }
 
+        if (journal != null) {
+            if (lineup.contains(pokemon)) {
+                journal.logUseItem(trainerID, item.getName(), TrainerJournal.LINEUP, lineup.indexOf(pokemon));
+            } else if (storage.contains(pokemon)) {
+                journal.logUseItem(trainerID, item.getName(), TrainerJournal.STORAGE, storage.indexOf(pokemon));
+            } else {
+                journal.logUseItem(trainerID, item.getName(), TrainerJournal.NOT_IN_ROSTER, -1);
+            }
+        }
+
         item.use(pokemon, pokemonManager);
 
         boolean itemConsumed = true;
@@ -212,7 +384,11 @@ public class Trainer {
         return pokemon.learnMove(move);
     }
 
-    public boolean addPokemonToLineup(Pokemon p) {
+    public synchronized boolean addPokemonToLineup(Pokemon p) {
+        if (journal != null) {
+            journal.logAddPokemon(trainerID, p);
+        }
+
         if (lineup.size() < 6) {
             lineup.add(p);
             return true;
@@ -222,8 +398,11 @@ public class Trainer {
         }
     }
 
-    public boolean switchToLineup(Pokemon p) {
+    public synchronized boolean switchToLineup(Pokemon p) {
         if (lineup.size() < 6 && storage.contains(p)) {
+            if (journal != null) {
+                journal.logSwitchToLineup(trainerID, storage.indexOf(p));
+            }
             storage.remove(p);
             lineup.add(p);
             return true;
@@ -231,8 +410,11 @@ public class Trainer {
         return false;
     }
 
-    public boolean switchToStorage(Pokemon p) {
+    public synchronized boolean switchToStorage(Pokemon p) {
         if (lineup.contains(p)) {
+            if (journal != null) {
+                journal.logSwitchToStorage(trainerID, lineup.indexOf(p));
+            }
             lineup.remove(p);
             storage.add(p);
             return true;
@@ -240,7 +422,14 @@ public class Trainer {
         return false;
     }
 
-    public boolean releasePokemon(Pokemon p) {
+    public synchronized boolean releasePokemon(Pokemon p) {
+        if (journal != null) {
+            if (lineup.contains(p)) {
+                journal.logRelease(trainerID, TrainerJournal.LINEUP, lineup.indexOf(p));
+            } else if (storage.contains(p)) {
+                journal.logRelease(trainerID, TrainerJournal.STORAGE, storage.indexOf(p));
+            }
+        }
         return lineup.remove(p) || storage.remove(p);
     }
 
@@ -255,20 +444,82 @@ public class Trainer {
      *
      * private List<Pokemon> lineup; // Up to 6
      * private List<Pokemon> storage; // Storage for additional pokemon
-     * private List<Item> itemBag; // Up to 50 (max 10 unique)
+     * private Map<String, BagSlot> itemBag; // Up to 50 (max 10 unique)
      */
     public String displayProfile() {
-        StringBuilder sb = new StringBuilder();
+        return appendProfile(new StringBuilder(160)).toString();
+    }
+
+    /**
+     * Appends the same text as {@link #displayProfile()} to a builder.
+     *
+     * @param sb the builder to append to
+     * @return the builder
+     */
+    public StringBuilder appendProfile(StringBuilder sb) {
+        sb.append("ID         : ");
+        FormatUtils.appendZeroPadded(sb, trainerID, 4);
+        sb.append('\n');
+        sb.append("Name       : ").append(name).append('\n');
+        sb.append("Sex        : ").append(sex).append('\n');
+        sb.append("Birthdate  : ").append(birthdate.toString()).append('\n');
+        sb.append("Hometown   : ").append(hometown).append('\n');
+        sb.append("Money      : ₱");
+        FormatUtils.appendGrouped(sb, money);
+        sb.append('\n');
+        sb.append("Description: ").append(description).append('\n');
+
+        return sb;
+    }
 
-        sb.append(String.format("ID         : %04d\n", trainerID));
-        sb.append(String.format("Name       : %s\n", name));
-        sb.append(String.format("Sex        : %s\n", sex));
-        sb.append(String.format("Birthdate  : %s\n", birthdate.toString()));
-        sb.append(String.format("Hometown   : %s\n", hometown));
-        sb.append(String.format("Money      : ₱%,d\n", money));
-        sb.append(String.format("Description: %s\n", description));
+    /**
+     * How many units of one kind of item are held.
+     */
+    private static class BagSlot {
+        private final Item item; // the first unit added; later units of the same name share the slot
+        private int quantity;
 
-        return sb.toString();
+        BagSlot(Item item) {
+            this.item = item;
+        }
     }
 
+    /**
+     * The units of a bag, one entry each, read from a copy of the slots.
+     */
+    private static class BagView extends AbstractList<Item> {
+        private final Item[] items;
+        private final int[] ends; // position after the last unit of each slot
+        private final int size;
+
+        BagView(Collection<BagSlot> slots) {
+            items = new Item[slots.size()];
+            ends = new int[slots.size()];
+            int i = 0;
+            int end = 0;
+            for (BagSlot slot : slots) {
+                items[i] = slot.item;
+                end += slot.quantity;
+                ends[i++] = end;
+            }
+            size = end;
+        }
+
+        @Override
+        public Item get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+            }
+            int slot = 0;
+            while (ends[slot] <= index) { // at most 10 slots
+                slot++;
+            }
+            return items[slot];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
 }
@@ -0,0 +1,661 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only journal of trainer mutations (purchases, sales, item use and
+ * roster changes) and of the shop stock they and the shop's own sales move,
+ * replayed on startup on top of the latest {@link SnapshotStore} snapshot.
+ * A change is journaled before it is applied, once it is known to succeed, so
+ * a failed write leaves the trainer and the stock unchanged. Shop stock is
+ * changed inside the journal's lock together with its entry, so the stock
+ * and the sequence number can be read together without any trainer's lock.
+ *
+ * <p>Entries are collected in memory and written with one fsync per commit
+ * window (group commit), so a shop transaction does not wait for the disk.
+ * At most one window of entries can be lost in a crash. A window of 0 writes
+ * and syncs every entry as it is logged.
+ *
+ * <p>Each entry is stored as its length, a CRC-32 of its body, and the body:
+ * sequence number, operation, trainer ID and the operation's arguments. A
+ * torn entry at the end of the file (from a crash mid-write) is discarded
+ * when the journal is opened.
+ *
+ * <p>Startup order: load the snapshot, {@link #replay} the entries after the
+ * snapshot's sequence number, then {@link TrainerManager#attachJournal} and
+ * {@link ItemManager#attachJournal} so new mutations are logged. {@link #checkpoint} saves a new snapshot and drops
+ * the entries it covers, and may run while trainers are being changed.
+ */
+public class TrainerJournal implements Closeable {
+    // Operations
+    private static final byte PURCHASE = 1;
+    private static final byte SALE = 2;
+    private static final byte USE_ITEM = 3;
+    private static final byte ADD_POKEMON = 4;
+    private static final byte SWITCH_TO_LINEUP = 5;
+    private static final byte SWITCH_TO_STORAGE = 6;
+    private static final byte RELEASE = 7;
+    private static final byte SHOP_PURCHASE = 8; // a purchase that also took the units from the shop's stock
+    private static final byte SHOP_SALE = 9; // a sale that also put the units back into the shop's stock
+    private static final byte STOCK = 10; // a stock change without a trainer, e.g. ItemManager.buyItem
+
+    // Which roster list a Pokémon index refers to
+    static final byte LINEUP = 0;
+    static final byte STORAGE = 1;
+    static final byte NOT_IN_ROSTER = -1;
+
+    private static final int ENTRY_HEADER = 8; // length and CRC
+
+    private final Path file;
+    private FileChannel channel; // replaced when a checkpoint drops entries; guarded by flushLock
+    private final ScheduledExecutorService flusher; // null when every entry is synced on its own
+    private final Object flushLock = new Object(); // taken before the journal's own lock
+    private final CRC32 crc = new CRC32();
+
+    private BinaryOut pending = new BinaryOut(16 * 1024);
+    private BinaryOut flushing = new BinaryOut(16 * 1024);
+    private long lastSequence;
+    private IOException failure;
+
+    private TrainerJournal(Path file, FileChannel channel, long lastSequence, long commitWindowMillis) {
+        this.file = file;
+        this.channel = channel;
+        this.lastSequence = lastSequence;
+
+        if (commitWindowMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "trainer-journal-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, commitWindowMillis, commitWindowMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens (or creates) a journal file, dropping a torn entry at its end.
+     *
+     * @param file               the journal file
+     * @param commitWindowMillis how long entries may wait before being synced
+     *                           to disk together; 0 syncs each entry
+     * @return the opened journal
+     * @throws IOException if the file cannot be opened
+     */
+    public static TrainerJournal open(Path file, long commitWindowMillis) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long lastSequence = 0;
+        ByteBuffer contents = readAll(channel);
+        int validEnd = 0;
+        for (ByteBuffer body = nextEntry(contents); body != null; body = nextEntry(contents)) {
+            lastSequence = body.getLong();
+            validEnd = contents.position();
+        }
+        if (validEnd < channel.size()) {
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        return new TrainerJournal(file, channel, lastSequence, commitWindowMillis);
+    }
+
+    /**
+     * Applies the journaled mutations that are newer than a snapshot. Call
+     * this before attaching the journal to the trainers. A snapshot written
+     * by {@link #checkpoint} copies each trainer, and the stock, at its own
+     * sequence number, so an entry only changes the trainer or stock that
+     * does not include it yet.
+     *
+     * @param afterSequence  the journal sequence returned by {@link SnapshotStore#load}
+     * @param trainerManager the trainers to apply the mutations to
+     * @param itemManager    used to look up items by name
+     * @param moveManager    used to look up the moves of added Pokémon
+     * @param pokemonManager passed on to item effects such as evolution
+     * @return the number of entries applied
+     * @throws IOException if the journal cannot be read
+     */
+    public int replay(long afterSequence, TrainerManager trainerManager, ItemManager itemManager,
+                      MoveManager moveManager, PokemonManager pokemonManager) throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                ByteBuffer contents = readAll(channel);
+                int applied = 0;
+                for (ByteBuffer body = nextEntry(contents); body != null; body = nextEntry(contents)) {
+                    long sequence = body.getLong();
+                    if (sequence > afterSequence) {
+                        apply(sequence, body, trainerManager, itemManager, moveManager, pokemonManager);
+                        applied++;
+                    }
+                }
+                lastSequence = Math.max(lastSequence, afterSequence);
+                return applied;
+            }
+        }
+    }
+
+    /**
+     * Saves a snapshot of all managers, then drops the journal entries it
+     * includes. The state is copied without the journal's locks, one trainer
+     * at a time under that trainer's lock, since a trainer being changed
+     * holds its lock while it logs; only writing the pending entries and
+     * dropping the covered ones take the journal's locks.
+     *
+     * @param snapshot       the snapshot file to write
+     * @param pokemonManager the species to save
+     * @param moveManager    the moves to save
+     * @param itemManager    the shop items to save
+     * @param trainerManager the trainers to save
+     * @throws IOException if the snapshot or journal cannot be written
+     */
+    public void checkpoint(Path snapshot, PokemonManager pokemonManager, MoveManager moveManager,
+                           ItemManager itemManager, TrainerManager trainerManager) throws IOException {
+        long covered = SnapshotStore.save(snapshot, pokemonManager, moveManager, itemManager, trainerManager, this);
+        synchronized (flushLock) {
+            synchronized (this) {
+                writePending();
+            }
+            dropThrough(covered);
+        }
+    }
+
+    /**
+     * Copies the stock of each item in the critical section that journaled
+     * stock changes are made in, so the copy includes exactly the entries up
+     * to the returned sequence number.
+     *
+     * @param items the items to read
+     * @param stock receives the stock of each item, in the same order
+     * @return the sequence number of the last entry the copy includes
+     */
+    synchronized long copyStock(List<Item> items, int[] stock) {
+        for (int i = 0; i < stock.length; i++) {
+            stock[i] = items.get(i).getStock();
+        }
+        return lastSequence;
+    }
+
+    /**
+     * Writes and syncs every entry logged so far.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    public void sync() throws IOException {
+        synchronized (flushLock) {
+            synchronized (this) {
+                BinaryOut full = pending;
+                pending = flushing;
+                flushing = full;
+            }
+            write(flushing);
+        }
+    }
+
+    /**
+     * @return the sequence number of the last logged entry
+     */
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        sync();
+        synchronized (flushLock) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Journals a purchase, taking the units from the shop's stock first if
+     * they come from it.
+     *
+     * @return {@code false} if the stock was too low, and nothing was journaled
+     */
+    boolean logPurchase(int trainerID, Item item, int quantity, boolean fromStock) {
+        return logItemQuantity(fromStock ? SHOP_PURCHASE : PURCHASE, trainerID, item, quantity,
+                fromStock ? -quantity : 0);
+    }
+
+    /**
+     * Journals a sale, putting the units back into the shop's stock if they
+     * go there.
+     */
+    void logSale(int trainerID, Item item, int quantity, boolean toStock) {
+        logItemQuantity(toStock ? SHOP_SALE : SALE, trainerID, item, quantity, toStock ? quantity : 0);
+    }
+
+    /**
+     * Journals a stock change without a trainer, and makes it.
+     *
+     * @param change the units added to (positive) or taken from (negative) stock
+     * @return {@code false} if the stock was too low, and nothing was journaled
+     */
+    boolean logStock(Item item, int change) {
+        return logItemQuantity(STOCK, 0, item, change, change);
+    }
+
+    /**
+     * Takes every line of a cart from stock and journals it, or takes and
+     * journals nothing if any line is short.
+     *
+     * @param lines items mapped to the units to take
+     * @return {@code false} if any line was short
+     */
+    boolean logStockTaken(Map<Item, Integer> lines) {
+        synchronized (this) {
+            checkWritable();
+            if (!ItemManager.tryTakeAll(lines)) {
+                return false;
+            }
+            for (Map.Entry<Item, Integer> line : lines.entrySet()) {
+                int start = beginEntry(STOCK, 0);
+                pending.putString(line.getKey().getName());
+                pending.putInt(-line.getValue());
+                endEntry(start);
+            }
+        }
+        try {
+            syncIfUnbatched();
+        } catch (UncheckedIOException e) {
+            for (Map.Entry<Item, Integer> line : lines.entrySet()) {
+                line.getKey().returnStock(line.getValue());
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    private boolean logItemQuantity(byte operation, int trainerID, Item item, int quantity, int stockChange) {
+        synchronized (this) {
+            checkWritable();
+            if (stockChange < 0 && !item.tryTakeStock(-stockChange)) {
+                return false;
+            }
+            if (stockChange > 0) {
+                item.returnStock(stockChange);
+            }
+            int start = beginEntry(operation, trainerID);
+            pending.putString(item.getName());
+            pending.putInt(quantity);
+            endEntry(start);
+        }
+        try {
+            syncIfUnbatched();
+        } catch (UncheckedIOException e) {
+            item.returnStock(-stockChange); // the caller will not make the change, so neither does the stock
+            throw e;
+        }
+        return true;
+    }
+
+    void logUseItem(int trainerID, String itemName, byte list, int index) {
+        synchronized (this) {
+            int start = beginEntry(USE_ITEM, trainerID);
+            pending.putString(itemName);
+            pending.putByte(list);
+            pending.putInt(index);
+            endEntry(start);
+        }
+        syncIfUnbatched();
+    }
+
+    void logAddPokemon(int trainerID, Pokemon p) {
+        synchronized (this) {
+            int start = beginEntry(ADD_POKEMON, trainerID);
+            pending.putInt(p.getPokedexNumber());
+            pending.putString(p.getName());
+            pending.putByte(p.getPrimaryPokemonType() == null ? -1 : p.getPrimaryPokemonType().ordinal());
+            pending.putByte(p.getSecondaryPokemonType() == null ? -1 : p.getSecondaryPokemonType().ordinal());
+            pending.putInt(p.getBaseLevel());
+            pending.putInt(p.getEvolvesFrom());
+            pending.putInt(p.getEvolvesTo());
+            pending.putInt(p.getEvolutionLevel());
+            pending.putInt(p.getHP());
+            pending.putInt(p.getAttack());
+            pending.putInt(p.getDefense());
+            pending.putInt(p.getSpeed());
+            List<Move> moveSet = p.getMoveSet();
+            pending.putByte(moveSet.size());
+            for (Move m : moveSet) {
+                pending.putString(m.getName());
+            }
+            pending.putString(p.getHeldItem() == null ? null : p.getHeldItem().getName());
+            endEntry(start);
+        }
+        syncIfUnbatched();
+    }
+
+    void logSwitchToLineup(int trainerID, int storageIndex) {
+        logRosterChange(SWITCH_TO_LINEUP, trainerID, STORAGE, storageIndex);
+    }
+
+    void logSwitchToStorage(int trainerID, int lineupIndex) {
+        logRosterChange(SWITCH_TO_STORAGE, trainerID, LINEUP, lineupIndex);
+    }
+
+    void logRelease(int trainerID, byte list, int index) {
+        logRosterChange(RELEASE, trainerID, list, index);
+    }
+
+    private void logRosterChange(byte operation, int trainerID, byte list, int index) {
+        synchronized (this) {
+            int start = beginEntry(operation, trainerID);
+            pending.putByte(list);
+            pending.putInt(index);
+            endEntry(start);
+        }
+        syncIfUnbatched();
+    }
+
+    private void checkWritable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Trainer journal is no longer writable", failure);
+        }
+    }
+
+    private int beginEntry(byte operation, int trainerID) {
+        checkWritable();
+        int start = pending.size(); // nothing is written before the check, so a refused entry leaves no trace
+        pending.putInt(0); // length, filled in by endEntry
+        pending.putInt(0); // CRC, filled in by endEntry
+        pending.putLong(++lastSequence);
+        pending.putByte(operation);
+        pending.putInt(trainerID);
+        return start;
+    }
+
+    private void endEntry(int start) {
+        ByteBuffer body = pending.written();
+        body.position(start + ENTRY_HEADER);
+        int length = body.remaining();
+        crc.reset();
+        crc.update(body);
+        pending.putIntAt(start, length);
+        pending.putIntAt(start + 4, (int) crc.getValue());
+    }
+
+    private void syncIfUnbatched() {
+        if (flusher == null) {
+            try {
+                sync();
+            } catch (IOException e) {
+                // The caller will not apply the change, so no later sync may write the entry
+                synchronized (flushLock) {
+                    synchronized (this) {
+                        failure = e;
+                    }
+                    flushing.reset();
+                }
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    // Callers hold flushLock
+    private void writePending() throws IOException {
+        BinaryOut full = pending;
+        pending = flushing;
+        flushing = full;
+        write(flushing);
+    }
+
+    /**
+     * Drops the entries up to a sequence number from the start of the file.
+     * The entries after it are copied into a new file that then replaces the
+     * journal, so a crash leaves either the old or the new file. Callers hold
+     * flushLock.
+     */
+    private void dropThrough(long sequence) throws IOException {
+        ByteBuffer contents = readAll(channel);
+        int keepFrom = 0;
+        for (ByteBuffer body = nextEntry(contents); body != null && body.getLong() <= sequence;
+             body = nextEntry(contents)) {
+            keepFrom = contents.position();
+        }
+        if (keepFrom == 0) {
+            return;
+        }
+        if (keepFrom == contents.limit()) {
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            return;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer kept = contents.position(keepFrom);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (kept.hasRemaining()) {
+                out.write(kept);
+            }
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel old = channel;
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        old.close();
+    }
+
+    // Callers hold flushLock
+    private void write(BinaryOut entries) throws IOException {
+        if (entries.size() == 0) {
+            return;
+        }
+        ByteBuffer bytes = entries.written();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        channel.force(false);
+        entries.reset();
+    }
+
+    private static ByteBuffer readAll(FileChannel channel) throws IOException {
+        ByteBuffer contents = ByteBuffer.allocate((int) channel.size());
+        long position = 0;
+        while (contents.hasRemaining()) {
+            int read = channel.read(contents, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        contents.flip();
+        return contents;
+    }
+
+    /**
+     * Reads the next complete, undamaged entry and returns its body, or null at
+     * the end of the valid entries.
+     */
+    private static ByteBuffer nextEntry(ByteBuffer contents) {
+        if (contents.remaining() < ENTRY_HEADER) {
+            return null;
+        }
+        int start = contents.position();
+        int length = contents.getInt(start);
+        int expectedCrc = contents.getInt(start + 4);
+        if (length <= 0 || length > contents.remaining() - ENTRY_HEADER) {
+            return null;
+        }
+
+        ByteBuffer body = contents.slice(start + ENTRY_HEADER, length);
+        CRC32 check = new CRC32();
+        check.update(body.duplicate());
+        if ((int) check.getValue() != expectedCrc) {
+            return null;
+        }
+        contents.position(start + ENTRY_HEADER + length);
+        return body;
+    }
+
+    private static void apply(long sequence, ByteBuffer body, TrainerManager trainerManager, ItemManager itemManager,
+                              MoveManager moveManager, PokemonManager pokemonManager) throws IOException {
+        try {
+            byte operation = body.get();
+            Trainer t = trainerManager.getTrainerByID(body.getInt());
+            if (t != null && sequence <= t.getSnapshotSequence()) {
+                t = null; // the snapshot already has this trainer's part of the entry
+            }
+            if (operation == STOCK || operation == SHOP_PURCHASE || operation == SHOP_SALE) {
+                applyStockChange(operation, body, t, itemManager, sequence > itemManager.getStockSnapshotSequence());
+                return;
+            }
+            if (t == null) {
+                return; // the trainer no longer exists, or already has the change
+            }
+
+            switch (operation) {
+                case PURCHASE: {
+                    Item item = itemManager.findItem(BinaryOut.readString(body));
+                    int quantity = body.getInt();
+                    if (item != null) {
+                        t.processPurchase(item, quantity);
+                    }
+                    break;
+                }
+                case SALE: {
+                    Item item = itemManager.findItem(BinaryOut.readString(body));
+                    int quantity = body.getInt();
+                    if (item != null) {
+                        t.processSale(item, quantity);
+                    }
+                    break;
+                }
+                case USE_ITEM: {
+                    String itemName = BinaryOut.readString(body);
+                    Item item = itemManager.findItem(itemName);
+                    Pokemon target = rosterEntry(t, body.get(), body.getInt());
+                    if (item != null && target != null) {
+                        t.useItem(item, target, pokemonManager);
+                    } else {
+                        t.removeItemFromBag(itemName, 1);
+                    }
+                    break;
+                }
+                case ADD_POKEMON:
+                    t.addPokemonToLineup(readPokemon(body, itemManager, moveManager));
+                    break;
+                case SWITCH_TO_LINEUP: {
+                    Pokemon p = rosterEntry(t, body.get(), body.getInt());
+                    if (p != null) {
+                        t.switchToLineup(p);
+                    }
+                    break;
+                }
+                case SWITCH_TO_STORAGE: {
+                    Pokemon p = rosterEntry(t, body.get(), body.getInt());
+                    if (p != null) {
+                        t.switchToStorage(p);
+                    }
+                    break;
+                }
+                case RELEASE: {
+                    Pokemon p = rosterEntry(t, body.get(), body.getInt());
+                    if (p != null) {
+                        t.releasePokemon(p);
+                    }
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown journal operation " + operation);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Corrupt journal entry", e);
+        }
+    }
+
+    /**
+     * Applies an entry that moved shop stock. The stock is changed even if
+     * the trainer no longer exists, since the units did leave or enter the
+     * shop.
+     *
+     * @param t        the trainer, or null to leave the trainer alone
+     * @param toStock  whether the stock still has to be changed
+     */
+    private static void applyStockChange(byte operation, ByteBuffer body, Trainer t, ItemManager itemManager,
+                                         boolean toStock) {
+        Item item = itemManager.findItem(BinaryOut.readString(body));
+        int quantity = body.getInt();
+        if (item == null) {
+            return;
+        }
+        if (toStock) {
+            item.setStock(item.getStock() + (operation == SHOP_PURCHASE ? -quantity : quantity));
+        }
+        if (t != null && operation == SHOP_PURCHASE) {
+            t.processPurchase(item, quantity);
+        } else if (t != null && operation == SHOP_SALE) {
+            t.processSale(item, quantity);
+        }
+    }
+
+    private static Pokemon rosterEntry(Trainer t, byte list, int index) {
+        List<Pokemon> roster = list == LINEUP ? t.getLineup() : list == STORAGE ? t.getStorage() : null;
+        if (roster == null || index < 0 || index >= roster.size()) {
+            return null;
+        }
+        return roster.get(index);
+    }
+
+    private static Pokemon readPokemon(ByteBuffer in, ItemManager itemManager, MoveManager moveManager) {
+        int dex = in.getInt();
+        String name = BinaryOut.readString(in);
+        byte primaryType = in.get();
+        byte secondaryType = in.get();
+        int baseLevel = in.getInt();
+        int evolvesFrom = in.getInt();
+        int evolvesTo = in.getInt();
+        int evolutionLevel = in.getInt();
+        int hp = in.getInt();
+        int attack = in.getInt();
+        int defense = in.getInt();
+        int speed = in.getInt();
+
+        Pokemon p = new Pokemon(dex, name,
+                primaryType < 0 ? null : PokemonType.ofOrdinal(primaryType),
+                secondaryType < 0 ? null : PokemonType.ofOrdinal(secondaryType),
+                baseLevel, evolvesFrom, evolvesTo, evolutionLevel, hp, attack, defense, speed);
+        for (int i = in.get(); i > 0; i--) {
+            Move m = moveManager.findMove(BinaryOut.readString(in));
+            if (m != null) {
+                p.restoreMove(m);
+            }
+        }
+        String heldItem = BinaryOut.readString(in);
+        if (heldItem != null) {
+            p.setHeldItem(itemManager.findItem(heldItem));
+        }
+        return p;
+    }
+}
@@ -1,72 +1,377 @@
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 public class TrainerManager {
+    // Call counts and latencies, see Metrics
+    private static final Metrics.Timer ADD_TIMER = Metrics.timer("trainers.addTrainer");
+    private static final Metrics.Timer GET_BY_ID_TIMER = Metrics.timer("trainers.getTrainerByID");
+    private static final Metrics.Timer ALL_PROFILES_TIMER = Metrics.timer("trainers.getAllTrainerProfiles");
+    private static final Metrics.Timer SEARCH_TIMER = Metrics.timer("trainers.searchTrainers");
+    private static final Metrics.Timer ALL_TIMER = Metrics.timer("trainers.getAllTrainers");
+    private static final Metrics.Timer PROFILE_PAGE_TIMER = Metrics.timer("trainers.getTrainerProfilePage");
+
     private final List<Trainer> trainers = new ArrayList<>();
 
+    // Lookup and search indexes, one per profile field
+    private final Map<Integer, Trainer> byId = new HashMap<>();
+    private final Map<Trainer, Integer> positions = new HashMap<>();
+    private final TextIndex<Trainer> nameIndex = new TextIndex<>();
+    private final TextIndex<Trainer> sexIndex = new TextIndex<>();
+    private final TextIndex<Trainer> hometownIndex = new TextIndex<>();
+    private final TextIndex<Trainer> descriptionIndex = new TextIndex<>();
+    private final TreeMap<String, Trainer> idIndex = new TreeMap<>(); // decimal ID -> trainer, for prefix lookups
+    private final TreeMap<LocalDate, List<Trainer>> birthdateIndex = new TreeMap<>();
+
+    private TrainerJournal journal; // null when trainer changes are not journaled
+    private List<Trainer> trainersView; // shared copy handed out by getAllTrainersView, dropped on change
+
     public TrainerManager() {
         populateInitialTrainers();
     }
 
     public boolean addTrainer(int id, String name, LocalDate birthdate, String sex, String hometown, String description) {
-        if (name == null || name.trim().isEmpty() || birthdate == null || sex == null || hometown == null || description == null) {
-            return false;
-        }
+        long startNanos = ADD_TIMER.start();
+        try {
+            if (name == null || name.trim().isEmpty() || birthdate == null || sex == null || hometown == null || description == null) {
+                return false;
+            }
 
-        if (getTrainerByID(id) != null) {
-            return false;
-        }
+            if (byId.get(id) != null) {
+                return false;
+            }
 
-        Trainer trainer = new Trainer(id, name, birthdate, sex, hometown, description);
-        trainers.add(trainer);
-        return true;
+            Trainer trainer = new Trainer(id, name, birthdate, sex, hometown, description);
+            storeTrainer(trainer);
+            return true;
+        } finally {
+            ADD_TIMER.stop(startNanos);
+        }
     }
 
     public Trainer getTrainerByID(int trainerID) {
-        for (Trainer t : trainers) {
-            if (t.getTrainerID() == trainerID) {
-                return t;
-            }
+        long startNanos = GET_BY_ID_TIMER.start();
+        try {
+            return byId.get(trainerID);
+        } finally {
+            GET_BY_ID_TIMER.stop(startNanos);
         }
-        return null;
     }
 
     public List<Trainer> getAllTrainers() {
-        return new ArrayList<>(trainers);
+        long startNanos = ALL_TIMER.start();
+        try {
+            return new ArrayList<>(trainers);
+        } finally {
+            ALL_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets every trainer without copying on each call. The same unmodifiable
+     * list is returned until a trainer is added or the trainers are restored.
+     *
+     * @return an unmodifiable list of all trainers
+     */
+    public List<Trainer> getAllTrainersView() {
+        if (trainersView == null) {
+            trainersView = Collections.unmodifiableList(new ArrayList<>(trainers));
+        }
+        return trainersView;
     }
 
     public List<String> getAllTrainerProfiles() {
-        List<String> profiles = new ArrayList<>();
+        long startNanos = ALL_PROFILES_TIMER.start();
+        try {
+            List<String> profiles = new ArrayList<>(trainers.size());
+            StringBuilder profile = new StringBuilder(160);
 
-        for (Trainer t : trainers) {
-            profiles.add(t.displayProfile());
+            for (Trainer t : trainers) {
+                profile.setLength(0);
+                profiles.add(t.appendProfile(profile).toString());
+            }
+            return profiles;
+        } finally {
+            ALL_PROFILES_TIMER.stop(startNanos);
+        }
+    }
+
+    /**
+     * Gets one page of {@link #getAllTrainerProfiles()}, formatting only the
+     * trainers on that page.
+     *
+     * @param cursor   0 for the first page, otherwise the previous page's next cursor
+     * @param pageSize the most trainers to return
+     * @return the page of profiles, in the order the trainers were added
+     */
+    public Page<String> getTrainerProfilePage(int cursor, int pageSize) {
+        long startNanos = PROFILE_PAGE_TIMER.start();
+        try {
+            return Page.of(getAllTrainersView(), cursor, pageSize).map(Trainer::displayProfile);
+        } finally {
+            PROFILE_PAGE_TIMER.stop(startNanos);
         }
-        return profiles;
     }
 
+    /**
+     * Streams the profile of every trainer, formatting each one only when the
+     * stream reaches it.
+     *
+     * @return a stream of profiles, in the order the trainers were added
+     */
+    public Stream<String> streamTrainerProfiles() {
+        return getAllTrainersView().stream().map(Trainer::displayProfile);
+    }
+
+    /**
+     * Searches trainers. Every word of the keyword must match; a plain word
+     * matches inside a word of any field (so "male" also finds "Female"), the
+     * start of the ID, or (for "2005", "2005-11" or "2005-11-20") the
+     * birthdate. A word can be limited
+     * to one field with {@code name:}, {@code sex:}, {@code hometown:},
+     * {@code description:}, {@code id:} or {@code born:}, and {@code born:}
+     * accepts ranges, e.g. {@code hometown:bulacan born:2005..2006}. Values
+     * with spaces go in double quotes.
+     *
+     * @param keyword the search query
+     * @return the matching trainers in the order they were added
+     */
     public List<Trainer> searchTrainers(String keyword) {
-        List<Trainer> matches = new ArrayList<>();
-        String lowerString = keyword.toLowerCase();
+        long startNanos = SEARCH_TIMER.start();
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        try {
+            List<Trainer> matches = findTrainers(keyword);
+            event.complete("trainers.searchTrainers", keyword, matches.size());
+            return matches;
+        } finally {
+            SEARCH_TIMER.stop(startNanos);
+        }
+    }
 
-        for (Trainer t : trainers) {
-            if (t.getName().toLowerCase().contains(lowerString) ||
-                    t.getSex().toLowerCase().contains(lowerString) ||
-                    t.getBirthdate().toString().toLowerCase().contains(lowerString) || // Convert date to string for search
-                    String.valueOf(t.getTrainerID()).contains(lowerString) || // Convert ID to string for search
-                    t.getDescription().toLowerCase().contains(lowerString) ||
-                    t.getHometown().toLowerCase().contains(lowerString)) {
-                matches.add(t);
+    private List<Trainer> findTrainers(String keyword) {
+        List<String> terms = splitQuery(keyword);
+        if (terms.isEmpty()) {
+            return new ArrayList<>(trainers);
+        }
+
+        Set<Trainer> matches = null;
+        for (String term : terms) {
+            Set<Trainer> hits = matchTerm(term);
+            if (matches == null) {
+                matches = hits;
+            } else {
+                matches.retainAll(hits);
+            }
+            if (matches.isEmpty()) {
+                return new ArrayList<>();
             }
         }
-        return matches;
+
+        List<Trainer> ordered = new ArrayList<>(matches);
+        ordered.sort((a, b) -> Integer.compare(positions.get(a), positions.get(b)));
+        return ordered;
     }
 
     public void populateInitialTrainers() {
         if (trainers.isEmpty()) {
-            trainers.add(new Trainer(1001, "Kyle", LocalDate.of(2006, 1, 21), "Female", "Cabanatuan City, Nueva Ecija", "A determined Pokémon Trainer aiming to be a Pokémon Master."));
-            trainers.add(new Trainer(1002, "Ella", LocalDate.of(2005, 11, 20), "Female", "Bocaue, Bulacan", "A Pokémon Coordinator with a cheerful personality."));
+            storeTrainer(new Trainer(1001, "Kyle", LocalDate.of(2006, 1, 21), "Female", "Cabanatuan City, Nueva Ecija", "A determined Pokémon Trainer aiming to be a Pokémon Master."));
+            storeTrainer(new Trainer(1002, "Ella", LocalDate.of(2005, 11, 20), "Female", "Bocaue, Bulacan", "A Pokémon Coordinator with a cheerful personality."));
+        }
+    }
+
+    /**
+     * Records the money, bag and roster changes of every trainer (including
+     * ones added later) in a journal. Attach it after replaying the journal.
+     *
+     * @param journal the journal, or null to stop recording
+     */
+    public void attachJournal(TrainerJournal journal) {
+        this.journal = journal;
+        for (Trainer t : trainers) {
+            t.setJournal(journal);
+        }
+    }
+
+    /**
+     * Replaces every stored trainer, e.g. when loading a snapshot.
+     *
+     * @param loaded the trainers to store
+     */
+    void restore(List<Trainer> loaded) {
+        trainers.clear();
+        byId.clear();
+        positions.clear();
+        idIndex.clear();
+        nameIndex.clear();
+        sexIndex.clear();
+        hometownIndex.clear();
+        descriptionIndex.clear();
+        birthdateIndex.clear();
+        for (Trainer t : loaded) {
+            storeTrainer(t);
+        }
+    }
+
+    private void storeTrainer(Trainer trainer) {
+        trainer.setJournal(journal);
+        positions.put(trainer, trainers.size());
+        trainers.add(trainer);
+        trainersView = null;
+
+        byId.put(trainer.getTrainerID(), trainer);
+        idIndex.put(String.valueOf(trainer.getTrainerID()), trainer);
+        nameIndex.add(trainer, trainer.getName());
+        sexIndex.add(trainer, trainer.getSex());
+        hometownIndex.add(trainer, trainer.getHometown());
+        descriptionIndex.add(trainer, trainer.getDescription());
+        birthdateIndex.computeIfAbsent(trainer.getBirthdate(), k -> new ArrayList<>()).add(trainer);
+    }
+
+    private Set<Trainer> matchTerm(String term) {
+        int colon = term.indexOf(':');
+        if (colon > 0) {
+            String value = term.substring(colon + 1);
+            switch (term.substring(0, colon).toLowerCase(Locale.ROOT)) {
+                case "name":
+                    return matchText(nameIndex, value);
+                case "sex":
+                    return matchText(sexIndex, value);
+                case "hometown":
+                    return matchText(hometownIndex, value);
+                case "description":
+                    return matchText(descriptionIndex, value);
+                case "id":
+                    return matchIdPrefix(value);
+                case "born":
+                    return matchBirthdates(value);
+                default:
+                    break; // not a field name, search for the whole term
+            }
+        }
+
+        Set<Trainer> hits = new HashSet<>();
+        if (!TextIndex.hasWords(term)) {
+            return hits; // e.g. "!!", which no ID, date or word can match
+        }
+        hits.addAll(nameIndex.search(term));
+        hits.addAll(sexIndex.search(term));
+        hits.addAll(hometownIndex.search(term));
+        hits.addAll(descriptionIndex.search(term));
+        hits.addAll(matchIdPrefix(term));
+        if (startOf(term) != null) {
+            hits.addAll(matchBirthdates(term));
+        }
+        return hits;
+    }
+
+    /**
+     * Finds trainers by the words of one field. A value without words, e.g.
+     * "name:" or "name:!!", matches nobody rather than everybody.
+     */
+    private static Set<Trainer> matchText(TextIndex<Trainer> index, String value) {
+        if (!TextIndex.hasWords(value)) {
+            return new HashSet<>();
+        }
+        return new HashSet<>(index.search(value));
+    }
+
+    private Set<Trainer> matchIdPrefix(String prefix) {
+        return new HashSet<>(idIndex.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
+    /**
+     * Finds trainers born within a date or range of dates. A date may be a
+     * year, a year and month, or a full date; either end of a range may be
+     * left open, e.g. "2005..", "..2006-06" or "2005-11-20".
+     */
+    private Set<Trainer> matchBirthdates(String value) {
+        int dots = value.indexOf("..");
+        String from = dots >= 0 ? value.substring(0, dots) : value;
+        String to = dots >= 0 ? value.substring(dots + 2) : value;
+
+        LocalDate start = from.isEmpty() ? LocalDate.MIN : startOf(from);
+        LocalDate end = to.isEmpty() ? LocalDate.MAX : endOf(to);
+
+        Set<Trainer> hits = new HashSet<>();
+        if (start == null || end == null || start.isAfter(end)) {
+            return hits;
+        }
+        for (List<Trainer> bornOnDay : birthdateIndex.subMap(start, true, end, true).values()) {
+            hits.addAll(bornOnDay);
+        }
+        return hits;
+    }
+
+    private static LocalDate startOf(String date) {
+        try {
+            switch (date.length()) {
+                case 4:
+                    return LocalDate.of(Integer.parseInt(date), 1, 1);
+                case 7:
+                    return YearMonth.parse(date).atDay(1);
+                case 10:
+                    return LocalDate.parse(date);
+                default:
+                    return null;
+            }
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static LocalDate endOf(String date) {
+        try {
+            switch (date.length()) {
+                case 4:
+                    return LocalDate.of(Integer.parseInt(date), 12, 31);
+                case 7:
+                    return YearMonth.parse(date).atEndOfMonth();
+                case 10:
+                    return LocalDate.parse(date);
+                default:
+                    return null;
+            }
+        } catch (DateTimeException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Splits a query on whitespace, keeping double-quoted parts together.
+     */
+    private static List<String> splitQuery(String query) {
+        List<String> terms = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (current.length() > 0) {
+                    terms.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (current.length() > 0) {
+            terms.add(current.toString());
         }
+        return terms;
     }
 }
@@ -0,0 +1,145 @@
+import java.util.Arrays;
+
+/**
+ * Type matchup data for the 18 Pokémon types. The chart is stored as a flat
+ * byte matrix indexed by {@link PokemonType} ordinals, holding twice the
+ * damage multiplier (0 = no effect, 1 = not very effective, 2 = normal,
+ * 4 = super effective), so every lookup is a single array read.
+ */
+public class TypeEffectiveness {
+    private static final int N = TypeUtils.TYPE_COUNT;
+
+    private static final byte IMMUNE = 0;
+    private static final byte RESISTED = 1;
+    private static final byte NEUTRAL = 2;
+    private static final byte SUPER = 4;
+
+    private static final byte[] CHART = new byte[N * N];
+
+    static {
+        Arrays.fill(CHART, NEUTRAL);
+
+        set(PokemonType.NORMAL, RESISTED, PokemonType.ROCK, PokemonType.STEEL);
+        set(PokemonType.NORMAL, IMMUNE, PokemonType.GHOST);
+
+        set(PokemonType.FIRE, SUPER, PokemonType.GRASS, PokemonType.ICE, PokemonType.BUG, PokemonType.STEEL);
+        set(PokemonType.FIRE, RESISTED, PokemonType.FIRE, PokemonType.WATER, PokemonType.ROCK, PokemonType.DRAGON);
+
+        set(PokemonType.WATER, SUPER, PokemonType.FIRE, PokemonType.GROUND, PokemonType.ROCK);
+        set(PokemonType.WATER, RESISTED, PokemonType.WATER, PokemonType.GRASS, PokemonType.DRAGON);
+
+        set(PokemonType.ELECTRIC, SUPER, PokemonType.WATER, PokemonType.FLYING);
+        set(PokemonType.ELECTRIC, RESISTED, PokemonType.ELECTRIC, PokemonType.GRASS, PokemonType.DRAGON);
+        set(PokemonType.ELECTRIC, IMMUNE, PokemonType.GROUND);
+
+        set(PokemonType.GRASS, SUPER, PokemonType.WATER, PokemonType.GROUND, PokemonType.ROCK);
+        set(PokemonType.GRASS, RESISTED, PokemonType.FIRE, PokemonType.GRASS, PokemonType.POISON,
+                PokemonType.FLYING, PokemonType.BUG, PokemonType.DRAGON, PokemonType.STEEL);
+
+        set(PokemonType.ICE, SUPER, PokemonType.GRASS, PokemonType.GROUND, PokemonType.FLYING, PokemonType.DRAGON);
+        set(PokemonType.ICE, RESISTED, PokemonType.FIRE, PokemonType.WATER, PokemonType.ICE, PokemonType.STEEL);
+
+        set(PokemonType.FIGHTING, SUPER, PokemonType.NORMAL, PokemonType.ICE, PokemonType.ROCK, PokemonType.DARK,
+                PokemonType.STEEL);
+        set(PokemonType.FIGHTING, RESISTED, PokemonType.POISON, PokemonType.FLYING, PokemonType.PSYCHIC,
+                PokemonType.BUG, PokemonType.FAIRY);
+        set(PokemonType.FIGHTING, IMMUNE, PokemonType.GHOST);
+
+        set(PokemonType.POISON, SUPER, PokemonType.GRASS, PokemonType.FAIRY);
+        set(PokemonType.POISON, RESISTED, PokemonType.POISON, PokemonType.GROUND, PokemonType.ROCK,
+                PokemonType.GHOST);
+        set(PokemonType.POISON, IMMUNE, PokemonType.STEEL);
+
+        set(PokemonType.GROUND, SUPER, PokemonType.FIRE, PokemonType.ELECTRIC, PokemonType.POISON,
+                PokemonType.ROCK, PokemonType.STEEL);
+        set(PokemonType.GROUND, RESISTED, PokemonType.GRASS, PokemonType.BUG);
+        set(PokemonType.GROUND, IMMUNE, PokemonType.FLYING);
+
+        set(PokemonType.FLYING, SUPER, PokemonType.GRASS, PokemonType.FIGHTING, PokemonType.BUG);
+        set(PokemonType.FLYING, RESISTED, PokemonType.ELECTRIC, PokemonType.ROCK, PokemonType.STEEL);
+
+        set(PokemonType.PSYCHIC, SUPER, PokemonType.FIGHTING, PokemonType.POISON);
+        set(PokemonType.PSYCHIC, RESISTED, PokemonType.PSYCHIC, PokemonType.STEEL);
+        set(PokemonType.PSYCHIC, IMMUNE, PokemonType.DARK);
+
+        set(PokemonType.BUG, SUPER, PokemonType.GRASS, PokemonType.PSYCHIC, PokemonType.DARK);
+        set(PokemonType.BUG, RESISTED, PokemonType.FIRE, PokemonType.FIGHTING, PokemonType.POISON,
+                PokemonType.FLYING, PokemonType.GHOST, PokemonType.STEEL, PokemonType.FAIRY);
+
+        set(PokemonType.ROCK, SUPER, PokemonType.FIRE, PokemonType.ICE, PokemonType.FLYING, PokemonType.BUG);
+        set(PokemonType.ROCK, RESISTED, PokemonType.FIGHTING, PokemonType.GROUND, PokemonType.STEEL);
+
+        set(PokemonType.GHOST, SUPER, PokemonType.PSYCHIC, PokemonType.GHOST);
+        set(PokemonType.GHOST, RESISTED, PokemonType.DARK);
+        set(PokemonType.GHOST, IMMUNE, PokemonType.NORMAL);
+
+        set(PokemonType.DRAGON, SUPER, PokemonType.DRAGON);
+        set(PokemonType.DRAGON, RESISTED, PokemonType.STEEL);
+        set(PokemonType.DRAGON, IMMUNE, PokemonType.FAIRY);
+
+        set(PokemonType.DARK, SUPER, PokemonType.PSYCHIC, PokemonType.GHOST);
+        set(PokemonType.DARK, RESISTED, PokemonType.FIGHTING, PokemonType.DARK, PokemonType.FAIRY);
+
+        set(PokemonType.STEEL, SUPER, PokemonType.ICE, PokemonType.ROCK, PokemonType.FAIRY);
+        set(PokemonType.STEEL, RESISTED, PokemonType.FIRE, PokemonType.WATER, PokemonType.ELECTRIC,
+                PokemonType.STEEL);
+
+        set(PokemonType.FAIRY, SUPER, PokemonType.FIGHTING, PokemonType.DRAGON, PokemonType.DARK);
+        set(PokemonType.FAIRY, RESISTED, PokemonType.FIRE, PokemonType.POISON, PokemonType.STEEL);
+    }
+
+    private static void set(PokemonType attack, byte value, PokemonType... defenders) {
+        for (PokemonType defense : defenders) {
+            CHART[attack.ordinal() * N + defense.ordinal()] = value;
+        }
+    }
+
+    /**
+     * Gets the damage multiplier of an attacking type against one defending type.
+     *
+     * @param attack  the type of the attack, or null for typeless
+     * @param defense the type of the defender, or null for none
+     * @return 0, 0.5, 1 or 2
+     */
+    public static float multiplier(PokemonType attack, PokemonType defense) {
+        return code(attack, defense) * 0.5f;
+    }
+
+    /**
+     * Gets the damage multiplier of an attacking type against a dual-typed defender.
+     *
+     * @param attack           the type of the attack, or null for typeless
+     * @param defensePrimary   the defender's primary type
+     * @param defenseSecondary the defender's secondary type, or null if none
+     * @return the combined multiplier, from 0 up to 4
+     */
+    public static float multiplier(PokemonType attack, PokemonType defensePrimary, PokemonType defenseSecondary) {
+        return code(attack, defensePrimary) * code(attack, defenseSecondary) * 0.25f;
+    }
+
+    /**
+     * Gets the damage multiplier of a move used against a Pokémon. A move with
+     * two types applies both of them, like Flying Press does in the games.
+     *
+     * @param move     the move being used
+     * @param defender the Pokémon being hit
+     * @return the combined multiplier
+     */
+    public static float multiplier(Move move, Pokemon defender) {
+        PokemonType defensePrimary = defender.getPrimaryPokemonType();
+        PokemonType defenseSecondary = defender.getSecondaryPokemonType();
+
+        float result = multiplier(move.getPrimaryPokemonType(), defensePrimary, defenseSecondary);
+        if (move.getSecondaryPokemonType() != null) {
+            result *= multiplier(move.getSecondaryPokemonType(), defensePrimary, defenseSecondary);
+        }
+        return result;
+    }
+
+    private static int code(PokemonType attack, PokemonType defense) {
+        if (attack == null || defense == null) {
+            return NEUTRAL;
+        }
+        return CHART[attack.ordinal() * N + defense.ordinal()];
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.BitSet;
+
+/**
+ * An inverted index from Pokémon type to the positions of the records that
+ * have it. Each type owns one bitset, so type queries (and intersections of
+ * several types) are answered with bitset operations instead of scanning.
+ */
+class TypeIndex {
+    private final BitSet[] postings = new BitSet[TypeUtils.TYPE_COUNT];
+
+    public TypeIndex() {
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = new BitSet();
+        }
+    }
+
+    private TypeIndex(BitSet[] postings) {
+        System.arraycopy(postings, 0, this.postings, 0, postings.length);
+    }
+
+    /**
+     * Returns a copy in which the record at the given position has exactly
+     * the given types. Only the postings that change are copied and the rest
+     * are shared, so neither index may be changed with {@link #add} or
+     * {@link #remove} afterwards.
+     *
+     * @param position      the position of the record
+     * @param primaryType   its primary type, may be null
+     * @param secondaryType its secondary type, may be null
+     * @return the new index, or this one if nothing changed
+     */
+    public TypeIndex withTypes(int position, PokemonType primaryType, PokemonType secondaryType) {
+        TypeIndex copy = null;
+        for (int i = 0; i < postings.length; i++) {
+            boolean wanted = (primaryType != null && primaryType.ordinal() == i)
+                    || (secondaryType != null && secondaryType.ordinal() == i);
+            if (postings[i].get(position) != wanted) {
+                if (copy == null) {
+                    copy = new TypeIndex(postings);
+                }
+                BitSet changed = (BitSet) postings[i].clone();
+                changed.set(position, wanted);
+                copy.postings[i] = changed;
+            }
+        }
+        return copy != null ? copy : this;
+    }
+
+    /**
+     * Records the types of the record stored at the given position.
+     *
+     * @param position      the position of the record in its owning list
+     * @param primaryType   the primary type, may be null
+     * @param secondaryType the secondary type, may be null
+     */
+    public void add(int position, PokemonType primaryType, PokemonType secondaryType) {
+        set(position, primaryType, true);
+        set(position, secondaryType, true);
+    }
+
+    /**
+     * Forgets the types of the record stored at the given position.
+     *
+     * @param position      the position of the record in its owning list
+     * @param primaryType   the primary type it was indexed with
+     * @param secondaryType the secondary type it was indexed with
+     */
+    public void remove(int position, PokemonType primaryType, PokemonType secondaryType) {
+        set(position, primaryType, false);
+        set(position, secondaryType, false);
+    }
+
+    /**
+     * Returns the positions of the records that have every one of the given types.
+     *
+     * @param types the types to match (case-insensitive)
+     * @return a new bitset of matching positions; empty if any type is unknown
+     */
+    public BitSet matchingAll(String... types) {
+        PokemonType[] parsed = new PokemonType[types.length];
+        for (int i = 0; i < types.length; i++) {
+            parsed[i] = PokemonType.fromString(types[i]);
+            if (parsed[i] == null) {
+                return new BitSet();
+            }
+        }
+        return matchingAll(parsed);
+    }
+
+    /**
+     * Returns the positions of the records that have every one of the given types.
+     *
+     * @param types the types to match
+     * @return a new bitset of matching positions
+     */
+    public BitSet matchingAll(PokemonType... types) {
+        BitSet result = new BitSet();
+        if (types.length == 0) {
+            return result;
+        }
+
+        result.or(postings[types[0].ordinal()]);
+        for (int i = 1; i < types.length; i++) {
+            result.and(postings[types[i].ordinal()]);
+        }
+        return result;
+    }
+
+    /**
+     * Removes every posting.
+     */
+    public void clear() {
+        for (BitSet posting : postings) {
+            posting.clear();
+        }
+    }
+
+    private void set(int position, PokemonType type, boolean value) {
+        if (type != null) {
+            postings[type.ordinal()].set(position, value);
+        }
+    }
+}
@@ -1,16 +1,29 @@
+import java.util.function.Consumer;
+
 /**
  * Utility class for validating and listing valid Pokémon types.
  */
 public class TypeUtils {
     /**
-     * An array of valid Pokémon types. This list includes all recognized types
-     * in the mainline Pokémon games.
+     * The number of valid Pokémon types.
+     */
+    static final int TYPE_COUNT = PokemonType.values().length;
+
+    /**
+     * Receives every input rejected by {@link #parseType(String)}. Discards them
+     * unless a sink is installed with {@link #setDiagnosticSink(Consumer)}.
      */
-    private static final String[] VALID_TYPES = {
-        "normal", "fire", "water", "electric", "grass", "ice",
-        "fighting", "poison", "ground", "flying", "psychic", "bug",
-        "rock", "ghost", "dragon", "dark", "steel", "fairy"
-    };
+    private static volatile Consumer<String> diagnosticSink = type -> { };
+
+    /**
+     * Installs the sink that is told about invalid type names, e.g. one that
+     * shows a message in the GUI or writes to a log.
+     *
+     * @param sink receives each rejected input as given; null discards them
+     */
+    public static void setDiagnosticSink(Consumer<String> sink) {
+        diagnosticSink = sink != null ? sink : type -> { };
+    }
 
     /**
      * Checks whether a given string is a valid Pokémon type.
@@ -19,12 +32,47 @@ public class TypeUtils {
      * @return {@code true} if the input matches a valid type (case-insensitive), {@code false} otherwise
      */
     public static boolean isValidType(String type) {
-        for (String validType : VALID_TYPES) {
-            if (validType.equalsIgnoreCase(type)) {
-                return true;
-            }
+        return parseType(type) != null;
+    }
+
+    /**
+     * Parses a type name, reporting names that are not a valid type to the
+     * diagnostic sink.
+     *
+     * @param type the type to parse (case-insensitive)
+     * @return the matching type, or null if the input is not a valid type
+     */
+    public static PokemonType parseType(String type) {
+        PokemonType parsed = PokemonType.fromString(type);
+        if (parsed == null) {
+            diagnosticSink.accept(type);
+        }
+        return parsed;
+    }
+
+    /**
+     * Converts a type name given to one of the String-based model constructors.
+     * Those constructors accept any name, as they always have, so a name that
+     * is not a valid type is not an error here.
+     *
+     * @param type the type name, or null/empty for no type
+     * @return the matching type, or null for no type or a name that is not a type
+     */
+    static PokemonType toType(String type) {
+        if (type == null || type.isEmpty()) {
+            return null;
         }
-        System.out.println(type + " is not a type!");
-        return false;
+        return PokemonType.fromString(type);
+    }
+
+    /**
+     * Returns the position of a type in the list of valid types.
+     *
+     * @param type the type to look up (case-insensitive)
+     * @return the index of the type, or -1 if it is null or not a valid type
+     */
+    static int indexOf(String type) {
+        PokemonType parsed = PokemonType.fromString(type);
+        return parsed == null ? -1 : parsed.ordinal();
     }
 }
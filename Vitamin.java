@@ -15,6 +15,9 @@ public class Vitamin extends Item {
         int amount = 10; // Vitamins typically increase EVs by a set amount (e.g., 10)
 
         pokemon.increaseStat(statAffected, amount);
+        if (manager != null) {
+            manager.statsChanged(pokemon); // a stored entry moves in the stat total order
+        }
 
         System.out.println(pokemon.getName() + "'s " + statAffected + " increased by " + amount + " through " + getName() + "!");
         // Optional: Decrease the item's stock after use
@@ -0,0 +1,82 @@
+package pokedex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The managers filled to realistic sizes: every species up to Pokédex number
+ * 1010, thousands of moves and 100,000 trainers. Built once per trial and
+ * shared by every benchmark thread.
+ */
+@State(Scope.Benchmark)
+public class Dataset {
+    static final int SPECIES = 1010;
+    static final int MOVES = 5000;
+    static final int TRAINERS = 100_000;
+    static final int FIRST_TRAINER_ID = 100_000;
+
+    static final String[] SYLLABLES = {
+        "bul", "ba", "saur", "char", "man", "der", "squir", "tle", "pi", "ka",
+        "chu", "ee", "vee", "geo", "dude", "mag", "ne", "mite", "ra", "ta"
+    };
+    private static final String[] TOWNS = {
+        "Pallet Town", "Viridian City", "Pewter City", "Cerulean City", "Vermilion City",
+        "Lavender Town", "Celadon City", "Fuchsia City", "Saffron City", "Cinnabar Island"
+    };
+
+    PokemonManager pokemonManager;
+    MoveManager moveManager;
+    ItemManager itemManager;
+    TrainerManager trainerManager;
+
+    @Setup(Level.Trial)
+    public void build() {
+        pokemonManager = new PokemonManager(new Scanner(""));
+        PokemonType[] types = PokemonType.values();
+        List<Pokemon> species = new ArrayList<>(SPECIES);
+        for (int dex = 1; dex <= SPECIES; dex++) {
+            PokemonType primary = types[dex % types.length];
+            PokemonType secondary = dex % 3 == 0 ? types[(dex * 7 + 1) % types.length] : null;
+            if (secondary == primary) {
+                secondary = null;
+            }
+            // Chains of three: 1 -> 2 -> 3, 4 -> 5 -> 6, ...
+            int stage = (dex - 1) % 3;
+            int evolvesFrom = stage == 0 ? 0 : dex - 1;
+            int evolvesTo = stage == 2 || dex == SPECIES ? 0 : dex + 1;
+            species.add(new Pokemon(dex, name(dex), primary, secondary, 1, evolvesFrom, evolvesTo,
+                    stage == 0 ? 16 : 36, 30 + dex % 90, 30 + dex * 7 % 90, 30 + dex * 11 % 90, 30 + dex * 13 % 90));
+        }
+        pokemonManager.restore(species); // one index build instead of one per species
+
+        moveManager = new MoveManager();
+        for (int i = 0; i < MOVES; i++) {
+            moveManager.addMove("Move " + i, "Deals " + name(i) + " damage.", Move.Classification.TM,
+                    types[i % types.length].getDisplayName(), null);
+        }
+
+        itemManager = new ItemManager();
+
+        trainerManager = new TrainerManager();
+        for (int i = 0; i < TRAINERS; i++) {
+            trainerManager.addTrainer(FIRST_TRAINER_ID + i, name(i), LocalDate.of(1970 + i % 40, 1 + i % 12, 1 + i % 28),
+                    i % 2 == 0 ? "Female" : "Male", TOWNS[i % TOWNS.length], "Trainer number " + i + " from " + TOWNS[i % TOWNS.length] + ".");
+        }
+    }
+
+    /**
+     * Makes a pronounceable name from three syllables, unique for i below 8000.
+     */
+    static String name(int i) {
+        int n = SYLLABLES.length;
+        String s = SYLLABLES[i % n] + SYLLABLES[i / n % n] + SYLLABLES[i / n / n % n];
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
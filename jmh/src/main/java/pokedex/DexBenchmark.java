@@ -0,0 +1,57 @@
+package pokedex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups, searches and listings on {@link PokemonManager}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DexBenchmark {
+    private int next;
+
+    @Benchmark
+    public Pokemon lookup(Dataset data) {
+        return data.pokemonManager.getPokemonByDex(next++ % Dataset.SPECIES + 1);
+    }
+
+    @Benchmark
+    public List<Pokemon> searchByName(Dataset data) {
+        return data.pokemonManager.searchByName(Dataset.SYLLABLES[next++ % Dataset.SYLLABLES.length]);
+    }
+
+    @Benchmark
+    public List<Pokemon> searchByTypes(Dataset data) {
+        return data.pokemonManager.searchByTypes("Fire", "Flying");
+    }
+
+    @Benchmark
+    public List<Pokemon> evolutionChain(Dataset data) {
+        return data.pokemonManager.getEvolutionChain(next++ % Dataset.SPECIES + 1);
+    }
+
+    @Benchmark
+    public Page<String> infoPage(Dataset data) {
+        return data.pokemonManager.getPokemonInfoPage(PokemonManager.SortKey.NAME, (next++ % 50) * 20, 20);
+    }
+
+    @Benchmark
+    public String displayInfo(Dataset data) {
+        return data.pokemonManager.getPokemonByDex(next++ % Dataset.SPECIES + 1).displayInfo();
+    }
+}
@@ -0,0 +1,59 @@
+package pokedex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Levelling, evolving and battle simulation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EvolutionBenchmark {
+    private int next;
+    private Pokemon candyTarget;
+    private BattleSimulator simulator;
+
+    @Setup(Level.Trial)
+    public void prepare(Dataset data) {
+        // Stats of 9 do not grow with rare candies, so repeated use stays stable
+        candyTarget = new Pokemon(9999, "Candy", PokemonType.NORMAL, null, 1, 0, 0, 0, 9, 9, 9, 9);
+        List<Pokemon> all = data.pokemonManager.getAllPokemonView();
+        simulator = new BattleSimulator(all.subList(0, 6), all.subList(6, 12));
+    }
+
+    @Benchmark
+    public boolean rareCandy(Dataset data) {
+        return candyTarget.levelUpWithRareCandy(data.pokemonManager);
+    }
+
+    @Benchmark
+    public int evolve(Dataset data) {
+        int dex = (next++ % (Dataset.SPECIES / 3)) * 3 + 1; // the first form of a three-stage chain
+        Pokemon first = data.pokemonManager.getPokemonByDex(dex);
+        Pokemon p = new Pokemon(dex, first.getName(), first.getPrimaryPokemonType(), first.getSecondaryPokemonType(),
+                15, 0, first.getEvolvesTo(), 16, 40, 40, 40, 40);
+        return p.levelUpWithRareCandy(data.pokemonManager) ? p.getPokedexNumber() : 0;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long simulateBattles() {
+        return simulator.simulate(10_000, next++).getSideAWins();
+    }
+}
@@ -0,0 +1,52 @@
+package pokedex;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Move and trainer lookups and searches.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+    private int next;
+
+    @Benchmark
+    public List<Move> movesByNameOrEffect(Dataset data) {
+        return data.moveManager.searchByNameOrEffect("deals " + Dataset.SYLLABLES[next++ % Dataset.SYLLABLES.length]);
+    }
+
+    @Benchmark
+    public List<Move> movesByTypes(Dataset data) {
+        return data.moveManager.searchByTypes("Water");
+    }
+
+    @Benchmark
+    public Trainer trainerLookup(Dataset data) {
+        return data.trainerManager.getTrainerByID(Dataset.FIRST_TRAINER_ID + next++ % Dataset.TRAINERS);
+    }
+
+    @Benchmark
+    public List<Trainer> trainersScoped(Dataset data) {
+        return data.trainerManager.searchTrainers("hometown:pewter born:1990..1995");
+    }
+
+    @Benchmark
+    public List<Trainer> trainersByName(Dataset data) {
+        return data.trainerManager.searchTrainers(Dataset.SYLLABLES[next++ % Dataset.SYLLABLES.length] + "ka");
+    }
+}
@@ -0,0 +1,56 @@
+package pokedex;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Bag changes and shop transactions. Each benchmark thread serves its own
+ * trainer, so running with {@code -t} measures contention on the shop's stock
+ * rather than on one trainer's lock.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ShopBenchmark {
+    private static final AtomicInteger NEXT_TRAINER = new AtomicInteger();
+
+    private Trainer trainer;
+    private Item iron;
+
+    @Setup(Level.Trial)
+    public void pickTrainer(Dataset data) {
+        trainer = data.trainerManager.getTrainerByID(Dataset.FIRST_TRAINER_ID + NEXT_TRAINER.getAndIncrement() % Dataset.TRAINERS);
+        iron = data.itemManager.findItem("Iron");
+    }
+
+    @Benchmark
+    public boolean bagAddRemove() {
+        return trainer.addItemToBag(iron, 1) && trainer.removeItemFromBag("Iron", 1);
+    }
+
+    @Benchmark
+    public int purchaseSale(Dataset data) {
+        trainer.restoreMoney(1_000_000);
+        return data.itemManager.purchase(trainer, "Iron", 1) + data.itemManager.sale(trainer, "Iron", 1);
+    }
+
+    @Benchmark
+    public int buySell(Dataset data) {
+        return data.itemManager.buyItem("Iron", 1) + data.itemManager.sellItem("Iron", 1);
+    }
+}
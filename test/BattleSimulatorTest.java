@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class BattleSimulatorTest {
+    private static final long SEED = 21;
+
+    /**
+     * Two evenly matched lineups with equal speeds, so speed ties and move
+     * choices both draw random numbers and either side can win.
+     */
+    private static BattleSimulator evenMatch() {
+        Move tackle = new Move("Tackle", "A charge.", Move.Classification.TM, PokemonType.NORMAL, null);
+        Move gust = new Move("Gust", "A gust of wind.", Move.Classification.TM, PokemonType.FLYING, null);
+
+        List<Pokemon> a = new ArrayList<>();
+        List<Pokemon> b = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Pokemon pidgey = new Pokemon(16, "Pidgey", PokemonType.NORMAL, null, 5, 0, 0, 0, 40, 45, 40, 56);
+            pidgey.restoreMove(tackle);
+            pidgey.restoreMove(gust);
+            a.add(pidgey);
+            Pokemon spearow = new Pokemon(21, "Spearow", PokemonType.NORMAL, null, 5, 0, 0, 0, 40, 45, 40, 56);
+            spearow.restoreMove(tackle);
+            spearow.restoreMove(gust);
+            b.add(spearow);
+        }
+        return new BattleSimulator(a, b);
+    }
+
+    @Test
+    void sameSeedGivesSameResultOnAnyPool() {
+        BattleSimulator simulator = evenMatch();
+        long battles = 10_000; // not a multiple of the task size, so the last range is short
+        String expected = tally(simulator.simulate(battles, SEED, new ForkJoinPool(1)));
+
+        for (int threads : new int[] {2, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                assertEquals(expected, tally(simulator.simulate(battles, SEED, pool)), threads + " threads");
+            } finally {
+                pool.shutdown();
+            }
+        }
+        assertEquals(expected, tally(simulator.simulate(battles, SEED)));
+        assertEquals(expected, tally(evenMatch().simulate(battles, SEED)));
+    }
+
+    @Test
+    @Timeout(60)
+    void concurrentRunsOfOneSimulatorAgree() throws Exception {
+        BattleSimulator simulator = evenMatch();
+        String expected = tally(simulator.simulate(5_000, SEED, new ForkJoinPool(1)));
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> runs = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                runs.add(callers.submit(() -> tally(simulator.simulate(5_000, SEED))));
+            }
+            for (Future<String> run : runs) {
+                assertEquals(expected, run.get());
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+
+    @Test
+    void seedsAndCountsChangeTheTally() {
+        BattleSimulator simulator = evenMatch();
+        Set<String> tallies = new HashSet<>();
+        for (long seed = 0; seed < 5; seed++) {
+            BattleSimulator.Result result = simulator.simulate(2_000, seed);
+            assertEquals(2_000, result.getBattles());
+            tallies.add(tally(result));
+        }
+        assertTrue(tallies.size() > 1, "every seed gave " + tallies);
+
+        for (long battles : new long[] {0, 1, 1023, 1024, 1025}) {
+            assertEquals(battles, simulator.simulate(battles, SEED).getBattles());
+        }
+        assertThrows(IllegalArgumentException.class, () -> simulator.simulate(-1, SEED));
+    }
+
+    private static String tally(BattleSimulator.Result result) {
+        return result.getSideAWins() + "/" + result.getSideBWins() + "/" + result.getDraws();
+    }
+}
@@ -0,0 +1,193 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Scanner;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BulkImporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void rejectsInvalidAndDuplicateSpecies() throws IOException {
+        PokemonManager manager = new PokemonManager(new Scanner(""));
+        Path file = write("species.csv",
+                "dex,name,primaryType,secondaryType,hp,attack,defense,speed",
+                "133,Eevee,Normal,,55,55,50,55",
+                "25,Raichu,Electric,,60,90,55,110",
+                "134,eevee,Water,,130,65,60,65",
+                "135,Jolteon,Electric,Electric,65,65,60,130",
+                "136,Flareon,Fyre,,65,130,60,65",
+                "2000,Missingno,Normal,,1,1,1,1",
+                "137,Porygon,Normal,,65,60,70,fast",
+                "138,Omanyte,Rock,Water,35,40,100,35,extra",
+                "139,\"Omastar,Rock,,70,60,125,55",
+                "",
+                "140,Kabuto,Rock,Water,30,80,90,-1");
+
+        BulkImporter.Report report = BulkImporter.importPokemon(file, manager);
+
+        assertEquals(1, report.getImported());
+        TreeMap<Integer, String> errors = errorsByLine(report);
+        assertEquals(List.of(3, 4, 5, 6, 7, 8, 9, 10, 12), List.copyOf(errors.keySet()));
+        assertEquals("Pokédex number 25 is already taken", errors.get(3));
+        assertEquals("Name \"eevee\" is already taken", errors.get(4));
+        assertEquals("Secondary type is the same as the primary type", errors.get(5));
+        assertEquals("primaryType \"Fyre\" is not a valid type", errors.get(6));
+        assertEquals("Pokédex number 2000 is outside 1-" + PokemonManager.MAX_DEX, errors.get(7));
+        assertEquals("speed \"fast\" is not a whole number", errors.get(8));
+        assertEquals("Has 9 fields but the header names 8", errors.get(9));
+        assertEquals("Unclosed quote", errors.get(10));
+        assertEquals("speed -1 is negative", errors.get(12));
+
+        assertEquals("Eevee", manager.getPokemonByDex(133).getName());
+        assertEquals("Pikachu", manager.getPokemonByDex(25).getName());
+        assertNull(manager.getPokemonByDex(134));
+    }
+
+    @Test
+    void rejectsBrokenEvolutionLinksAndWhatDependsOnThem() throws IOException {
+        PokemonManager manager = new PokemonManager(new Scanner(""));
+        Path file = write("species.jsonl",
+                "{\"dex\": 4, \"name\": \"Charmander\", \"primaryType\": \"Fire\", \"evolvesTo\": 5,"
+                        + " \"hp\": 39, \"attack\": 52, \"defense\": 43, \"speed\": 65}",
+                "{\"dex\": 5, \"name\": \"Charmeleon\", \"primaryType\": \"Fire\", \"evolvesFrom\": 4, \"evolvesTo\": 6,"
+                        + " \"hp\": 58, \"attack\": 64, \"defense\": 58, \"speed\": 80}",
+                "{\"dex\": 7, \"name\": \"Squirtle\", \"primaryType\": \"Water\", \"evolvesTo\": 8,"
+                        + " \"hp\": 44, \"attack\": 48, \"defense\": 65, \"speed\": 43}",
+                "{\"dex\": 8, \"name\": \"Wartortle\", \"primaryType\": \"Water\", \"evolvesTo\": 7,"
+                        + " \"hp\": 59, \"attack\": 63, \"defense\": 80, \"speed\": 58}",
+                "{\"dex\": 10, \"name\": \"Caterpie\", \"primaryType\": \"Bug\", \"evolvesTo\": 10,"
+                        + " \"hp\": 45, \"attack\": 30, \"defense\": 35, \"speed\": 45}",
+                "{\"dex\": 11, \"name\": \"Metapod\", \"primaryType\": \"Bug\", \"evolvesTo\": 12,"
+                        + " \"hp\": 50, \"attack\": 20, \"defense\": 55, \"speed\": 30}",
+                "{\"dex\": 13, \"name\": \"Weedle\" \"primaryType\": \"Bug\"}");
+
+        BulkImporter.Report report = BulkImporter.importPokemon(file, manager);
+
+        TreeMap<Integer, String> errors = errorsByLine(report);
+        assertEquals(List.of(1, 2, 3, 4, 5, 7), List.copyOf(errors.keySet()));
+        // Charmeleon points to a species nobody has, and Charmander loses its link with it
+        assertEquals("Evolves to 6, which is not stored and was not imported", errors.get(2));
+        assertEquals("Evolves to 5, which is not stored and was not imported", errors.get(1));
+        // The later half of a cycle is dropped first, which strands the earlier half
+        assertEquals("Evolution links lead back to 8", errors.get(4));
+        assertEquals("Evolves to 8, which is not stored and was not imported", errors.get(3));
+        assertEquals("Species cannot evolve from or into itself", errors.get(5));
+        assertNotNull(errors.get(7));
+
+        // Metapod evolves into the stored Butterfree, so it is the only one kept
+        assertEquals(1, report.getImported());
+        assertEquals("Metapod", manager.getPokemonByDex(11).getName());
+        assertNull(manager.getPokemonByDex(4));
+    }
+
+    @Test
+    void rejectsInvalidAndDuplicateMoves() throws IOException {
+        MoveManager manager = new MoveManager();
+        int before = manager.getAllMoves().size();
+        Path file = write("moves.csv",
+                "Name,Description,Classification,PrimaryType,SecondaryType",
+                "Ember,Small flames.,TM,Fire,",
+                "Tackle,A full-body charge.,TM,Normal,",
+                "Bubble,Bubbles.,XM,Water,",
+                "Gust,A gust of wind.,HM,Flying,Flying",
+                "EMBER,Flames again.,TM,Fire,",
+                ",No name.,TM,Fire,");
+
+        BulkImporter.Report report = BulkImporter.importMoves(file, manager);
+
+        assertEquals(1, report.getImported());
+        assertEquals(before + 1, manager.getAllMoves().size());
+        TreeMap<Integer, String> errors = errorsByLine(report);
+        assertEquals(List.of(3, 4, 5, 6, 7), List.copyOf(errors.keySet()));
+        assertEquals("Name \"Tackle\" is already taken", errors.get(3));
+        assertEquals("Classification \"XM\" is not HM or TM", errors.get(4));
+        assertEquals("Secondary type is the same as the primary type", errors.get(5));
+        assertEquals("Missing name", errors.get(7));
+    }
+
+    @Test
+    void rejectsInvalidAndDuplicateItems() throws IOException {
+        ItemManager manager = new ItemManager();
+        int before = manager.getAllItems().size();
+        Path file = write("items.jsonl",
+                "{\"name\": \"Max Potion\", \"category\": \"Vitamin\", \"description\": \"d\", \"effect\": \"e\","
+                        + " \"buyingPrice\": 2500, \"sellingPrice\": 1250, \"stock\": 5, \"stat\": \"HP\"}",
+                "{\"name\": \"IRON\", \"category\": \"Vitamin\", \"description\": \"d\", \"effect\": \"e\","
+                        + " \"buyingPrice\": 1, \"sellingPrice\": 1, \"stock\": 1, \"stat\": \"Defense\"}",
+                "{\"name\": \"Potion\", \"category\": \"Medicine\", \"description\": \"d\", \"effect\": \"e\","
+                        + " \"buyingPrice\": 300, \"sellingPrice\": 150, \"stock\": 5}",
+                "{\"name\": \"Ether\", \"category\": \"Vitamin\", \"description\": \"d\", \"effect\": \"e\","
+                        + " \"buyingPrice\": -2, \"sellingPrice\": 1, \"stock\": 1, \"stat\": \"HP\"}",
+                "{\"name\": \"Elixir\", \"category\": \"Vitamin\", \"description\": \"d\", \"effect\": \"e\","
+                        + " \"buyingPrice\": 1, \"sellingPrice\": 1, \"stock\": -3, \"stat\": \"HP\"}",
+                "{\"name\": \"Revive\"} trailing");
+
+        BulkImporter.Report report = BulkImporter.importItems(file, manager);
+
+        assertEquals(1, report.getImported());
+        assertEquals(before + 1, manager.getAllItems().size());
+        assertEquals(5, manager.findItem("Max Potion").getStock());
+        TreeMap<Integer, String> errors = errorsByLine(report);
+        assertEquals(List.of(2, 3, 4, 5, 6), List.copyOf(errors.keySet()));
+        assertEquals("Name \"IRON\" is already taken", errors.get(2));
+        assertEquals("Unknown category \"Medicine\"", errors.get(3));
+        assertEquals("buyingPrice -2 is below -1", errors.get(4));
+        assertEquals("stock -3 is negative", errors.get(5));
+    }
+
+    @Test
+    void namesTakenByAnotherWriterAreReportedNotImported() {
+        MoveManager moves = new MoveManager();
+        Move ember = MoveManager.createMove("Ember", "Small flames.", Move.Classification.TM, "Fire", null);
+        Move tackle = MoveManager.createMove("TACKLE", "A charge.", Move.Classification.TM, "Normal", null);
+        Move again = MoveManager.createMove("ember", "Flames again.", Move.Classification.TM, "Fire", null);
+        assertEquals(List.of(tackle, again), moves.addAll(List.of(ember, tackle, again)));
+        assertEquals("Ember", moves.findMove("ember").getName());
+
+        ItemManager items = new ItemManager();
+        int before = items.getAllItems().size();
+        Item iron = new Vitamin("iron", "d", "e", 1, 1, 1, "Defense");
+        Item elixir = new Vitamin("Elixir", "d", "e", 1, 1, 1, "HP");
+        assertEquals(List.of(iron), items.addAll(List.of(iron, elixir)));
+        assertEquals(before + 1, items.getAllItems().size());
+    }
+
+    @Test
+    void badHeaderRejectsTheWholeFile() throws IOException {
+        ItemManager manager = new ItemManager();
+        int before = manager.getAllItems().size();
+        Path file = write("items.csv",
+                "\"name,category",
+                "Potion,Medicine");
+
+        BulkImporter.Report report = BulkImporter.importItems(file, manager);
+
+        assertEquals(0, report.getImported());
+        assertEquals("Bad header: Unclosed quote", errorsByLine(report).get(1));
+        assertEquals(1, report.getErrors().size());
+        assertEquals(before, manager.getAllItems().size());
+    }
+
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(dir.resolve(name), List.of(lines), StandardCharsets.UTF_8);
+    }
+
+    private static TreeMap<Integer, String> errorsByLine(BulkImporter.Report report) {
+        TreeMap<Integer, String> errors = new TreeMap<>();
+        for (BulkImporter.LineError error : report.getErrors()) {
+            errors.put(error.getLine(), error.getMessage());
+        }
+        return errors;
+    }
+}
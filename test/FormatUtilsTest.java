@@ -0,0 +1,133 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.util.Locale;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Checks that the display methods write exactly what the
+ * {@link String#format(String, Object...)} calls they replaced wrote, in
+ * locales with other digits and grouping than the US one.
+ */
+class FormatUtilsTest {
+    private static final int[] NUMBERS = {0, 1, 7, 25, 999, 1000, 1234, 12345, 1234567, -1, -7, -1234,
+            Integer.MAX_VALUE, Integer.MIN_VALUE};
+
+    private Locale saved;
+
+    @BeforeEach
+    void saveLocale() {
+        saved = Locale.getDefault(Locale.Category.FORMAT);
+    }
+
+    @AfterEach
+    void restoreLocale() {
+        Locale.setDefault(Locale.Category.FORMAT, saved);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"en-US", "de-DE", "fr-FR", "ar", "ar-EG", "hi-IN", "hi-IN-u-nu-deva", "th-TH-u-nu-thai"})
+    void pokemonLineMatchesFormat(String tag) {
+        Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag(tag));
+        String[] names = {"Mew", "Crabominable", "Fletchindertwelve"}; // shorter than, exactly and wider than the column
+
+        for (int n : NUMBERS) {
+            for (String name : names) {
+                Pokemon single = new Pokemon(n, name, PokemonType.FIRE, null, 5, 0, 0, 0, n, 45, n, -n);
+                Pokemon dual = new Pokemon(n, name, PokemonType.ELECTRIC, PokemonType.PSYCHIC, 5, 0, 0, 0,
+                        40, n, 60, 1000);
+                assertEquals(oldPokemonLine(single), single.displayInfo(), tag + " " + n);
+                assertEquals(oldPokemonLine(dual), dual.displayInfo(), tag + " " + n);
+                assertEquals("x" + oldPokemonLine(dual), dual.appendInfo(new StringBuilder("x")).toString());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"en-US", "de-DE", "fr-FR", "de-CH", "ar", "ar-EG", "hi-IN", "hi-IN-u-nu-deva",
+            "th-TH-u-nu-thai"})
+    void trainerProfileMatchesFormat(String tag) {
+        Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag(tag));
+
+        for (int id : NUMBERS) {
+            for (int money : NUMBERS) {
+                Trainer t = new Trainer(id, "Kyle", LocalDate.of(2006, 1, 21), "Female", "Cabanatuan City",
+                        "A determined trainer.");
+                t.restoreMoney(money);
+                assertEquals(oldProfile(t), t.displayProfile(), tag + " " + id + " " + money);
+                assertEquals("x" + oldProfile(t), t.appendProfile(new StringBuilder("x")).toString());
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"en-US", "ar-EG", "hi-IN-u-nu-deva"})
+    void moveInfoMatchesFormat(String tag) {
+        Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag(tag));
+        Move single = new Move("Tackle", "A full-body charge.", Move.Classification.TM, PokemonType.NORMAL, null);
+        Move dual = new Move("Scald 100%", "Hot water.", Move.Classification.HM, PokemonType.WATER, PokemonType.FIRE);
+
+        for (Move m : new Move[] {single, dual}) {
+            assertEquals(oldMoveInfo(m), m.displayInfo(), tag);
+            assertEquals("x" + oldMoveInfo(m), m.appendInfo(new StringBuilder("x")).toString());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"en-US", "ar-EG", "de-DE"})
+    void itemInfoMatchesConcatenation(String tag) {
+        Locale.setDefault(Locale.Category.FORMAT, Locale.forLanguageTag(tag));
+        Item forSale = new Vitamin("Iron", "Raises Defense.", "+10 Defense", 10_000, 5_000, 12345, "Defense");
+        Item notForSale = new Vitamin("Zinc", "Raises Sp. Def.", "+10 Sp. Def", -1, -1, 0, "Defense");
+
+        for (Item item : new Item[] {forSale, notForSale}) {
+            assertEquals(oldItemInfo(item), item.displayInfo(), tag);
+            assertEquals("x" + oldItemInfo(item), item.appendInfo(new StringBuilder("x")).toString());
+        }
+    }
+
+    private static String oldPokemonLine(Pokemon p) {
+        String types = p.getPrimaryType();
+        if (p.getSecondaryPokemonType() != null) {
+            types += "/" + p.getSecondaryPokemonType().getDisplayName();
+        }
+        return String.format("%04d %-12s %-15s %-7d %-5d %-7d %-8d %-6d\n", p.getPokedexNumber(), p.getName(), types,
+                p.getStatTotal(), p.getHP(), p.getAttack(), p.getDefense(), p.getSpeed());
+    }
+
+    private static String oldProfile(Trainer t) {
+        return String.format("ID         : %04d\n", t.getTrainerID())
+                + String.format("Name       : %s\n", t.getName())
+                + String.format("Sex        : %s\n", t.getSex())
+                + String.format("Birthdate  : %s\n", t.getBirthdate().toString())
+                + String.format("Hometown   : %s\n", t.getHometown())
+                + String.format("Money      : ₱%,d\n", t.getMoney())
+                + String.format("Description: %s\n", t.getDescription());
+    }
+
+    private static String oldMoveInfo(Move m) {
+        String info = String.format("Name           : %s\n", m.getName())
+                + String.format("Classification : %s\n", m.getClassification().name())
+                + String.format("Primary Type   : %s\n", m.getPrimaryPokemonType());
+        if (m.getSecondaryPokemonType() != null) {
+            info += String.format("Secondary Type : %s\n", m.getSecondaryPokemonType());
+        }
+        return info + String.format("Description    : %s\n", m.getDescription());
+    }
+
+    private static String oldItemInfo(Item item) {
+        return "Name: " + item.getName() + "\n"
+                + "Category: " + item.getCategory() + "\n"
+                + "Description: " + item.getDescription() + "\n"
+                + "Effect: " + item.getEffect() + "\n"
+                + "Buying Price: " + (item.getBuyingPrice() == -1 ? "N/A (Not for sale)" : "$" + item.getBuyingPrice())
+                + "\n"
+                + "Selling Price: " + (item.getSellingPrice() == -1 ? "N/A (Cannot be sold)" : "$" + item.getSellingPrice())
+                + "\n"
+                + "Current Stock: " + item.getStock();
+    }
+}
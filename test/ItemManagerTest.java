@@ -0,0 +1,160 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class ItemManagerTest {
+    private static final int THREADS = 8;
+
+    @Test
+    @Timeout(60)
+    void concurrentBuyersNeverOversell() throws Exception {
+        ItemManager items = new ItemManager();
+        items.findItem("Iron").setStock(100);
+        items.findItem("Zinc").setStock(100);
+
+        // Each unit sold back can be bought again, so units bought minus units sold can never pass the stock
+        List<Future<int[]>> results = runAll(() -> {
+            int[] counts = new int[3]; // units bought alone, carts bought, units sold
+            for (int i = 0; i < 200; i++) {
+                if (items.buyItem("Iron", 1) >= 0) {
+                    counts[0]++;
+                }
+                if (items.buyCart(Map.of("Iron", 1, "Zinc", 2)) >= 0) {
+                    counts[1]++;
+                }
+                if (i % 10 == 0 && items.sellItem("Iron", 1) >= 0) {
+                    counts[2]++;
+                }
+            }
+            return counts;
+        });
+
+        int[] total = new int[3];
+        for (Future<int[]> result : results) {
+            for (int i = 0; i < total.length; i++) {
+                total[i] += result.get()[i];
+            }
+        }
+        assertEquals(100 + total[2] - total[0] - total[1], items.findItem("Iron").getStock());
+        assertEquals(100 - 2 * total[1], items.findItem("Zinc").getStock());
+        // Far more was wanted than stocked, and every sale is followed by more buying in the same thread
+        assertEquals(0, items.findItem("Iron").getStock());
+    }
+
+    @Test
+    void buyCartTakesEverythingOrNothing() {
+        ItemManager items = new ItemManager();
+        items.findItem("Iron").setStock(3);
+        items.findItem("Zinc").setStock(1);
+
+        assertEquals(-1, items.buyCart(Map.of("Iron", 2, "Zinc", 2)));
+        assertEquals(3, items.findItem("Iron").getStock());
+        assertEquals(1, items.findItem("Zinc").getStock());
+
+        assertEquals(-1, items.buyCart(Map.of("Iron", 1, "Nothing", 1)));
+        assertEquals(-1, items.buyCart(Map.of("Iron", 1, "Zinc", 0)));
+        assertEquals(3, items.findItem("Iron").getStock());
+
+        // Lines naming the same item are added up before the stock is checked
+        assertEquals(-1, items.buyCart(Map.of("Iron", 2, "iron", 2)));
+        assertEquals(3, items.findItem("Iron").getStock());
+
+        assertEquals(40_000, items.buyCart(Map.of("Iron", 3, "Zinc", 1)));
+        assertEquals(0, items.findItem("Iron").getStock());
+        assertEquals(0, items.findItem("Zinc").getStock());
+    }
+
+    @Test
+    @Timeout(60)
+    void concurrentTrainerPurchasesKeepStockMoneyAndBagsInStep() throws Exception {
+        ItemManager items = new ItemManager();
+        items.findItem("Iron").setStock(100);
+        List<Trainer> trainers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            Trainer trainer = new Trainer(2000 + t, "Buyer" + t, LocalDate.of(2000, 1, 1), "Female", "Town", "Buys.");
+            trainer.restoreMoney(t == 0 ? 25_000 : 1_000_000); // the first runs out of money after two units
+            trainers.add(trainer);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> spent = new ArrayList<>();
+        for (Trainer trainer : trainers) {
+            spent.add(pool.submit(() -> {
+                int paid = 0;
+                for (int i = 0; i < 30; i++) {
+                    int price = items.purchase(trainer, "Iron", 1);
+                    if (price >= 0) {
+                        paid += price;
+                    }
+                    if (i % 6 == 5) {
+                        int refund = items.sale(trainer, "Iron", 1);
+                        if (refund >= 0) {
+                            paid -= refund;
+                        }
+                    }
+                }
+                return paid;
+            }));
+        }
+        pool.shutdown();
+        List<Integer> paid = new ArrayList<>();
+        for (Future<Integer> s : spent) {
+            paid.add(s.get());
+        }
+
+        int inBags = 0;
+        for (int t = 0; t < THREADS; t++) {
+            Trainer trainer = trainers.get(t);
+            inBags += trainer.getItemQuantity("Iron");
+            assertEquals((t == 0 ? 25_000 : 1_000_000) - paid.get(t), trainer.getMoney(), trainer.getName());
+        }
+        assertEquals(100, items.findItem("Iron").getStock() + inBags);
+        assertTrue(trainers.get(0).getItemQuantity("Iron") <= 2);
+    }
+
+    @Test
+    void refusedPurchaseLeavesStockAndTrainerAlone() {
+        ItemManager items = new ItemManager();
+        Trainer kyle = new Trainer(3000, "Kyle", LocalDate.of(2006, 1, 21), "Female", "Town", "Buys.");
+        kyle.restoreMoney(15_000);
+        items.findItem("Iron").setStock(5);
+
+        assertEquals(-1, items.purchase(kyle, "Iron", 2)); // costs 20,000
+        assertEquals(5, items.findItem("Iron").getStock());
+        assertEquals(15_000, kyle.getMoney());
+        assertEquals(0, kyle.getItemQuantity("Iron"));
+
+        kyle.restoreMoney(1_000_000);
+        assertEquals(-1, items.purchase(kyle, "Iron", 6)); // more than the stock
+        assertEquals(5, items.findItem("Iron").getStock());
+        assertEquals(1_000_000, kyle.getMoney());
+
+        assertEquals(-1, items.sale(kyle, "Iron", 1)); // nothing in the bag to sell
+        assertEquals(5, items.findItem("Iron").getStock());
+        assertEquals(1_000_000, kyle.getMoney());
+    }
+
+    private static <T> List<Future<T>> runAll(Callable<T> task) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Callable<T>> tasks = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                tasks.add(task);
+            }
+            return pool.invokeAll(tasks);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
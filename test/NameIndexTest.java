@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class NameIndexTest {
+    private static final String LETTERS = "abcAB";
+
+    @Test
+    void shortQueriesRankPrefixesFirst() {
+        String[] names = {"Pikachu", "Raichu", "Pichu", "Chikorita", "Kakuna", "Abra", "Krabby"};
+        NameIndex index = NameIndex.of(names);
+
+        assertArrayEquals(new int[] {0, 1, 2, 3}, index.search("i")); // no name starts with "i"
+        assertArrayEquals(new int[] {4, 6, 0, 3}, index.search("K"));
+        assertArrayEquals(new int[] {3, 0, 1, 2}, index.search("ch"));
+        assertArrayEquals(new int[] {0, 2}, index.search("pi"));
+        assertArrayEquals(new int[] {5, 6}, index.search("ab"));
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6}, index.search(""));
+        assertArrayEquals(new int[0], index.search("z"));
+        assertArrayEquals(new int[0], index.search("pichus"));
+    }
+
+    @Test
+    void everyQueryMatchesAScan() {
+        Random random = new Random(6);
+        String[] names = randomNames(random, 200);
+        NameIndex index = NameIndex.of(names);
+
+        for (String query : queries(names)) {
+            assertArrayEquals(scan(names, query), index.search(query), query);
+        }
+    }
+
+    @Test
+    void manyRenamesAndAddsMatchAScan() {
+        Random random = new Random(60);
+        List<String> names = new ArrayList<>(Arrays.asList(randomNames(random, 100)));
+        NameIndex index = NameIndex.of(names.toArray(new String[0]));
+
+        // Enough changes to rebuild the gram table several times, checking before and after each rebuild
+        for (int step = 0; step < 400; step++) {
+            if (step % 5 == 0) {
+                String name = randomName(random);
+                names.add(name);
+                index = index.withAdded(name);
+            } else {
+                int position = random.nextInt(names.size());
+                String name = step % 7 == 0 ? names.get(random.nextInt(names.size())) : randomName(random);
+                names.set(position, name);
+                index = index.withName(position, name);
+            }
+            if (step % 10 == 0 || step > 390) {
+                String[] current = names.toArray(new String[0]);
+                for (String query : queries(current)) {
+                    assertArrayEquals(scan(current, query), index.search(query), "step " + step + ": " + query);
+                }
+            }
+        }
+    }
+
+    private static String[] randomNames(Random random, int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = randomName(random);
+        }
+        return names;
+    }
+
+    private static String randomName(Random random) {
+        StringBuilder name = new StringBuilder();
+        int length = 1 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            name.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+        }
+        return name.toString();
+    }
+
+    /**
+     * Every query of up to four letters, from the ones the names use plus one
+     * they do not.
+     */
+    private static List<String> queries(String[] names) {
+        List<String> queries = new ArrayList<>();
+        queries.add("");
+        String letters = "abcz";
+        for (int length = 1; length <= 4; length++) {
+            int combinations = (int) Math.pow(letters.length(), length);
+            for (int c = 0; c < combinations; c++) {
+                StringBuilder query = new StringBuilder();
+                for (int i = 0, rest = c; i < length; i++, rest /= letters.length()) {
+                    query.append(letters.charAt(rest % letters.length()));
+                }
+                queries.add(c % 2 == 0 ? query.toString() : query.toString().toUpperCase(Locale.ROOT));
+            }
+        }
+        queries.add(names[0]);
+        return queries;
+    }
+
+    /**
+     * The expected result: names starting with the query, then the other
+     * names containing it, each group in position order.
+     */
+    private static int[] scan(String[] names, String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        List<Integer> prefix = new ArrayList<>();
+        List<Integer> other = new ArrayList<>();
+        for (int pos = 0; pos < names.length; pos++) {
+            String name = names[pos].toLowerCase(Locale.ROOT);
+            if (name.startsWith(q)) {
+                prefix.add(pos);
+            } else if (name.contains(q)) {
+                other.add(pos);
+            }
+        }
+        prefix.addAll(other);
+        return prefix.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
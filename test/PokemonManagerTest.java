@@ -0,0 +1,282 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+class PokemonManagerTest {
+    private static final int CHAINS = 200;
+
+    @TempDir
+    Path dir;
+
+    /**
+     * A manager with no stored Pokémon, whose evolved forms (even numbers)
+     * come from a catalog.
+     */
+    private PokemonManager emptyManagerWithEvolvedForms() throws IOException {
+        List<Pokemon> evolved = new ArrayList<>();
+        for (int k = 0; k < CHAINS; k++) {
+            int dex = 2 * k + 2;
+            evolved.add(new Pokemon(dex, "Evo" + dex, PokemonType.WATER, null, 2, dex - 1, 0, 0, 80, 80, 80, 80));
+        }
+        Path file = dir.resolve("species.catalog");
+        SpeciesCatalog.write(file, evolved);
+
+        PokemonManager manager = new PokemonManager(new Scanner(""));
+        manager.restore(List.of());
+        manager.attachCatalog(SpeciesCatalog.open(file));
+        return manager;
+    }
+
+    private static Pokemon base(int dex) {
+        return new Pokemon(dex, "Base" + dex, PokemonType.FIRE, null, 1, 0, dex + 1, 2, 40, 40, 40, 40);
+    }
+
+    /**
+     * A manager storing numbers 1 to 60 with mixed types, where every number
+     * one above a multiple of 3 evolves at level 2 into the next number.
+     */
+    private static PokemonManager mixedManager() {
+        PokemonManager manager = new PokemonManager(new Scanner(""));
+        manager.restore(List.of());
+        PokemonType[] types = PokemonType.values();
+        for (int dex = 1; dex <= 60; dex++) {
+            PokemonType primary = types[dex % types.length];
+            PokemonType secondary = types[(dex * 7) % types.length];
+            manager.addPokemon(new Pokemon(dex, "Mon" + dex, primary, secondary == primary ? null : secondary,
+                    1, 0, dex % 3 == 1 ? dex + 1 : 0, 2, 40, 40, 40, 40));
+        }
+        return manager;
+    }
+
+    /**
+     * Checks every Pokédex number lookup against a scan of the stored list:
+     * a number is found exactly when some entry has it, and the one found is
+     * an entry with that number. When several have it, the one that had it
+     * first keeps it, so the first in list order is only expected for numbers
+     * with a single entry.
+     */
+    private static void assertDexIndexMatchesScan(PokemonManager manager, int... extraNumbers) {
+        List<Pokemon> all = manager.getAllPokemon();
+        List<Integer> numbers = new ArrayList<>();
+        for (int dex = 0; dex <= 62; dex++) {
+            numbers.add(dex);
+        }
+        for (int dex : extraNumbers) {
+            numbers.add(dex);
+        }
+        for (int dex : numbers) {
+            List<Pokemon> withNumber = new ArrayList<>();
+            for (Pokemon p : all) {
+                if (p.getPokedexNumber() == dex) {
+                    withNumber.add(p);
+                }
+            }
+            Pokemon found = manager.getPokemonByDex(dex);
+            if (withNumber.size() == 1) {
+                assertSame(withNumber.get(0), found, "#" + dex);
+            } else if (withNumber.isEmpty()) {
+                assertNull(found, "#" + dex);
+            } else {
+                assertTrue(withNumber.stream().anyMatch(p -> p == found), "#" + dex);
+            }
+        }
+    }
+
+    /**
+     * Checks single-type searches and every pair of types against a scan of
+     * the stored list.
+     */
+    private static void assertTypeIndexMatchesScan(PokemonManager manager) {
+        List<Pokemon> all = manager.getAllPokemon();
+        for (PokemonType a : PokemonType.values()) {
+            for (PokemonType b : PokemonType.values()) {
+                List<Pokemon> expected = new ArrayList<>();
+                for (Pokemon p : all) {
+                    if (hasType(p, a) && hasType(p, b)) {
+                        expected.add(p);
+                    }
+                }
+                assertEquals(expected, manager.searchByTypes(a.getDisplayName(), b.getDisplayName()), a + "+" + b);
+            }
+            List<Pokemon> single = new ArrayList<>();
+            for (Pokemon p : all) {
+                if (hasType(p, a)) {
+                    single.add(p);
+                }
+            }
+            assertEquals(single, manager.searchByTypes(a.getDisplayName()), a.toString());
+        }
+    }
+
+    private static boolean hasType(Pokemon p, PokemonType type) {
+        return p.getPrimaryPokemonType() == type || p.getSecondaryPokemonType() == type;
+    }
+
+    @Test
+    void typeSearchesFollowAddRemoveAndEvolve() {
+        PokemonManager manager = mixedManager();
+        assertTypeIndexMatchesScan(manager);
+
+        for (int dex = 3; dex <= 60; dex += 4) {
+            assertTrue(manager.removeByDex(dex));
+        }
+        assertTypeIndexMatchesScan(manager);
+
+        // Evolved entries take the types of the species they became
+        for (int dex = 1; dex <= 60; dex += 3) {
+            Pokemon p = manager.getPokemonByDex(dex);
+            if (p != null && manager.getPokemonByDex(dex + 1) != null) {
+                assertTrue(p.levelUpWithRareCandy(manager), "#" + dex);
+            }
+        }
+        assertTypeIndexMatchesScan(manager);
+
+        // Entries added after removals index from the end of the compacted list
+        for (int dex = 70; dex < 90; dex++) {
+            manager.addPokemon(new Pokemon(dex, "Late" + dex, PokemonType.GHOST, dex % 2 == 0 ? PokemonType.FAIRY : null,
+                    1, 0, 0, 0, 1, 1, 1, 1));
+        }
+        assertTrue(manager.removeByDex(71));
+        assertTypeIndexMatchesScan(manager);
+    }
+
+    @Test
+    void dexLookupsFollowRemoveAndEvolve() {
+        PokemonManager manager = mixedManager();
+        assertDexIndexMatchesScan(manager);
+
+        for (int dex = 5; dex <= 60; dex += 5) {
+            assertTrue(manager.removeByDex(dex));
+        }
+        assertFalse(manager.removeByDex(5));
+        assertDexIndexMatchesScan(manager);
+
+        // Evolving replaces #n with a second entry for #n+1, which still finds the one stored before;
+        // #n stays when #n+1 was removed and there is nothing to evolve into
+        for (int dex = 1; dex <= 60; dex += 3) {
+            Pokemon p = manager.getPokemonByDex(dex);
+            if (p != null) {
+                boolean target = manager.getPokemonByDex(dex + 1) != null;
+                assertEquals(target, p.levelUpWithRareCandy(manager), "#" + dex);
+                assertEquals(target, manager.getPokemonByDex(dex) == null, "#" + dex);
+            }
+        }
+        assertDexIndexMatchesScan(manager);
+        assertEquals("Mon2", manager.getPokemonByDex(2).getName());
+
+        // Removing a number removes every entry for it, including the evolved copy
+        assertTrue(manager.removeByDex(2));
+        assertNull(manager.getPokemonByDex(2));
+        assertDexIndexMatchesScan(manager);
+
+        // Numbers outside the Pokédex range are kept apart from the slot table
+        int far = PokemonManager.MAX_DEX + 5;
+        manager.addPokemon(new Pokemon(far, "Far", PokemonType.DARK, null, 1, 0, 0, 0, 1, 1, 1, 1));
+        manager.addPokemon(new Pokemon(-3, "Negative", PokemonType.DARK, null, 1, 0, 0, 0, 1, 1, 1, 1));
+        assertDexIndexMatchesScan(manager, far, -3);
+        assertTrue(manager.removeByDex(far));
+        assertDexIndexMatchesScan(manager, far, -3);
+    }
+
+    @Test
+    void statTotalOrderIsKeptUntilStatsChange() {
+        PokemonManager manager = new PokemonManager(new Scanner(""));
+        manager.restore(List.of());
+        ItemManager items = new ItemManager();
+        Pokemon tank = new Pokemon(95, "Onix", PokemonType.ROCK, null, 5, 0, 0, 0, 50, 50, 200, 50);
+        Pokemon even = new Pokemon(133, "Eevee", PokemonType.NORMAL, null, 5, 0, 0, 0, 60, 60, 60, 60);
+        manager.addPokemon(tank);
+        manager.addPokemon(even);
+
+        assertEquals(List.of(tank, even),
+                manager.getPokemonPage(PokemonManager.SortKey.STAT_TOTAL, 0, 10).getItems());
+
+        ((Vitamin) items.findItem("Iron")).use(tank, manager); // Onix's Defense drops to the vitamin's 10
+        assertEquals(List.of(even, tank),
+                manager.getPokemonPage(PokemonManager.SortKey.STAT_TOTAL, 0, 10).getItems());
+
+        even.levelUpWithRareCandy(manager);
+        assertEquals(List.of(even, tank),
+                manager.getPokemonPage(PokemonManager.SortKey.STAT_TOTAL, 0, 10).getItems());
+        assertEquals(264, manager.getPokemonPage(PokemonManager.SortKey.STAT_TOTAL, 0, 1).getItems()
+                .get(0).getStatTotal());
+    }
+
+    @Test
+    @Timeout(60)
+    void readersSeeWholeEntriesWhileWritersRun() throws Exception {
+        PokemonManager manager = emptyManagerWithEvolvedForms();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Queue<String> problems = new ConcurrentLinkedQueue<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(pool.submit(() -> {
+                while (writing.get()) {
+                    for (int dex = 1; dex <= 2 * CHAINS; dex++) {
+                        Pokemon p = manager.getPokemonByDex(dex);
+                        if (p == null) {
+                            continue;
+                        }
+                        String expected = (dex % 2 == 1 ? "Base" : "Evo") + dex;
+                        PokemonType type = dex % 2 == 1 ? PokemonType.FIRE : PokemonType.WATER;
+                        if (p.getPokedexNumber() != dex || !p.getName().equals(expected)
+                                || p.getPrimaryPokemonType() != type) {
+                            problems.add("#" + dex + " read as #" + p.getPokedexNumber() + " " + p.getName());
+                        }
+                    }
+                    for (Pokemon p : manager.searchByTypes("Water")) {
+                        if (p.getPrimaryPokemonType() != PokemonType.WATER || !p.getName().startsWith("Evo")) {
+                            problems.add("Water search found " + p.getName());
+                        }
+                    }
+                }
+            }));
+        }
+
+        Future<?> writer = pool.submit(() -> {
+            try {
+                for (int k = 0; k < CHAINS; k++) {
+                    manager.addPokemon(base(2 * k + 1));
+                }
+                for (int k = 0; k < CHAINS; k++) {
+                    manager.getPokemonByDex(2 * k + 1).levelUpWithRareCandy(manager);
+                }
+            } finally {
+                writing.set(false);
+            }
+        });
+        writer.get();
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        pool.shutdown();
+
+        assertEquals(List.of(), List.copyOf(problems));
+        for (int k = 0; k < CHAINS; k++) {
+            assertNull(manager.getPokemonByDex(2 * k + 1));
+            assertEquals("Evo" + (2 * k + 2), manager.getPokemonByDex(2 * k + 2).getName());
+        }
+        assertEquals(CHAINS, manager.searchByTypes("Water").size());
+        assertTrue(manager.searchByTypes("Fire").isEmpty());
+    }
+}
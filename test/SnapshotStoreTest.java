@@ -0,0 +1,254 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Scanner;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotStoreTest {
+    @TempDir
+    Path dir;
+
+    private Path snapshot;
+    private PokemonManager pokemon;
+    private MoveManager moves;
+    private ItemManager items;
+    private TrainerManager trainers;
+
+    @BeforeEach
+    void fillManagers() {
+        snapshot = dir.resolve("dex.snapshot");
+        pokemon = new PokemonManager(new Scanner(""));
+        moves = new MoveManager();
+        items = new ItemManager();
+        trainers = new TrainerManager();
+
+        Pokemon pikachu = pokemon.getPokemonByDex(25);
+        pikachu.setHeldItem(items.findItem("Thunder Stone"));
+        Trainer kyle = trainers.getTrainerByID(1001);
+        kyle.restoreMoney(123_456);
+        kyle.addPokemonToLineup(pikachu);
+        kyle.addPokemonToLineup(pokemon.getPokemonByDex(1));
+        kyle.switchToStorage(pokemon.getPokemonByDex(1));
+        kyle.addItemToBag(items.findItem("Iron"), 2);
+        kyle.addItemToBag(items.findItem("Zinc"), 1);
+        kyle.addItemToBag(items.findItem("Iron"), 1);
+        trainers.getTrainerByID(1002).addPokemonToLineup(pikachu);
+        items.findItem("Iron").setStock(3);
+    }
+
+    @Test
+    void roundTripKeepsStateAndSequence() throws IOException {
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers, 42);
+
+        PokemonManager loadedPokemon = new PokemonManager(new Scanner(""));
+        MoveManager loadedMoves = new MoveManager();
+        ItemManager loadedItems = new ItemManager();
+        TrainerManager loadedTrainers = new TrainerManager();
+        assertEquals(42, SnapshotStore.load(snapshot, loadedPokemon, loadedMoves, loadedItems, loadedTrainers));
+
+        assertLoaded(loadedPokemon, loadedMoves, loadedItems, loadedTrainers);
+    }
+
+    @Test
+    void versionThreeSnapshotLoadsWithOneSequence() throws IOException {
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers, 42);
+        writeAsVersionThree(snapshot);
+
+        PokemonManager loadedPokemon = new PokemonManager(new Scanner(""));
+        MoveManager loadedMoves = new MoveManager();
+        ItemManager loadedItems = new ItemManager();
+        TrainerManager loadedTrainers = new TrainerManager();
+        assertEquals(42, SnapshotStore.load(snapshot, loadedPokemon, loadedMoves, loadedItems, loadedTrainers));
+
+        assertLoaded(loadedPokemon, loadedMoves, loadedItems, loadedTrainers);
+        assertEquals(42, loadedItems.getStockSnapshotSequence());
+        assertEquals(42, loadedTrainers.getTrainerByID(1001).getSnapshotSequence());
+    }
+
+    @Test
+    void versionTwoSnapshotLoadsWithoutChecksum() throws IOException {
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers, 42);
+        writeAsVersionThree(snapshot);
+        writeAsVersionTwo(snapshot);
+
+        PokemonManager loadedPokemon = new PokemonManager(new Scanner(""));
+        MoveManager loadedMoves = new MoveManager();
+        ItemManager loadedItems = new ItemManager();
+        TrainerManager loadedTrainers = new TrainerManager();
+        assertEquals(42, SnapshotStore.load(snapshot, loadedPokemon, loadedMoves, loadedItems, loadedTrainers));
+
+        assertLoaded(loadedPokemon, loadedMoves, loadedItems, loadedTrainers);
+    }
+
+    @Test
+    void versionOneSnapshotLoadsWithoutSequence() throws IOException {
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers, 42);
+        writeAsVersionThree(snapshot);
+        writeAsVersionTwo(snapshot);
+        writeAsVersionOne(snapshot);
+
+        PokemonManager loadedPokemon = new PokemonManager(new Scanner(""));
+        MoveManager loadedMoves = new MoveManager();
+        ItemManager loadedItems = new ItemManager();
+        TrainerManager loadedTrainers = new TrainerManager();
+        assertEquals(0, SnapshotStore.load(snapshot, loadedPokemon, loadedMoves, loadedItems, loadedTrainers));
+
+        assertLoaded(loadedPokemon, loadedMoves, loadedItems, loadedTrainers);
+    }
+
+    @Test
+    void rejectsUnknownVersionAndLeavesManagersAlone() throws IOException {
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer.wrap(bytes).putShort(4, (short) 99);
+        Files.write(snapshot, bytes);
+
+        TrainerManager untouched = new TrainerManager();
+        IOException e = assertThrows(IOException.class, () -> SnapshotStore.load(snapshot,
+                new PokemonManager(new Scanner("")), new MoveManager(), new ItemManager(), untouched));
+        assertEquals("Unsupported snapshot version 99", e.getMessage());
+        assertEquals(1_000_000, untouched.getTrainerByID(1001).getMoney());
+    }
+
+    @Test
+    void rejectsForeignAndTruncatedFiles() throws IOException {
+        Files.write(snapshot, new byte[] {1, 2, 3, 4, 0, 2});
+        assertThrows(IOException.class, () -> SnapshotStore.load(snapshot,
+                new PokemonManager(new Scanner("")), new MoveManager(), new ItemManager(), new TrainerManager()));
+
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(bytes, bytes.length - 5));
+        ItemManager untouched = new ItemManager();
+        assertThrows(IOException.class, () -> SnapshotStore.load(snapshot,
+                new PokemonManager(new Scanner("")), new MoveManager(), untouched, new TrainerManager()));
+        assertEquals(10, untouched.findItem("Iron").getStock());
+    }
+
+    @Test
+    void rejectsChecksumMismatch() throws IOException {
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers);
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> SnapshotStore.load(snapshot,
+                new PokemonManager(new Scanner("")), new MoveManager(), new ItemManager(), new TrainerManager()));
+        assertTrue(e.getMessage().endsWith("(checksum mismatch)"), e.getMessage());
+    }
+
+    @Test
+    void rejectsHugeLengthsWithoutAllocatingForThem() throws IOException {
+        SnapshotStore.save(snapshot, pokemon, moves, items, trainers);
+        writeAsVersionThree(snapshot);
+        writeAsVersionTwo(snapshot); // no checksum, so the reader has to catch the bad length itself
+        byte[] bytes = Files.readAllBytes(snapshot);
+        ByteBuffer header = ByteBuffer.wrap(bytes);
+        header.putInt(18, Integer.MAX_VALUE); // the name length of the first move, after magic, version, sequence, count
+        Files.write(snapshot, bytes);
+        assertThrows(IOException.class, () -> SnapshotStore.load(snapshot,
+                new PokemonManager(new Scanner("")), new MoveManager(), new ItemManager(), new TrainerManager()));
+
+        header.putInt(14, Integer.MAX_VALUE); // the move count
+        Files.write(snapshot, bytes);
+        assertThrows(IOException.class, () -> SnapshotStore.load(snapshot,
+                new PokemonManager(new Scanner("")), new MoveManager(), new ItemManager(), new TrainerManager()));
+    }
+
+    private void assertLoaded(PokemonManager loadedPokemon, MoveManager loadedMoves, ItemManager loadedItems,
+                              TrainerManager loadedTrainers) {
+        assertEquals(names(pokemon.getAllPokemon()), names(loadedPokemon.getAllPokemon()));
+        assertEquals(moveNames(moves.getAllMoves()), moveNames(loadedMoves.getAllMoves()));
+        assertEquals(3, loadedItems.findItem("Iron").getStock());
+
+        Trainer kyle = loadedTrainers.getTrainerByID(1001);
+        assertEquals(123_456, kyle.getMoney());
+        assertEquals(List.of("Pikachu"), names(kyle.getLineup()));
+        assertEquals(List.of("Bulbasaur"), names(kyle.getStorage()));
+        assertEquals(List.of("Iron", "Iron", "Iron", "Zinc"), itemNames(kyle.getItemBag()));
+
+        // Objects shared before saving are still shared after loading
+        Pokemon pikachu = loadedPokemon.getPokemonByDex(25);
+        assertSame(pikachu, kyle.getLineup().get(0));
+        assertSame(pikachu, loadedTrainers.getTrainerByID(1002).getLineup().get(0));
+        assertSame(loadedItems.findItem("Thunder Stone"), pikachu.getHeldItem());
+        assertSame(loadedItems.findItem("Iron"), kyle.getItemBag().get(0));
+    }
+
+    /**
+     * Rewrites a current snapshot in the version 3 layout, which had no
+     * sequence numbers after the trainers.
+     */
+    private void writeAsVersionThree(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        int end = bytes.length - Integer.BYTES - Long.BYTES * (1 + trainers.getAllTrainers().size());
+        ByteBuffer v3 = ByteBuffer.wrap(Arrays.copyOf(bytes, end + Integer.BYTES));
+        v3.putShort(4, (short) 3);
+        CRC32 crc = new CRC32();
+        crc.update(v3.array(), 0, end);
+        v3.putInt(end, (int) crc.getValue());
+        Files.write(file, v3.array());
+    }
+
+    /**
+     * Rewrites a version 3 snapshot in the version 2 layout, which had no
+     * checksum at the end.
+     */
+    private static void writeAsVersionTwo(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putShort(4, (short) 2);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - Integer.BYTES));
+    }
+
+    /**
+     * Rewrites a version 2 snapshot in the version 1 layout, which had no
+     * journal sequence after the header.
+     */
+    private static void writeAsVersionOne(Path file) throws IOException {
+        ByteBuffer v2 = ByteBuffer.wrap(Files.readAllBytes(file));
+        ByteBuffer v1 = ByteBuffer.allocate(v2.capacity() - Long.BYTES);
+        v1.putInt(v2.getInt());
+        v2.getShort();
+        v1.putShort((short) 1);
+        v2.getLong();
+        v1.put(v2);
+        Files.write(file, v1.array());
+    }
+
+    private static List<String> names(List<Pokemon> list) {
+        List<String> names = new ArrayList<>();
+        for (Pokemon p : list) {
+            names.add(p.getName());
+        }
+        return names;
+    }
+
+    private static List<String> moveNames(List<Move> list) {
+        List<String> names = new ArrayList<>();
+        for (Move m : list) {
+            names.add(m.getName());
+        }
+        return names;
+    }
+
+    private static List<String> itemNames(List<Item> list) {
+        List<String> names = new ArrayList<>();
+        for (Item item : list) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,71 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SpeciesCatalogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void skipsSpeciesOutsideTheDexRange() throws IOException {
+        Path file = dir.resolve("species.catalog");
+        SpeciesCatalog.write(file, List.of(
+                new Pokemon(0, "Zero", PokemonType.NORMAL, null, 5, 0, 0, 0, 1, 1, 1, 1),
+                new Pokemon(-4, "Negative", PokemonType.NORMAL, null, 5, 0, 0, 0, 1, 1, 1, 1),
+                new Pokemon(PokemonManager.MAX_DEX + 1, "Beyond", PokemonType.NORMAL, null, 5, 0, 0, 0, 1, 1, 1, 1),
+                new Pokemon(3, "Venusaur", PokemonType.GRASS, PokemonType.POISON, 32, 2, 0, 0, 80, 82, 83, 80)));
+
+        SpeciesCatalog catalog = SpeciesCatalog.open(file);
+        assertEquals(3, catalog.getMaxDex());
+        assertTrue(catalog.contains(3));
+        assertFalse(catalog.contains(0));
+        assertEquals("Venusaur", catalog.getName(3));
+        assertEquals(PokemonType.POISON, catalog.getSecondaryType(3));
+    }
+
+    @Test
+    void rejectsNamesOutsideTheFile() throws IOException {
+        Path file = dir.resolve("species.catalog");
+        SpeciesCatalog.write(file, List.of(
+                new Pokemon(1, "Bulbasaur", PokemonType.GRASS, PokemonType.POISON, 5, 0, 2, 16, 45, 49, 49, 45)));
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(16 + 44, 1_000); // the name length of record 1
+        Files.write(file, bytes);
+
+        IOException e = assertThrows(IOException.class, () -> SpeciesCatalog.open(file));
+        assertEquals(file + " has a corrupt record for Pokédex number 1", e.getMessage());
+    }
+
+    @Test
+    void evolvesFromTheCatalogWithoutCopyingTheSpecies() throws IOException {
+        Path file = dir.resolve("species.catalog");
+        SpeciesCatalog.write(file, List.of(
+                new Pokemon(2, "Ivysaur", PokemonType.GRASS, PokemonType.POISON, 16, 1, 3, 32, 60, 62, 63, 60)));
+        PokemonManager manager = new PokemonManager(new Scanner(""));
+        manager.restore(List.of());
+        manager.attachCatalog(SpeciesCatalog.open(file));
+
+        assertSame(manager.speciesByDex(2), manager.speciesByDex(2));
+        Pokemon bulbasaur = new Pokemon(1, "Bulbasaur", PokemonType.GRASS, PokemonType.POISON, 5, 0, 2, 16,
+                45, 49, 49, 45);
+        for (int level = 5; level < 16; level++) {
+            bulbasaur.levelUpWithRareCandy(manager);
+        }
+        assertEquals("Ivysaur", bulbasaur.getName());
+        assertEquals(62, bulbasaur.getAttack());
+        assertEquals("Ivysaur", manager.speciesByDex(2).getName()); // the shared species is unchanged
+        assertEquals(16, manager.speciesByDex(2).getBaseLevel());
+    }
+}
@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TextIndexTest {
+    @Test
+    void queryWordsMatchInsideWords() {
+        TextIndex<String> index = new TextIndex<>();
+        index.add("Tackle", "Tackle", "A full-body charge.");
+        index.add("Calcium", "Calcium", "+10 Special Attack EVs");
+        index.add("Defend", "Defend", "Raises user's defense stat temporarily.");
+
+        assertEquals(List.of("Tackle"), index.search("ckle"));
+        assertEquals(List.of("Tackle", "Calcium"), index.search("TACK")); // and Attack
+        assertEquals(List.of("Calcium"), index.search("sp att"));
+        assertEquals(List.of("Calcium"), index.search("cial tack"));
+        assertEquals(List.of("Defend"), index.search("fen"));
+        assertEquals(List.of("Tackle", "Defend"), index.search("ar")); // charge, temporarily
+        assertEquals(List.of(), index.search("ckle charge body x"));
+        assertEquals(List.of(), index.search("fullbody")); // a query word does not span two words of the text
+        assertEquals(List.of(), index.search("!!"));
+        assertEquals(List.of("Tackle", "Calcium", "Defend"), index.search("  "));
+    }
+
+    @Test
+    void removedRecordsLeaveSharedWordsFindable() {
+        TextIndex<String> index = new TextIndex<>();
+        index.add("Iron", "Iron", "Raises Defense");
+        index.add("Zinc", "Zinc", "Raises Special Defense");
+        index.remove("Iron");
+
+        assertEquals(List.of("Zinc"), index.search("ense"));
+        assertEquals(List.of(), index.search("ron"));
+
+        index.remove("Zinc");
+        index.add("Iron", "Iron");
+        assertEquals(List.of("Iron"), index.search("ro"));
+        assertEquals(List.of(), index.search("ense"));
+    }
+
+    @Test
+    void managersSearchInsideWords() {
+        MoveManager moves = new MoveManager();
+        assertEquals(List.of("Tackle"), moveNames(moves.searchByNameOrEffect("ckle")));
+
+        TrainerManager trainers = new TrainerManager();
+        trainers.addTrainer(1003, "Brock", java.time.LocalDate.of(1999, 5, 1), "Male", "Pewter City", "Rock expert.");
+        assertEquals(List.of(1001, 1002, 1003), ids(trainers.searchTrainers("male")));
+        assertEquals(List.of(1001, 1002), ids(trainers.searchTrainers("fem")));
+        assertEquals(List.of(1003), ids(trainers.searchTrainers("sex:male name:rock")));
+
+        ItemManager items = new ItemManager();
+        assertEquals(List.of("Calcium"), itemNames(items.searchItemsByNameOrEffect("lcium")));
+    }
+
+    private static List<String> moveNames(List<Move> moves) {
+        List<String> names = new ArrayList<>();
+        for (Move m : moves) {
+            names.add(m.getName());
+        }
+        return names;
+    }
+
+    private static List<String> itemNames(List<Item> items) {
+        List<String> names = new ArrayList<>();
+        for (Item item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+
+    private static List<Integer> ids(List<Trainer> trainers) {
+        List<Integer> ids = new ArrayList<>();
+        for (Trainer t : trainers) {
+            ids.add(t.getTrainerID());
+        }
+        return ids;
+    }
+}
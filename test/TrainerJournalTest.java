@@ -0,0 +1,212 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+class TrainerJournalTest {
+    @TempDir
+    Path dir;
+
+    /**
+     * One set of managers with their starting data.
+     */
+    private static final class Dex {
+        final PokemonManager pokemon = new PokemonManager(new Scanner(""));
+        final MoveManager moves = new MoveManager();
+        final ItemManager items = new ItemManager();
+        final TrainerManager trainers = new TrainerManager();
+
+        long load(Path snapshot) throws IOException {
+            return SnapshotStore.load(snapshot, pokemon, moves, items, trainers);
+        }
+
+        int replay(Path journalFile, long afterSequence) throws IOException {
+            try (TrainerJournal journal = TrainerJournal.open(journalFile, 0)) {
+                return journal.replay(afterSequence, trainers, items, moves, pokemon);
+            }
+        }
+    }
+
+    @Test
+    void replayRestoresTrainersAndShopStock() throws IOException {
+        Path snapshot = dir.resolve("dex.snapshot");
+        Path journalFile = dir.resolve("trainers.journal");
+
+        Dex live = new Dex();
+        Trainer kyle = live.trainers.getTrainerByID(1001);
+        kyle.restoreMoney(500_000);
+        TrainerJournal journal = TrainerJournal.open(journalFile, 0);
+        journal.checkpoint(snapshot, live.pokemon, live.moves, live.items, live.trainers);
+        live.trainers.attachJournal(journal);
+        live.items.attachJournal(journal);
+
+        assertEquals(30_000, live.items.purchase(kyle, "Iron", 3));
+        assertEquals(5_000, live.items.sale(kyle, "Iron", 1));
+        assertEquals(10_000, live.items.buyItem("Calcium", 1));
+        assertEquals(10_000, live.items.sellItem("Carbos", 2));
+        assertEquals(30_000, live.items.buyCart(Map.of("Protein", 1, "HP Up", 2)));
+        kyle.processPurchase(live.items.findItem("Zinc"), 1); // not from the shop's stock
+
+        Pokemon pikachu = new Pokemon(25, "Pikachu", PokemonType.ELECTRIC, null, 5, 0, 26, 30, 35, 55, 40, 90);
+        Pokemon eevee = new Pokemon(133, "Eevee", PokemonType.NORMAL, null, 5, 0, 0, 0, 55, 55, 50, 55);
+        Pokemon onix = new Pokemon(95, "Onix", PokemonType.ROCK, PokemonType.GROUND, 5, 0, 0, 0, 35, 45, 160, 70);
+        kyle.addPokemonToLineup(pikachu);
+        kyle.addPokemonToLineup(eevee);
+        kyle.addPokemonToLineup(onix);
+        kyle.switchToStorage(eevee);
+        kyle.releasePokemon(onix);
+        kyle.useItem(live.items.findItem("Iron"), pikachu, live.pokemon);
+        journal.close();
+
+        Dex restored = new Dex();
+        long sequence = restored.load(snapshot);
+        assertEquals(13, restored.replay(journalFile, sequence));
+
+        Trainer replayed = restored.trainers.getTrainerByID(1001);
+        assertEquals(kyle.getMoney(), replayed.getMoney());
+        assertEquals(names(kyle.getItemBag()), names(replayed.getItemBag()));
+        assertEquals(pokemonNames(kyle.getLineup()), pokemonNames(replayed.getLineup()));
+        assertEquals(pokemonNames(kyle.getStorage()), pokemonNames(replayed.getStorage()));
+        assertEquals(stock(live.items), stock(restored.items));
+    }
+
+    @Test
+    void replaySkipsEntriesInTheSnapshot() throws IOException {
+        Path snapshot = dir.resolve("dex.snapshot");
+        Path journalFile = dir.resolve("trainers.journal");
+
+        Dex live = new Dex();
+        Trainer ella = live.trainers.getTrainerByID(1002);
+        TrainerJournal journal = TrainerJournal.open(journalFile, 0);
+        live.trainers.attachJournal(journal);
+        live.items.attachJournal(journal);
+        live.items.purchase(ella, "Iron", 1);
+        SnapshotStore.save(snapshot, live.pokemon, live.moves, live.items, live.trainers, journal.getLastSequence());
+        live.items.purchase(ella, "Iron", 1);
+        journal.close();
+
+        Dex restored = new Dex();
+        assertEquals(1, restored.replay(journalFile, restored.load(snapshot)));
+        assertEquals(2, restored.trainers.getTrainerByID(1002).getItemQuantity("Iron"));
+        assertEquals(stock(live.items), stock(restored.items));
+    }
+
+    @Test
+    @Timeout(60)
+    void checkpointWhileTrainersChangeKeepsEveryChange() throws Exception {
+        Path snapshot = dir.resolve("dex.snapshot");
+        Path journalFile = dir.resolve("trainers.journal");
+
+        Dex live = new Dex();
+        TrainerJournal journal = TrainerJournal.open(journalFile, 1);
+        journal.checkpoint(snapshot, live.pokemon, live.moves, live.items, live.trainers);
+        live.trainers.attachJournal(journal);
+        live.items.attachJournal(journal);
+
+        List<Trainer> trainers = live.trainers.getAllTrainers();
+        ExecutorService pool = Executors.newFixedThreadPool(trainers.size() + 2);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Trainer t : trainers) {
+            Pokemon onix = new Pokemon(95, "Onix", PokemonType.ROCK, PokemonType.GROUND, 5, 0, 0, 0, 35, 45, 160, 70);
+            t.addPokemonToLineup(onix);
+            tasks.add(pool.submit(() -> {
+                for (int i = 0; i < 300; i++) {
+                    live.items.purchase(t, i % 2 == 0 ? "Iron" : "Health Feather", 2);
+                    live.items.sale(t, "Health Feather", 1);
+                    if (i % 25 == 0) {
+                        t.useItem(live.items.findItem("Iron"), onix, live.pokemon);
+                    }
+                }
+            }));
+        }
+        tasks.add(pool.submit(() -> {
+            for (int i = 0; i < 300; i++) {
+                live.items.sellItem("Iron", 1);
+                live.items.buyCart(Map.of("Iron", 1, "Health Feather", 1));
+            }
+        }));
+        tasks.add(pool.submit(() -> {
+            for (int i = 0; i < 20; i++) {
+                journal.checkpoint(snapshot, live.pokemon, live.moves, live.items, live.trainers);
+            }
+            return null;
+        }));
+        for (Future<?> task : tasks) {
+            task.get(); // a deadlock fails the test by its timeout
+        }
+        pool.shutdown();
+        journal.close();
+
+        Dex restored = new Dex();
+        restored.replay(journalFile, restored.load(snapshot));
+        for (Trainer t : trainers) {
+            Trainer replayed = restored.trainers.getTrainerByID(t.getTrainerID());
+            assertEquals(t.getMoney(), replayed.getMoney());
+            assertEquals(names(t.getItemBag()), names(replayed.getItemBag()));
+            assertEquals(t.getLineup().get(0).getDefense(), replayed.getLineup().get(0).getDefense());
+        }
+        assertEquals(stock(live.items), stock(restored.items));
+    }
+
+    @Test
+    void failedJournalWriteLeavesTrainerAndStockUnchanged() throws IOException {
+        Dex live = new Dex();
+        Trainer kyle = live.trainers.getTrainerByID(1001);
+        TrainerJournal journal = TrainerJournal.open(dir.resolve("trainers.journal"), 0);
+        live.trainers.attachJournal(journal);
+        live.items.attachJournal(journal);
+        journal.close(); // the next entry cannot be written
+
+        Item iron = live.items.findItem("Iron");
+        int stock = iron.getStock();
+        int money = kyle.getMoney();
+        assertThrows(UncheckedIOException.class, () -> live.items.purchase(kyle, "Iron", 1));
+        assertEquals(stock, iron.getStock());
+        assertEquals(money, kyle.getMoney());
+        assertEquals(0, kyle.getItemQuantity("Iron"));
+
+        // Once a write has failed the journal refuses every later entry
+        assertThrows(UncheckedIOException.class, () -> live.items.buyItem("Iron", 1));
+        assertThrows(UncheckedIOException.class, () -> live.items.buyCart(Map.of("Iron", 1, "Zinc", 1)));
+        assertEquals(stock, iron.getStock());
+        assertEquals(stock(new ItemManager()), stock(live.items));
+    }
+
+    private static List<String> names(List<Item> items) {
+        List<String> names = new ArrayList<>();
+        for (Item item : items) {
+            names.add(item.getName());
+        }
+        return names;
+    }
+
+    private static List<String> pokemonNames(List<Pokemon> pokemon) {
+        List<String> names = new ArrayList<>();
+        for (Pokemon p : pokemon) {
+            names.add(p.getName());
+        }
+        return names;
+    }
+
+    private static Map<String, Integer> stock(ItemManager items) {
+        Map<String, Integer> stock = new LinkedHashMap<>();
+        for (Item item : items.getAllItemsView()) {
+            stock.put(item.getName(), item.getStock());
+        }
+        return stock;
+    }
+}